@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.5"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -20,6 +21,7 @@ repositories {
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.apache.httpcomponents.client5:httpclient5")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 
@@ -37,6 +39,7 @@ dependencies {
     implementation("org.springframework.integration:spring-integration-mqtt")
     implementation("org.java-websocket:Java-WebSocket:1.5.4")
     implementation ("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.2.0")
+    runtimeOnly("com.h2database:h2")
 
     testImplementation("org.mockito:mockito-core:5.8.0")
     testImplementation("org.mockito:mockito-junit-jupiter:5.8.0")
@@ -63,3 +66,9 @@ tasks.withType<Test> {
         showStandardStreams = false
     }
 }
+
+jmh {
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+}
@@ -0,0 +1,68 @@
+package org.example.diplomwork.benchmark;
+
+import org.example.diplomwork.config.HistoryProperties.OverflowPolicy;
+import org.example.diplomwork.util.history.HistoryJournal;
+import org.example.diplomwork.util.history.MovementHistoryBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * What journaling adds to recording a move: {@code bufferOnly} is the in-memory append
+ * {@code saveMovementHistory} always does, {@code bufferAndJournal} adds the journal append.
+ * Forcing to disk happens on the committer thread, so the difference is the record encoding
+ * and the copy into the mapped page, including an occasional segment roll.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HistoryJournalBenchmark {
+    private static final String[] DIRECTIONS = {"forward", "right", "forward", "left", "backward"};
+
+    private Path directory;
+    private HistoryJournal journal;
+    private MovementHistoryBuffer buffer;
+    private long now;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("history-journal-bench");
+        journal = HistoryJournal.open(directory, 4L * 1024 * 1024, 4, Duration.ofMillis(50));
+        buffer = new MovementHistoryBuffer(100_000, OverflowPolicy.OVERWRITE_OLDEST);
+        now = 1_000_000L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean bufferOnly() {
+        now += 100;
+        String direction = DIRECTIONS[step++ % DIRECTIONS.length];
+        return buffer.append(now, step, -step, step % 360, step * 0.01, direction, 180);
+    }
+
+    @Benchmark
+    public boolean bufferAndJournal() {
+        now += 100;
+        String direction = DIRECTIONS[step++ % DIRECTIONS.length];
+        journal.append(HistoryJournal.Kind.MOVE, now, step, -step, step % 360, step * 0.01, direction, 180);
+        return buffer.append(now, step, -step, step % 360, step * 0.01, direction, 180);
+    }
+}
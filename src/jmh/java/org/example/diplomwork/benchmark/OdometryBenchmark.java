@@ -0,0 +1,47 @@
+package org.example.diplomwork.benchmark;
+
+import org.example.diplomwork.entities.PlatformState;
+import org.example.diplomwork.util.odometry.Odometry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one odometry update on the primitive core. The only allocation expected per move is
+ * the published {@link PlatformState} snapshot, 56 bytes with compressed oops.
+ * <p>
+ * Run with {@code ./gradlew jmh} and {@code profilers = listOf("gc")} in the jmh block;
+ * {@code gc.alloc.rate.norm} is the bytes allocated per move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OdometryBenchmark {
+    private static final double WHEEL_RADIUS = 0.03;
+    private static final String[] DIRECTIONS = {"forward", "right", "forward", "left", "backward"};
+
+    private PlatformState state;
+    private long now;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        now = 1_000_000L;
+        state = PlatformState.origin(now);
+    }
+
+    @Benchmark
+    public PlatformState advance() {
+        // 100 ms between moves keeps the elapsed time inside the integrated range
+        now += 100;
+        String direction = DIRECTIONS[step++ % DIRECTIONS.length];
+        state = Odometry.advance(state, direction, 180, state.angle(), WHEEL_RADIUS, now);
+        return state;
+    }
+
+    @Benchmark
+    public double distanceOnly() {
+        now += 100;
+        return Odometry.distance(180, 100, WHEEL_RADIUS);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.diplomwork.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.util.json.JsonIdScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old correlation path (parse into a Map for the id, then parse again into the DTO)
+ * with the token scan used by the WebSocket and MQTT handlers.
+ * <p>
+ * Run with {@code ./gradlew jmh}, set {@code profilers = listOf("gc")} in the jmh block to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResponseCorrelationBenchmark {
+    private static final String STATUS_RESPONSE = "{\"status\":\"ok\",\"currentDirection\":\"forward\","
+            + "\"currentSpeed\":180,\"currentAngle\":45.5,\"isMoving\":true,\"uptime\":123456,"
+            + "\"operationDuration\":1500,\"wifiStatus\":\"connected\",\"ip\":\"192.168.0.70\",\"id\":\"4711\"}";
+
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ESP32StatusResponseDto doubleParse() throws Exception {
+        Map<String, Object> response = mapper.readValue(STATUS_RESPONSE, Map.class);
+        Long.parseLong(String.valueOf(response.get("id")));
+        return mapper.readValue(STATUS_RESPONSE, ESP32StatusResponseDto.class);
+    }
+
+    @Benchmark
+    public ESP32StatusResponseDto singleParse() throws Exception {
+        JsonIdScanner.extractId(STATUS_RESPONSE);
+        return mapper.readValue(STATUS_RESPONSE, ESP32StatusResponseDto.class);
+    }
+
+    @Benchmark
+    public long idScanOnly() throws Exception {
+        return JsonIdScanner.extractId(STATUS_RESPONSE);
+    }
+}
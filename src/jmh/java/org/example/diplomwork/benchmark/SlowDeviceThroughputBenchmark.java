@@ -0,0 +1,107 @@
+package org.example.diplomwork.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1,000 concurrent requests, each holding its request thread on a blocking call to a device that
+ * answers after {@code deviceDelayMillis}. {@code platform} mirrors Tomcat's default pool of 200
+ * worker threads, {@code virtual} is what {@code spring.threads.virtual.enabled} switches to.
+ * Throughput is {@code requests / score}. The platform pool overlaps at most 200 device calls, so
+ * its batch takes at least five round trips; virtual threads overlap all of them and are left
+ * with the socket setup cost.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SlowDeviceThroughputBenchmark {
+    private static final int TOMCAT_DEFAULT_MAX_THREADS = 200;
+    private static final byte[] STATUS_RESPONSE = "{\"status\":\"ok\",\"isMoving\":false}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000"})
+    public int requests;
+
+    @Param({"200"})
+    public int deviceDelayMillis;
+
+    private HttpServer device;
+    private ExecutorService deviceExecutor;
+    private HttpClient client;
+    private URI statusUri;
+    private ExecutorService requestExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // The simulated device never limits concurrency, so only the caller's threads are measured
+        deviceExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        device = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), requests);
+        device.setExecutor(deviceExecutor);
+        device.createContext("/status", exchange -> {
+            try {
+                Thread.sleep(deviceDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, STATUS_RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(STATUS_RESPONSE);
+            }
+        });
+        device.start();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        statusUri = URI.create("http://127.0.0.1:" + device.getAddress().getPort() + "/status");
+        requestExecutor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_DEFAULT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        device.stop(0);
+        deviceExecutor.shutdownNow();
+        client.close();
+    }
+
+    @Benchmark
+    public int concurrentSlowRequests() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(statusUri).GET().build();
+        List<Future<Integer>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            // Blocking send, like RestTemplate on a request thread
+            responses.add(requestExecutor.submit(() ->
+                    client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode()));
+        }
+
+        int ok = 0;
+        for (Future<Integer> response : responses) {
+            if (response.get() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.diplomwork.benchmark;
+
+import org.example.diplomwork.util.history.SpatialGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Region and nearest-position queries over {@code points} recorded positions of a random walk:
+ * the {@code grid*} benchmarks ask {@link SpatialGrid}, the {@code scan*} ones check every
+ * position in primitive arrays, which is the cheapest the history buffer could answer them.
+ * Each invocation queries a different spot on the walk.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpatialGridBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000000"})
+    public int points;
+
+    // Side of the square region in metres
+    @Param({"2.0"})
+    public double regionSize;
+
+    private SpatialGrid grid;
+    private double[] xs;
+    private double[] ys;
+    private double[] queryXs;
+    private double[] queryYs;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        grid = new SpatialGrid(0.5, points);
+        xs = new double[points];
+        ys = new double[points];
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.3;
+            x += Math.cos(heading) * 0.05;
+            y += Math.sin(heading) * 0.05;
+            xs[i] = x;
+            ys[i] = y;
+            grid.append(i, x, y);
+        }
+
+        queryXs = new double[QUERIES];
+        queryYs = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int near = random.nextInt(points);
+            queryXs[i] = xs[near] + random.nextGaussian();
+            queryYs[i] = ys[near] + random.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    public int gridRectangle() {
+        int i = next();
+        double half = regionSize / 2;
+        return grid.rectangle(queryXs[i] - half, queryYs[i] - half, queryXs[i] + half, queryYs[i] + half,
+                Long.MIN_VALUE, Long.MAX_VALUE, 1000).total();
+    }
+
+    @Benchmark
+    public int scanRectangle() {
+        int i = next();
+        double half = regionSize / 2;
+        double minX = queryXs[i] - half;
+        double maxX = queryXs[i] + half;
+        double minY = queryYs[i] - half;
+        double maxY = queryYs[i] + half;
+        int matched = 0;
+        for (int p = 0; p < points; p++) {
+            if (xs[p] >= minX && xs[p] <= maxX && ys[p] >= minY && ys[p] <= maxY) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public double gridNearest() {
+        int i = next();
+        return grid.nearest(queryXs[i], queryYs[i], 1, Long.MIN_VALUE, Long.MAX_VALUE).get(0).distance();
+    }
+
+    @Benchmark
+    public double scanNearest() {
+        int i = next();
+        double best = Double.MAX_VALUE;
+        for (int p = 0; p < points; p++) {
+            double dx = xs[p] - queryXs[i];
+            double dy = ys[p] - queryYs[i];
+            best = Math.min(best, dx * dx + dy * dy);
+        }
+        return Math.sqrt(best);
+    }
+
+    private int next() {
+        query = (query + 1) % QUERIES;
+        return query;
+    }
+}
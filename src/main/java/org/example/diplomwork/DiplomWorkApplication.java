@@ -2,10 +2,12 @@ package org.example.diplomwork;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableScheduling
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class DiplomWorkApplication {
     public static void main(String[] args) {
         SpringApplication.run(DiplomWorkApplication.class, args);
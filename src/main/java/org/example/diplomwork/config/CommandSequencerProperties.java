@@ -0,0 +1,13 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.sequencer")
+public class CommandSequencerProperties {
+    // Commands waiting for the device beyond this are rejected instead of queued
+    private int queueCapacity = 64;
+    // A newer move replaces a move still waiting in the queue; only the latest one is sent
+    private boolean coalesceMoves = false;
+}
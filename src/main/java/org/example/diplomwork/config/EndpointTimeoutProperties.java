@@ -0,0 +1,20 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.endpoints.timeouts")
+public class EndpointTimeoutProperties {
+    // How long a device endpoint holds its HTTP response open; the command itself is not cancelled.
+    // A command may wait for the one ahead of it in its lane or the sequencer, which can use a
+    // full transport timeout (5s), and then for its own answer; a shorter wait would report 504
+    // for a command that is still sent and applied
+    private Duration move = Duration.ofSeconds(11);
+    private Duration stop = Duration.ofSeconds(11);
+    private Duration stopRace = Duration.ofSeconds(2);
+    private Duration status = Duration.ofSeconds(11);
+    private Duration info = Duration.ofSeconds(11);
+}
@@ -0,0 +1,22 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.history.journal")
+public class HistoryJournalProperties {
+    // Off by default so the service keeps history in memory only
+    private boolean enabled = false;
+    private Path directory = Path.of("data", "history");
+    // Each segment is one memory-mapped file of 64-byte records, 4 MB holds 65,536 of them
+    private DataSize segmentSize = DataSize.ofMegabytes(4);
+    // Oldest segments beyond this are deleted
+    private int maxSegments = 16;
+    // How often appended records are forced to disk together
+    private Duration commitInterval = Duration.ofMillis(50);
+}
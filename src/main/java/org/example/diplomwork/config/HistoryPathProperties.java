@@ -0,0 +1,13 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.history.path")
+public class HistoryPathProperties {
+    // Tolerance of the finest simplified level in metres, each further level doubles it
+    private double baseTolerance = 0.01;
+    // 12 levels reach 0.01 * 2^11, about 20 m
+    private int levels = 12;
+}
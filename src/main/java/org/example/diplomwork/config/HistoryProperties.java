@@ -0,0 +1,19 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.history")
+public class HistoryProperties {
+    // Entries kept in memory, about 42 bytes each
+    private int capacity = 100_000;
+    private OverflowPolicy overflow = OverflowPolicy.OVERWRITE_OLDEST;
+
+    public enum OverflowPolicy {
+        // Keep the most recent entries, the oldest one is replaced
+        OVERWRITE_OLDEST,
+        // Keep the earliest entries, new ones are dropped and counted
+        REJECT_NEWEST
+    }
+}
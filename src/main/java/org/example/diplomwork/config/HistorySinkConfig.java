@@ -0,0 +1,15 @@
+package org.example.diplomwork.config;
+
+import org.example.diplomwork.util.history.HistorySink;
+import org.example.diplomwork.util.history.JdbcHistorySink;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HistorySinkConfig {
+
+    @Bean(destroyMethod = "close")
+    public HistorySink historySink(HistorySinkProperties properties) {
+        return properties.isEnabled() ? JdbcHistorySink.start(properties) : HistorySink.DISCARD;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.history.sink")
+public class HistorySinkProperties {
+    // Off by default; movements and command outcomes then only live in memory and the journal
+    private boolean enabled = false;
+    private String url = "jdbc:h2:file:./data/reporting";
+    private String username = "sa";
+    private String password = "";
+    // Rows waiting for the writer; beyond this new rows are dropped and counted
+    private int queueCapacity = 65_536;
+    // Rows per executeBatch; a full batch is written without waiting for the interval
+    private int batchSize = 500;
+    // Longest a queued row waits before it is written
+    private Duration flushInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,13 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.history.spatial")
+public class HistorySpatialProperties {
+    // Side of a grid cell in metres; about the size of the smallest region usually asked for
+    private double cellSize = 0.5;
+    // Positions kept in the index, the oldest are dropped beyond that
+    private int capacity = 1_000_000;
+}
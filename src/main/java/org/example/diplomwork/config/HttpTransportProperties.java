@@ -0,0 +1,20 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.http")
+public class HttpTransportProperties {
+    // ESP32 WebServer handles only a few sockets at once, keep the pool small
+    private int maxConnections = 4;
+    private Duration idleEviction = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    // Disable for firmware that cannot handle keep-alive: every request is sent with "Connection: close"
+    private boolean keepAlive = true;
+    // Run async device calls on virtual threads instead of a fixed worker pool; follows spring.threads.virtual.enabled
+    private boolean virtualThreads = false;
+}
@@ -0,0 +1,44 @@
+package org.example.diplomwork.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.mqtt")
+public class MqttTransportProperties {
+    private Mode mode = Mode.BLOCKING;
+    // Unacknowledged publishes allowed on the connection in PIPELINED mode
+    private int maxInFlight = 10;
+    // Publish policy per command name, commands without an entry use defaultPolicy
+    private Map<String, CommandPolicy> commands = new HashMap<>(Map.of(
+            "move", new CommandPolicy(0, false),
+            "stop", new CommandPolicy(1, false),
+            "status", new CommandPolicy(1, false),
+            "info", new CommandPolicy(1, false)
+    ));
+    private CommandPolicy defaultPolicy = new CommandPolicy(1, false);
+
+    public CommandPolicy policyFor(String command) {
+        return commands.getOrDefault(command, defaultPolicy);
+    }
+
+    public enum Mode {
+        // MqttClient, publish blocks until PUBACK
+        BLOCKING,
+        // MqttAsyncClient, publishes are pipelined up to maxInFlight
+        PIPELINED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CommandPolicy {
+        private int qos = 1;
+        private boolean retained = false;
+    }
+}
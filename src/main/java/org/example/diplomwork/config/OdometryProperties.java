@@ -0,0 +1,23 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.odometry")
+public class OdometryProperties {
+    private Mode mode = Mode.PER_REQUEST;
+    // Integration step of the FIXED_RATE engine, 10 ms is 100 Hz
+    private Duration tick = Duration.ofMillis(10);
+    // How often the engine broadcasts the pose while the platform is moving
+    private Duration publishInterval = Duration.ofMillis(100);
+
+    public enum Mode {
+        // Each acknowledged move advances the pose by the time since the previous one
+        PER_REQUEST,
+        // A background engine integrates the last commanded motion at a fixed rate
+        FIXED_RATE
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.connections")
+public class TransportConnectionProperties {
+    // How often every link is checked and reconnected if it dropped
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    // Upper bound of the exponential backoff between failed reconnect attempts
+    private Duration maxReconnectBackoff = Duration.ofSeconds(60);
+}
@@ -0,0 +1,13 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.lanes")
+public class TransportLaneProperties {
+    // Requests each lane may have in flight on one transport; lanes never borrow from each other
+    private int stopBudget = 1;
+    private int moveBudget = 2;
+    private int pollBudget = 1;
+}
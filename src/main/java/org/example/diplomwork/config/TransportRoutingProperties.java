@@ -0,0 +1,19 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.routing")
+public class TransportRoutingProperties {
+    // Weight of the newest sample in the latency and success averages
+    private double ewmaAlpha = 0.2;
+    // Consecutive failures that take a link out of AUTO rotation
+    private int failureThreshold = 5;
+    // How long a tripped link stays out before a probe command is sent over it
+    private Duration openDuration = Duration.ofSeconds(10);
+    // Every n-th AUTO command goes to the least recently measured link to keep its average fresh
+    private int exploreEvery = 20;
+}
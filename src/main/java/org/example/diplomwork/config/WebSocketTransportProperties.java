@@ -0,0 +1,11 @@
+package org.example.diplomwork.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "platform.transport.websocket")
+public class WebSocketTransportProperties {
+    // Offer the binary subprotocol on connect, JSON text frames stay the fallback
+    private boolean binaryFrames = false;
+}
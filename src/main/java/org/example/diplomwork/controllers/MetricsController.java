@@ -0,0 +1,140 @@
+package org.example.diplomwork.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.diplomwork.dto.metrics.CorrelationMetricsDto;
+import org.example.diplomwork.dto.metrics.HistoryMetricsDto;
+import org.example.diplomwork.dto.metrics.HistorySinkMetricsDto;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
+import org.example.diplomwork.dto.metrics.LinkStatusDto;
+import org.example.diplomwork.dto.metrics.MqttMetricsDto;
+import org.example.diplomwork.dto.metrics.SequencerMetricsDto;
+import org.example.diplomwork.service.impl.HttpCommunicationService;
+import org.example.diplomwork.service.impl.MqttCommunicationService;
+import org.example.diplomwork.service.impl.PlatformService;
+import org.example.diplomwork.service.impl.TransportConnectionManager;
+import org.example.diplomwork.service.impl.WebSocketCommunicationService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/v1/metrics")
+@Tag(name = "Metrics Controller", description = "API for transport and platform metrics")
+public class MetricsController {
+    private final HttpCommunicationService httpService;
+    private final WebSocketCommunicationService webSocketService;
+    private final MqttCommunicationService mqttService;
+    private final TransportConnectionManager connectionManager;
+    private final PlatformService platformService;
+
+    public MetricsController(HttpCommunicationService httpService,
+                             WebSocketCommunicationService webSocketService,
+                             MqttCommunicationService mqttService,
+                             TransportConnectionManager connectionManager,
+                             PlatformService platformService) {
+        this.httpService = httpService;
+        this.webSocketService = webSocketService;
+        this.mqttService = mqttService;
+        this.connectionManager = connectionManager;
+        this.platformService = platformService;
+    }
+
+    @GetMapping("/correlation")
+    @Operation(
+            summary = "Get request correlation metrics",
+            description = "Returns pending, timed out, late and orphaned response counters per transport"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public List<CorrelationMetricsDto> getCorrelationMetrics() {
+        return List.of(
+                webSocketService.getCorrelationMetrics(),
+                mqttService.getCorrelationMetrics()
+        );
+    }
+
+    @GetMapping("/mqtt")
+    @Operation(
+            summary = "Get MQTT publish metrics",
+            description = "Returns the MQTT transport mode and the state of its in-flight publish window"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public MqttMetricsDto getMqttMetrics() {
+        return mqttService.getMqttMetrics();
+    }
+
+    @GetMapping("/connections")
+    @Operation(
+            summary = "Get transport link status",
+            description = "Returns connection state, selection and reconnect counters for every transport link"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public List<LinkStatusDto> getConnections() {
+        return connectionManager.getLinkStatus();
+    }
+
+    @GetMapping("/sequencer")
+    @Operation(
+            summary = "Get command pipeline metrics",
+            description = "Returns queue depth, high-water mark, rejections and wait times of the platform command sequencer"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public SequencerMetricsDto getSequencerMetrics() {
+        return platformService.getSequencerMetrics();
+    }
+
+    @GetMapping("/lanes")
+    @Operation(
+            summary = "Get priority lane metrics",
+            description = "Returns in-flight budget, queue length, queue wait and latency of the stop, move and poll lanes per transport"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public List<LaneMetricsDto> getLaneMetrics() {
+        return Stream.of(
+                        httpService.getLaneMetrics(),
+                        webSocketService.getLaneMetrics(),
+                        mqttService.getLaneMetrics()
+                )
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    @GetMapping("/history")
+    @Operation(
+            summary = "Get movement history buffer metrics",
+            description = "Returns capacity, fill level, overflow policy and overwritten or rejected entry counters of the movement history"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public HistoryMetricsDto getHistoryMetrics() {
+        return platformService.getHistoryMetrics();
+    }
+
+    @GetMapping("/history-sink")
+    @Operation(
+            summary = "Get history sink metrics",
+            description = "Returns queue depth, high-water mark, written, dropped and failed row counters and batch write times of the reporting sink"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    })
+    public HistorySinkMetricsDto getHistorySinkMetrics() {
+        return platformService.getHistorySinkMetrics();
+    }
+}
@@ -6,26 +6,64 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.example.diplomwork.config.EndpointTimeoutProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.history.HistoryPageDto;
+import org.example.diplomwork.dto.history.HistoryPathDto;
+import org.example.diplomwork.dto.history.NearestPositionDto;
+import org.example.diplomwork.dto.history.RegionVisitsDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.dto.platform.PlatformResponseDto;
+import org.example.diplomwork.dto.platform.StopRaceResponseDto;
 import org.example.diplomwork.dto.position.PositionResponseDto;
 import org.example.diplomwork.entities.MovementHistory;
 import org.example.diplomwork.service.impl.PlatformService;
+import org.example.diplomwork.util.history.HistoryExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1")
 @Tag(name = "Platform Controller", description = "API for ESP32 platform control")
 public class PlatformController {
+    private static final int MAX_HISTORY_PAGE = 5000;
+    private static final int MAX_PATH_POINTS = 50_000;
+    private static final int MAX_VISIT_POINTS = 50_000;
+    private static final int MAX_NEAREST = 100;
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+
     private final PlatformService platformService;
+    private final EndpointTimeoutProperties timeouts;
 
     public PlatformController(PlatformService platformService) {
+        this(platformService, new EndpointTimeoutProperties());
+    }
+
+    @Autowired
+    public PlatformController(PlatformService platformService, EndpointTimeoutProperties timeouts) {
         this.platformService = platformService;
+        this.timeouts = timeouts;
     }
 
     @PostMapping("/move")
@@ -36,13 +74,14 @@ public class PlatformController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Command executed successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Platform did not answer in time")
     })
-    public PlatformResponseDto movePlatform(
+    public CompletableFuture<PlatformResponseDto> movePlatform(
             @Parameter(description = "Platform movement parameters", required = true)
             @Valid @RequestBody MoveRequestDto moveRequest
     ) {
-        return platformService.movePlatform(moveRequest);
+        return withTimeout(platformService.movePlatformAsync(moveRequest), timeouts.getMove());
     }
 
     @GetMapping("/stop")
@@ -52,10 +91,25 @@ public class PlatformController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Platform stopped successfully"),
-            @ApiResponse(responseCode = "500", description = "Error stopping platform")
+            @ApiResponse(responseCode = "500", description = "Error stopping platform"),
+            @ApiResponse(responseCode = "504", description = "Platform did not answer in time")
     })
-    public PlatformResponseDto stopPlatform() {
-        return platformService.stopPlatform();
+    public CompletableFuture<PlatformResponseDto> stopPlatform() {
+        return withTimeout(platformService.stopPlatformAsync(), timeouts.getStop());
+    }
+
+    @GetMapping("/stop/race")
+    @Operation(
+            summary = "Emergency stop over all transports",
+            description = "Sends stop over every open transport at once and reports which one acknowledged first"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Platform stopped successfully"),
+            @ApiResponse(responseCode = "500", description = "No transport acknowledged the stop"),
+            @ApiResponse(responseCode = "504", description = "Platform did not answer in time")
+    })
+    public CompletableFuture<StopRaceResponseDto> stopPlatformRace() {
+        return withTimeout(platformService.stopPlatformRace(), timeouts.getStopRace());
     }
 
     @GetMapping("/position")
@@ -84,6 +138,210 @@ public class PlatformController {
         return platformService.getMovementHistory();
     }
 
+    @GetMapping("/history/page")
+    @Operation(
+            summary = "Get movement history page",
+            description = "Returns up to limit movements within the optional [from, to] timestamp range, oldest first. "
+                    + "Pass nextCursor back as cursor to continue or to fetch only movements recorded since"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "History page retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+    })
+    public HistoryPageDto getMovementHistoryPage(
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of entries, at most " + MAX_HISTORY_PAGE, example = "500")
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        try {
+            return platformService.getMovementHistoryPage(from, to, cursor, Math.min(limit, MAX_HISTORY_PAGE));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/history/path")
+    @Operation(
+            summary = "Get simplified movement path",
+            description = "Returns the path within the optional [from, to] timestamp range, simplified so no recorded "
+                    + "position is further than tolerance metres from it and limited to maxPoints points"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Path retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid tolerance or maxPoints")
+    })
+    public HistoryPathDto getMovementPath(
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to,
+            @Parameter(description = "Largest allowed distance from a recorded position in metres; finest level if absent",
+                    example = "0.05")
+            @RequestParam(required = false) Double tolerance,
+            @Parameter(description = "Maximum number of points, at most " + MAX_PATH_POINTS, example = "2000")
+            @RequestParam(defaultValue = "2000") int maxPoints
+    ) {
+        if (tolerance != null && !(tolerance >= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "tolerance must not be negative");
+        }
+        if (maxPoints < 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxPoints must be at least 2");
+        }
+        return platformService.getMovementPath(from, to, tolerance, Math.min(maxPoints, MAX_PATH_POINTS));
+    }
+
+    @GetMapping("/history/region")
+    @Operation(
+            summary = "Get visits to a rectangle",
+            description = "Returns the recorded positions inside the rectangle within the optional [from, to] "
+                    + "timestamp range, earliest first, and the intervals the platform stayed inside it"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Visits retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid rectangle or limit")
+    })
+    public RegionVisitsDto getVisitsInRectangle(
+            @Parameter(description = "Left edge in metres", example = "-1.0") @RequestParam double minX,
+            @Parameter(description = "Bottom edge in metres", example = "-1.0") @RequestParam double minY,
+            @Parameter(description = "Right edge in metres", example = "1.0") @RequestParam double maxX,
+            @Parameter(description = "Top edge in metres", example = "1.0") @RequestParam double maxY,
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to,
+            @Parameter(description = "Maximum number of positions and intervals, at most " + MAX_VISIT_POINTS,
+                    example = "1000")
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        if (!Double.isFinite(minX) || !Double.isFinite(minY) || !Double.isFinite(maxX) || !Double.isFinite(maxY)
+                || minX > maxX || minY > maxY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rectangle needs finite minX <= maxX and minY <= maxY");
+        }
+        return platformService.getVisitsInRectangle(minX, minY, maxX, maxY, from, to, visitLimit(limit));
+    }
+
+    @GetMapping("/history/radius")
+    @Operation(
+            summary = "Get visits near a point",
+            description = "Returns the recorded positions within radius metres of (x, y) within the optional "
+                    + "[from, to] timestamp range, earliest first, and the intervals the platform stayed within it"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Visits retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid point, radius or limit")
+    })
+    public RegionVisitsDto getVisitsInRadius(
+            @Parameter(description = "X coordinate in metres", example = "0.0") @RequestParam double x,
+            @Parameter(description = "Y coordinate in metres", example = "0.0") @RequestParam double y,
+            @Parameter(description = "Radius in metres", example = "0.5") @RequestParam double radius,
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to,
+            @Parameter(description = "Maximum number of positions and intervals, at most " + MAX_VISIT_POINTS,
+                    example = "1000")
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        if (!Double.isFinite(x) || !Double.isFinite(y) || !(radius >= 0) || Double.isInfinite(radius)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Point must be finite and radius must not be negative");
+        }
+        return platformService.getVisitsInRadius(x, y, radius, from, to, visitLimit(limit));
+    }
+
+    @GetMapping("/history/nearest")
+    @Operation(
+            summary = "Get nearest recorded positions",
+            description = "Returns up to count recorded positions closest to (x, y) within the optional [from, to] "
+                    + "timestamp range, nearest first"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Positions retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid point or count")
+    })
+    public List<NearestPositionDto> getNearestPositions(
+            @Parameter(description = "X coordinate in metres", example = "0.0") @RequestParam double x,
+            @Parameter(description = "Y coordinate in metres", example = "0.0") @RequestParam double y,
+            @Parameter(description = "Number of positions, 1 to " + MAX_NEAREST, example = "1")
+            @RequestParam(defaultValue = "1") int count,
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to
+    ) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Point must be finite");
+        }
+        if (count < 1 || count > MAX_NEAREST) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be between 1 and " + MAX_NEAREST);
+        }
+        return platformService.getNearestPositions(x, y, count, from, to);
+    }
+
+    private static int visitLimit(int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        return Math.min(limit, MAX_VISIT_POINTS);
+    }
+
+    @GetMapping("/history/export")
+    @Operation(
+            summary = "Export movement history",
+            description = "Streams all movements within the optional [from, to] timestamp range as NDJSON or CSV, "
+                    + "oldest first, flushing every " + HistoryExporter.CHUNK_SIZE + " rows"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "History export started"),
+            @ApiResponse(responseCode = "400", description = "Unsupported format")
+    })
+    public ResponseEntity<StreamingResponseBody> exportMovementHistory(
+            @Parameter(description = "ndjson or csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Compress the response with gzip")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(description = "Earliest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long from,
+            @Parameter(description = "Latest timestamp in epoch milliseconds, inclusive")
+            @RequestParam(required = false) Long to
+    ) {
+        HistoryExporter.Format exportFormat;
+        try {
+            exportFormat = HistoryExporter.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        StreamingResponseBody body = out -> {
+            // Sync-flushing gzip so every flushed chunk reaches the client
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE, true) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            platformService.exportMovementHistory(from, to, exportFormat, writer);
+            writer.flush();
+            if (target instanceof GZIPOutputStream compressed) {
+                // Writes the trailer; the servlet container owns and closes the response stream
+                compressed.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("movement-history." + exportFormat.extension() + (gzip ? ".gz" : ""))
+                        .build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @PostMapping("/reset")
     @Operation(
             summary = "Reset position",
@@ -105,10 +363,11 @@ public class PlatformController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Status retrieved successfully"),
             @ApiResponse(responseCode = "503", description = "ESP32 unavailable"),
-            @ApiResponse(responseCode = "500", description = "Error retrieving status")
+            @ApiResponse(responseCode = "500", description = "Error retrieving status"),
+            @ApiResponse(responseCode = "504", description = "ESP32 did not answer in time")
     })
-    public ESP32StatusResponseDto getESP32Status() {
-        return platformService.getESP32Status();
+    public CompletableFuture<ESP32StatusResponseDto> getESP32Status() {
+        return withTimeout(platformService.getESP32StatusAsync(), timeouts.getStatus());
     }
 
     @GetMapping("/esp32/info")
@@ -119,10 +378,11 @@ public class PlatformController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Information retrieved successfully"),
             @ApiResponse(responseCode = "503", description = "ESP32 unavailable"),
-            @ApiResponse(responseCode = "500", description = "Error retrieving information")
+            @ApiResponse(responseCode = "500", description = "Error retrieving information"),
+            @ApiResponse(responseCode = "504", description = "ESP32 did not answer in time")
     })
-    public ESP32InfoResponseDto getESP32Info() {
-        return platformService.getESP32Info();
+    public CompletableFuture<ESP32InfoResponseDto> getESP32Info() {
+        return withTimeout(platformService.getESP32InfoAsync(), timeouts.getInfo());
     }
 
     @PatchMapping("/radius/update")
@@ -142,4 +402,19 @@ public class PlatformController {
         platformService.setWheelRadius(radius);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<ProblemDetail> handleTimeout(TimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.GATEWAY_TIMEOUT, "Platform did not answer in time"));
+    }
+
+    /**
+     * Device endpoints return before the platform answers, so a slow ESP32 never holds a
+     * request thread. The timeout only ends the wait of this response: the service future is
+     * copied, and the command itself still runs, which matters for stop.
+     */
+    private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> command, Duration timeout) {
+        return command.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.diplomwork.dto.history;
+
+import org.example.diplomwork.entities.MovementHistory;
+
+import java.util.List;
+
+public record HistoryPageDto(
+        List<MovementHistory> entries,
+        String nextCursor,
+        boolean hasMore
+) {}
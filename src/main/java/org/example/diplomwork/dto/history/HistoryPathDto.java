@@ -0,0 +1,12 @@
+package org.example.diplomwork.dto.history;
+
+/**
+ * Simplified path as parallel arrays, point i is (x[i], y[i]) reached at timestamps[i].
+ */
+public record HistoryPathDto(
+        double tolerance,
+        int size,
+        long[] timestamps,
+        double[] x,
+        double[] y
+) {}
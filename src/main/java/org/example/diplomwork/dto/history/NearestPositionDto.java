@@ -0,0 +1,8 @@
+package org.example.diplomwork.dto.history;
+
+public record NearestPositionDto(
+        long timestamp,
+        double x,
+        double y,
+        double distance
+) {}
@@ -0,0 +1,17 @@
+package org.example.diplomwork.dto.history;
+
+import java.util.List;
+
+/**
+ * Recorded positions inside a region, earliest first, as parallel arrays like
+ * {@link HistoryPathDto}. {@code matched} counts every position found, the arrays and
+ * {@code intervals} stop at the requested limit.
+ */
+public record RegionVisitsDto(
+        int matched,
+        boolean truncated,
+        List<VisitIntervalDto> intervals,
+        long[] timestamps,
+        double[] x,
+        double[] y
+) {}
@@ -0,0 +1,11 @@
+package org.example.diplomwork.dto.history;
+
+/**
+ * One uninterrupted stay in a region: consecutive recorded positions from {@code from} to
+ * {@code to} that were all inside it.
+ */
+public record VisitIntervalDto(
+        long from,
+        long to,
+        int points
+) {}
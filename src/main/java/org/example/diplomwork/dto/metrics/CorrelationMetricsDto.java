@@ -0,0 +1,12 @@
+package org.example.diplomwork.dto.metrics;
+
+public record CorrelationMetricsDto(
+        String transport,
+        int pending,
+        long completed,
+        long timedOut,
+        long late,
+        long orphaned,
+        long rejected,
+        long failed
+) {}
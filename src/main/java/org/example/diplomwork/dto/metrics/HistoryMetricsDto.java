@@ -0,0 +1,11 @@
+package org.example.diplomwork.dto.metrics;
+
+public record HistoryMetricsDto(
+        int capacity,
+        int size,
+        String overflow,
+        long appended,
+        long overwritten,
+        long rejected,
+        int directions
+) {}
@@ -0,0 +1,14 @@
+package org.example.diplomwork.dto.metrics;
+
+public record HistorySinkMetricsDto(
+        String sink,
+        int depth,
+        int capacity,
+        int highWater,
+        long enqueued,
+        long written,
+        long dropped,
+        long failed,
+        long batches,
+        LatencyMetricsDto batchWrite
+) {}
@@ -0,0 +1,11 @@
+package org.example.diplomwork.dto.metrics;
+
+public record LaneMetricsDto(
+        String transport,
+        String lane,
+        int budget,
+        int inFlight,
+        int queued,
+        LatencyMetricsDto queueWait,
+        LatencyMetricsDto latency
+) {}
@@ -0,0 +1,8 @@
+package org.example.diplomwork.dto.metrics;
+
+public record LatencyMetricsDto(
+        String name,
+        long count,
+        double averageMillis,
+        double maxMillis
+) {}
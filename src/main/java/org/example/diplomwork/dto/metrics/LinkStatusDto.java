@@ -0,0 +1,12 @@
+package org.example.diplomwork.dto.metrics;
+
+public record LinkStatusDto(
+        String protocol,
+        boolean connected,
+        boolean selected,
+        int consecutiveFailures,
+        long connects,
+        double latencyMillis,
+        double successRate,
+        String circuit
+) {}
@@ -0,0 +1,11 @@
+package org.example.diplomwork.dto.metrics;
+
+import java.util.List;
+
+public record MqttMetricsDto(
+        String mode,
+        int maxInFlight,
+        int inFlight,
+        int queued,
+        List<LatencyMetricsDto> latencyByQos
+) {}
@@ -0,0 +1,16 @@
+package org.example.diplomwork.dto.metrics;
+
+public record SequencerMetricsDto(
+        String name,
+        int depth,
+        int capacity,
+        int highWater,
+        long submitted,
+        long completed,
+        long rejected,
+        long coalesced,
+        long dropped,
+        long urgent,
+        LatencyMetricsDto queueWait,
+        LatencyMetricsDto service
+) {}
@@ -0,0 +1,19 @@
+package org.example.diplomwork.dto.platform;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopRaceResponseDto {
+    private PlatformResponseDto platform;
+    // Transport whose "ok" acknowledgement arrived first
+    private String winner;
+    private Double latencyMillis;
+    // Transports the stop was sent over
+    private List<String> transports;
+}
@@ -3,5 +3,7 @@ package org.example.diplomwork.entities;
 public enum CommunicationProtocol {
     HTTP,
     WEBSOCKET,
-    MQTT
+    MQTT,
+    // Routed per command to the link with the best recent latency and success rate
+    AUTO
 }
@@ -0,0 +1,25 @@
+package org.example.diplomwork.entities;
+
+/**
+ * Immutable snapshot of the platform pose and odometry. A new instance is published for every
+ * update, so a reader always sees position, angle and distance from the same move.
+ */
+public record PlatformState(
+        double x,
+        double y,
+        double angle,
+        double totalDistance,
+        long lastMovementTime
+) {
+    public static PlatformState origin(long now) {
+        return new PlatformState(0, 0, 0, 0, now);
+    }
+
+    public PlatformState withAngle(double newAngle) {
+        return new PlatformState(x, y, newAngle, totalDistance, lastMovementTime);
+    }
+
+    public Position position() {
+        return new Position(x, y);
+    }
+}
@@ -1,26 +1,24 @@
 package org.example.diplomwork.entities;
 
 public class Position {
-    private Double x;
-    private Double y;
+    private double x;
+    private double y;
 
     public Position() {
-        this.x = 0.;
-        this.y = 0.;
     }
 
-    public Position(Double x, Double y) {
+    public Position(double x, double y) {
         this.x = x;
         this.y = y;
     }
 
-    public Double getX() { return x; }
+    public double getX() { return x; }
 
-    public Double getY() { return y; }
+    public double getY() { return y; }
 
-    public void setX(Double x) { this.x = x; }
+    public void setX(double x) { this.x = x; }
 
-    public void setY(Double y) { this.y = y; }
+    public void setY(double y) { this.y = y; }
 
     @Override
     public String toString() {
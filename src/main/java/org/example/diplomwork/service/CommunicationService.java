@@ -5,11 +5,17 @@ import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface CommunicationService {
     ESP32ResponseDto sendMoveCommand(MoveRequestDto moveRequest);
     ESP32ResponseDto sendStopCommand();
     ESP32StatusResponseDto getStatus();
     ESP32InfoResponseDto getInfo();
+    CompletableFuture<ESP32ResponseDto> sendMoveCommandAsync(MoveRequestDto moveRequest);
+    CompletableFuture<ESP32ResponseDto> sendStopCommandAsync();
+    CompletableFuture<ESP32StatusResponseDto> getStatusAsync();
+    CompletableFuture<ESP32InfoResponseDto> getInfoAsync();
     void connect();
     void disconnect();
     boolean isConnected();
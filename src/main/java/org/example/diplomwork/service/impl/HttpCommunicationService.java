@@ -2,28 +2,127 @@ package org.example.diplomwork.service.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.example.diplomwork.config.HttpTransportProperties;
+import org.example.diplomwork.config.TransportLaneProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.service.CommunicationService;
+import org.example.diplomwork.util.dispatch.PriorityLanes;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+@Slf4j
 @Service
 public class HttpCommunicationService implements CommunicationService {
     private String esp32Url = "http://192.168.0.70";
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService requestExecutor;
+    private final PriorityLanes lanes;
 
     public HttpCommunicationService() {
-        this.restTemplate = new RestTemplate();
+        this(new HttpTransportProperties());
+    }
+
+    public HttpCommunicationService(HttpTransportProperties properties) {
+        this(properties, new TransportLaneProperties());
+    }
+
+    @Autowired
+    public HttpCommunicationService(HttpTransportProperties properties, TransportLaneProperties laneProperties) {
+        this.connectionManager = createConnectionManager(properties);
+        this.httpClient = createHttpClient(properties, connectionManager);
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
         this.objectMapper = new ObjectMapper();
+        this.requestExecutor = createRequestExecutor(properties);
+        // Lane budgets are what keeps a stop from queueing behind polls for a worker or a connection
+        this.lanes = new PriorityLanes("http", laneProperties);
+        int laneBudget = laneProperties.getStopBudget() + laneProperties.getMoveBudget() + laneProperties.getPollBudget();
+        if (laneBudget > properties.getMaxConnections()) {
+            log.warn("HTTP lane budgets ({}) exceed maxConnections ({}), lanes will contend for workers",
+                    laneBudget, properties.getMaxConnections());
+        }
+
+        if (!properties.isKeepAlive()) {
+            restTemplate.getInterceptors().add((request, body, execution) -> {
+                request.getHeaders().set(HttpHeaders.CONNECTION, "close");
+                return execution.execute(request, body);
+            });
+        }
+
+        log.info("HTTP transport initialized: maxConnections={}, keepAlive={}, virtualThreads={}",
+                properties.getMaxConnections(), properties.isKeepAlive(), properties.isVirtualThreads());
+    }
+
+    private static ExecutorService createRequestExecutor(HttpTransportProperties properties) {
+        if (properties.isVirtualThreads()) {
+            // Concurrency is already bounded by the lane budgets and the connection pool
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("esp32-http-", 0).factory());
+        }
+        // RestTemplate is blocking, one worker per pooled connection keeps async callers off the servlet threads
+        return Executors.newFixedThreadPool(properties.getMaxConnections(),
+                Thread.ofPlatform().name("esp32-http-", 0).daemon().factory());
+    }
+
+    private static PoolingHttpClientConnectionManager createConnectionManager(HttpTransportProperties properties) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                .build();
+
+        // All requests go to a single ESP32, so the per-route limit is the pool size
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnections())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+
+    private static CloseableHttpClient createHttpClient(HttpTransportProperties properties,
+                                                        PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEviction()));
+
+        if (!properties.isKeepAlive()) {
+            builder.setConnectionReuseStrategy((request, response, context) -> false);
+        }
+
+        return builder.build();
     }
 
     @Override
@@ -58,7 +157,7 @@ public class HttpCommunicationService implements CommunicationService {
             return response.getBody();
 
         } catch (Exception e) {
-            System.err.println("Error sending HTTP request to ESP32: " + e.getMessage());
+            log.error("Error sending HTTP request to ESP32: {}", e.getMessage());
             throw new RuntimeException("Failed to communicate with platform via HTTP: " + e.getMessage(), e);
         }
     }
@@ -106,6 +205,30 @@ public class HttpCommunicationService implements CommunicationService {
         }
     }
 
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendMoveCommandAsync(MoveRequestDto moveRequest) {
+        return lanes.submit(PriorityLanes.Lane.MOVE,
+                () -> CompletableFuture.supplyAsync(() -> sendMoveCommand(moveRequest), requestExecutor));
+    }
+
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendStopCommandAsync() {
+        return lanes.submit(PriorityLanes.Lane.STOP,
+                () -> CompletableFuture.supplyAsync(this::sendStopCommand, requestExecutor));
+    }
+
+    @Override
+    public CompletableFuture<ESP32StatusResponseDto> getStatusAsync() {
+        return lanes.submit(PriorityLanes.Lane.POLL,
+                () -> CompletableFuture.supplyAsync(this::getStatus, requestExecutor));
+    }
+
+    @Override
+    public CompletableFuture<ESP32InfoResponseDto> getInfoAsync() {
+        return lanes.submit(PriorityLanes.Lane.POLL,
+                () -> CompletableFuture.supplyAsync(this::getInfo, requestExecutor));
+    }
+
     @Override
     public void connect() {
         // HTTP doesn't need persistent connection
@@ -113,7 +236,8 @@ public class HttpCommunicationService implements CommunicationService {
 
     @Override
     public void disconnect() {
-        // HTTP doesn't need disconnect
+        // Pooled connections stay usable, only drop the idle sockets
+        connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
     }
 
     @Override
@@ -121,4 +245,18 @@ public class HttpCommunicationService implements CommunicationService {
         // HTTP is always "connected"
         return true;
     }
+
+    public List<LaneMetricsDto> getLaneMetrics() {
+        return lanes.metrics();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        requestExecutor.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (Exception e) {
+            log.warn("Error closing HTTP client: {}", e.getMessage());
+        }
+    }
 }
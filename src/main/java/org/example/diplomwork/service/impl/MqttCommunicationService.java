@@ -1,257 +1,522 @@
 package org.example.diplomwork.service.impl;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.example.diplomwork.config.MqttTransportProperties;
+import org.example.diplomwork.config.TransportLaneProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.metrics.CorrelationMetricsDto;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
+import org.example.diplomwork.dto.metrics.MqttMetricsDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.service.CommunicationService;
+import org.example.diplomwork.util.correlation.PendingRequestRegistry;
+import org.example.diplomwork.util.dispatch.PriorityLanes;
+import org.example.diplomwork.util.json.JsonIdScanner;
+import org.example.diplomwork.util.metrics.LatencyRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class MqttCommunicationService implements CommunicationService {
+    private static final int MAX_PENDING_REQUESTS = 1024;
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int MAX_QOS = 2;
+    private static final int MIN_STOP_QOS = 1;
+
     private String mqttBroker = "tcp://broker.mqtt.cool:1883";
     private String clientId = "spring-platform-controller";
     private String commandTopic = "esp32/command";
     private String responseTopic = "esp32/response";
     private int connectionTimeout = 10;
     private int keepAlive = 20;
-    private boolean autoReconnect = true;
+    // TransportConnectionManager reconnects with backoff; Paho's own reconnect would come back
+    // on a clean session without the response subscription
+    private boolean autoReconnect = false;
 
     private final ObjectMapper objectMapper;
-    private MqttClient mqttClient;
-    private final ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests;
-    private final AtomicLong messageIdCounter;
-    private volatile boolean connected = false;
+    private final MqttTransportProperties properties;
+    private final PriorityLanes lanes;
+    // Responses complete on the client's callback thread, where a blocking publish of the next
+    // command would wait for an acknowledgement that thread has to deliver
+    private final ExecutorService laneExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mqtt-lanes-", 0).factory());
+    private volatile MqttClient mqttClient;
+    private volatile MqttAsyncClient mqttAsyncClient;
+    private final PendingRequestRegistry<String> pendingRequests;
+    private final Queue<OutgoingMessage> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyRecorder[] latencyByQos = new LatencyRecorder[MAX_QOS + 1];
 
     public MqttCommunicationService() {
+        this(new MqttTransportProperties());
+    }
+
+    public MqttCommunicationService(MqttTransportProperties properties) {
+        this(properties, new TransportLaneProperties());
+    }
+
+    @Autowired
+    public MqttCommunicationService(MqttTransportProperties properties, TransportLaneProperties laneProperties) {
+        this.properties = properties;
+        this.lanes = new PriorityLanes("mqtt", laneProperties, laneExecutor);
         this.objectMapper = new ObjectMapper();
-        this.pendingRequests = new ConcurrentHashMap<>();
-        this.messageIdCounter = new AtomicLong();
+        // Responses echo the correlation id, which is not part of the DTOs
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.pendingRequests = new PendingRequestRegistry<>("mqtt", MAX_PENDING_REQUESTS, RESPONSE_TIMEOUT);
+        for (int qos = 0; qos <= MAX_QOS; qos++) {
+            latencyByQos[qos] = new LatencyRecorder("qos" + qos);
+        }
+        validatePolicies();
+    }
+
+    private void validatePolicies() {
+        properties.getCommands().forEach(this::validateQos);
+        validateQos("default", properties.getDefaultPolicy());
+        if (properties.policyFor("stop").getQos() < MIN_STOP_QOS) {
+            throw new IllegalArgumentException("MQTT stop command requires QoS " + MIN_STOP_QOS + " or higher");
+        }
+    }
+
+    private void validateQos(String command, MqttTransportProperties.CommandPolicy policy) {
+        if (policy.getQos() < 0 || policy.getQos() > MAX_QOS) {
+            throw new IllegalArgumentException("Invalid MQTT QoS " + policy.getQos() + " for command: " + command);
+        }
     }
 
     @Override
     public ESP32ResponseDto sendMoveCommand(MoveRequestDto moveRequest) {
         try {
-            Map<String, Object> command = new HashMap<>();
-            command.put("command", "move");
-            command.put("direction", moveRequest.direction());
-            command.put("speed", moveRequest.speed());
-            if (moveRequest.angle() != null) {
-                command.put("angle", moveRequest.angle());
-            }
-
-            String response = sendAndWaitForResponse(command);
+            String response = sendAndWaitForResponse(createMoveCommand(moveRequest));
             return objectMapper.readValue(response, ESP32ResponseDto.class);
 
         } catch (Exception e) {
             log.error("Failed to send move command", e);
-            ESP32ResponseDto errorResponse = new ESP32ResponseDto();
-            errorResponse.setStatus("error");
-            errorResponse.setMessage("MQTT error: " + e.getMessage());
-            return errorResponse;
+            return createErrorResponse(e);
         }
     }
 
     @Override
     public ESP32ResponseDto sendStopCommand() {
         try {
-            Map<String, Object> command = new HashMap<>();
-            command.put("command", "stop");
-
-            String response = sendAndWaitForResponse(command);
+            String response = sendAndWaitForResponse(createCommand("stop"));
             return objectMapper.readValue(response, ESP32ResponseDto.class);
 
         } catch (Exception e) {
             log.error("Failed to send stop command", e);
-            ESP32ResponseDto errorResponse = new ESP32ResponseDto();
-            errorResponse.setStatus("error");
-            errorResponse.setMessage("MQTT error: " + e.getMessage());
-            return errorResponse;
+            return createErrorResponse(e);
         }
     }
 
     @Override
     public ESP32StatusResponseDto getStatus() {
         try {
-            Map<String, Object> command = new HashMap<>();
-            command.put("command", "status");
-
-            String response = sendAndWaitForResponse(command);
+            String response = sendAndWaitForResponse(createCommand("status"));
             return objectMapper.readValue(response, ESP32StatusResponseDto.class);
 
         } catch (Exception e) {
             log.error("Failed to get status", e);
-            ESP32StatusResponseDto errorResponse = new ESP32StatusResponseDto();
-            errorResponse.setStatus("error");
-            return errorResponse;
+            return createStatusErrorResponse();
         }
     }
 
     @Override
     public ESP32InfoResponseDto getInfo() {
         try {
-            Map<String, Object> command = new HashMap<>();
-            command.put("command", "info");
-
-            String response = sendAndWaitForResponse(command);
+            String response = sendAndWaitForResponse(createCommand("info"));
             return objectMapper.readValue(response, ESP32InfoResponseDto.class);
 
         } catch (Exception e) {
             log.error("Failed to get info", e);
-            ESP32InfoResponseDto errorResponse = new ESP32InfoResponseDto();
-            errorResponse.setStatus("error");
-            return errorResponse;
+            return createInfoErrorResponse();
         }
     }
 
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendMoveCommandAsync(MoveRequestDto moveRequest) {
+        return sendAsync(createMoveCommand(moveRequest))
+                .thenApply(response -> readResponse(response, ESP32ResponseDto.class))
+                .exceptionally(e -> {
+                    log.error("Failed to send move command", e);
+                    return createErrorResponse(unwrap(e));
+                });
+    }
+
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendStopCommandAsync() {
+        return sendAsync(createCommand("stop"))
+                .thenApply(response -> readResponse(response, ESP32ResponseDto.class))
+                .exceptionally(e -> {
+                    log.error("Failed to send stop command", e);
+                    return createErrorResponse(unwrap(e));
+                });
+    }
+
+    @Override
+    public CompletableFuture<ESP32StatusResponseDto> getStatusAsync() {
+        return sendAsync(createCommand("status"))
+                .thenApply(response -> readResponse(response, ESP32StatusResponseDto.class))
+                .exceptionally(e -> {
+                    log.error("Failed to get status", e);
+                    return createStatusErrorResponse();
+                });
+    }
+
+    @Override
+    public CompletableFuture<ESP32InfoResponseDto> getInfoAsync() {
+        return sendAsync(createCommand("info"))
+                .thenApply(response -> readResponse(response, ESP32InfoResponseDto.class))
+                .exceptionally(e -> {
+                    log.error("Failed to get info", e);
+                    return createInfoErrorResponse();
+                });
+    }
+
+    private Map<String, Object> createCommand(String name) {
+        Map<String, Object> command = new HashMap<>();
+        command.put("command", name);
+        return command;
+    }
+
+    private Map<String, Object> createMoveCommand(MoveRequestDto moveRequest) {
+        Map<String, Object> command = createCommand("move");
+        command.put("direction", moveRequest.direction());
+        command.put("speed", moveRequest.speed());
+        if (moveRequest.angle() != null) {
+            command.put("angle", moveRequest.angle());
+        }
+        return command;
+    }
+
+    private <T> T readResponse(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse MQTT response: " + e.getMessage(), e);
+        }
+    }
+
+    private ESP32ResponseDto createErrorResponse(Throwable e) {
+        ESP32ResponseDto errorResponse = new ESP32ResponseDto();
+        errorResponse.setStatus("error");
+        errorResponse.setMessage("MQTT error: " + e.getMessage());
+        return errorResponse;
+    }
+
+    private ESP32StatusResponseDto createStatusErrorResponse() {
+        ESP32StatusResponseDto errorResponse = new ESP32StatusResponseDto();
+        errorResponse.setStatus("error");
+        return errorResponse;
+    }
+
+    private ESP32InfoResponseDto createInfoErrorResponse() {
+        ESP32InfoResponseDto errorResponse = new ESP32InfoResponseDto();
+        errorResponse.setStatus("error");
+        return errorResponse;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
     @Override
     public void connect() {
-        if (connected && mqttClient != null && mqttClient.isConnected()) {
+        if (isConnected()) {
             log.info("MQTT already connected");
             return;
         }
 
+        // A client left from a lost connection would otherwise keep its session and subscription
+        closeClients();
+
         try {
             String uniqueClientId = clientId + "-" + UUID.randomUUID();
-            mqttClient = new MqttClient(mqttBroker, uniqueClientId, new MemoryPersistence());
-
-            MqttConnectOptions options = new MqttConnectOptions();
-            options.setCleanSession(true);
-            options.setAutomaticReconnect(autoReconnect);
-            options.setConnectionTimeout(connectionTimeout);
-            options.setKeepAliveInterval(keepAlive);
-
-            mqttClient.setCallback(new MqttCallback() {
-                @Override
-                public void connectionLost(Throwable cause) {
-                    log.error("MQTT connection lost", cause);
-                    connected = false;
-                }
+            MqttConnectOptions options = createConnectOptions();
 
-                @Override
-                public void messageArrived(String topic, MqttMessage message) throws Exception {
-                    handleIncomingMessage(new String(message.getPayload()));
-                }
+            log.info("Connecting to MQTT broker: {} ({} mode)", mqttBroker, properties.getMode());
 
-                @Override
-                public void deliveryComplete(IMqttDeliveryToken token) {
-                    log.debug("MQTT message delivered");
-                }
-            });
+            if (isPipelined()) {
+                mqttAsyncClient = new MqttAsyncClient(mqttBroker, uniqueClientId, new MemoryPersistence());
+                mqttAsyncClient.setCallback(createCallback());
+                mqttAsyncClient.connect(options).waitForCompletion(connectionTimeout * 1000L);
 
-            log.info("Connecting to MQTT broker: {}", mqttBroker);
-            mqttClient.connect(options);
+                // Subscribe to response topic
+                mqttAsyncClient.subscribe(responseTopic, 1).waitForCompletion(connectionTimeout * 1000L);
+            } else {
+                mqttClient = new MqttClient(mqttBroker, uniqueClientId, new MemoryPersistence());
+                mqttClient.setCallback(createCallback());
+                mqttClient.connect(options);
 
-            // Subscribe to response topic
-            mqttClient.subscribe(responseTopic, 1);
-            connected = true;
+                // Subscribe to response topic
+                mqttClient.subscribe(responseTopic, 1);
+            }
 
             log.info("Successfully connected to MQTT broker and subscribed to: {}", responseTopic);
 
         } catch (Exception e) {
-            connected = false;
+            closeClients();
             log.error("Failed to connect to MQTT broker", e);
             throw new RuntimeException("Failed to connect to MQTT broker: " + e.getMessage(), e);
         }
     }
 
+    private MqttConnectOptions createConnectOptions() {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(autoReconnect);
+        options.setConnectionTimeout(connectionTimeout);
+        options.setKeepAliveInterval(keepAlive);
+        options.setMaxInflight(properties.getMaxInFlight());
+        return options;
+    }
+
+    private MqttCallback createCallback() {
+        return new MqttCallback() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                log.error("MQTT connection lost", cause);
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) throws Exception {
+                handleIncomingMessage(new String(message.getPayload()));
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+                log.debug("MQTT message delivered");
+            }
+        };
+    }
+
     @Override
     public void disconnect() {
-        if (mqttClient != null && mqttClient.isConnected()) {
+        closeClients();
+        outbox.clear();
+        pendingRequests.failAll(new RuntimeException("MQTT disconnected"));
+    }
+
+    private void closeClients() {
+        MqttClient client = mqttClient;
+        if (client != null) {
+            mqttClient = null;
             try {
-                mqttClient.disconnect();
-                mqttClient.close();
-                log.info("Disconnected from MQTT broker");
+                if (client.isConnected()) {
+                    client.disconnect();
+                    log.info("Disconnected from MQTT broker");
+                }
             } catch (Exception e) {
                 log.error("Error disconnecting MQTT", e);
             }
+            try {
+                client.close();
+            } catch (Exception e) {
+                log.error("Error closing MQTT client", e);
+            }
+        }
+        MqttAsyncClient asyncClient = mqttAsyncClient;
+        if (asyncClient != null) {
+            mqttAsyncClient = null;
+            try {
+                if (asyncClient.isConnected()) {
+                    asyncClient.disconnect().waitForCompletion(connectionTimeout * 1000L);
+                    log.info("Disconnected from MQTT broker");
+                }
+            } catch (Exception e) {
+                log.error("Error disconnecting MQTT", e);
+            }
+            try {
+                asyncClient.close();
+            } catch (Exception e) {
+                log.error("Error closing MQTT client", e);
+            }
         }
-        connected = false;
-        // Clear pending requests
-        pendingRequests.forEach((id, future) ->
-                future.completeExceptionally(new RuntimeException("MQTT disconnected")));
-        pendingRequests.clear();
     }
 
     @Override
     public boolean isConnected() {
-        return connected && mqttClient != null && mqttClient.isConnected();
+        // Paho's own state, so a dropped connection shows up in the next health check
+        if (isPipelined()) {
+            MqttAsyncClient client = mqttAsyncClient;
+            return client != null && client.isConnected();
+        }
+        MqttClient client = mqttClient;
+        return client != null && client.isConnected();
     }
 
     public String sendAndWaitForResponse(Map<String, Object> command) throws Exception {
-        if (!isConnected()) {
-            connect();
+        try {
+            return sendAsync(command).join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
         }
+    }
 
-        String messageId = String.valueOf(messageIdCounter.incrementAndGet());
-        command.put("id", messageId);
+    /**
+     * Sends the command through its priority lane. The lane budget bounds requests awaiting a
+     * response; the pipelined in-flight window still bounds unacknowledged publishes.
+     */
+    public CompletableFuture<String> sendAsync(Map<String, Object> command) {
+        PriorityLanes.Lane lane = PriorityLanes.laneOf((String) command.get("command"));
+        return lanes.submit(lane, () -> dispatch(command));
+    }
 
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put(messageId, future);
+    private CompletableFuture<String> dispatch(Map<String, Object> command) {
+        long messageId = pendingRequests.nextId();
+        command.put("id", String.valueOf(messageId));
+        MqttTransportProperties.CommandPolicy policy = properties.policyFor((String) command.get("command"));
+        long startNanos = System.nanoTime();
 
-        try {
-            String message = objectMapper.writeValueAsString(command);
-            MqttMessage mqttMessage = new MqttMessage(message.getBytes());
-            mqttMessage.setQos(1);
-            mqttMessage.setRetained(false);
+        // Response timeout is enforced by the registry, the caller thread is not held
+        CompletableFuture<String> future = pendingRequests.register(messageId);
 
-            mqttClient.publish(commandTopic, mqttMessage);
-            log.debug("MQTT published to {} : {}", commandTopic, message);
+        if (!future.isDone()) {
+            try {
+                if (!isConnected()) {
+                    connect();
+                }
 
-            // Wait for response with timeout
-            return future.get(5, TimeUnit.SECONDS);
+                String message = objectMapper.writeValueAsString(command);
+                MqttMessage mqttMessage = new MqttMessage(message.getBytes());
+                mqttMessage.setQos(policy.getQos());
+                mqttMessage.setRetained(policy.isRetained());
 
-        } catch (Exception e) {
-            pendingRequests.remove(messageId);
-            throw new RuntimeException("MQTT command failed: " + e.getMessage(), e);
+                if (isPipelined()) {
+                    outbox.offer(new OutgoingMessage(messageId, mqttMessage));
+                    drainOutbox();
+                } else {
+                    mqttClient.publish(commandTopic, mqttMessage);
+                    log.debug("MQTT published to {} : {}", commandTopic, message);
+                }
+
+            } catch (Exception e) {
+                pendingRequests.fail(messageId, e);
+            }
         }
+
+        return future.handle((response, error) -> {
+            if (error == null) {
+                latencyByQos[policy.getQos()].recordSince(startNanos);
+                return response;
+            }
+            Throwable cause = unwrap(error);
+            throw new RuntimeException("MQTT command failed: " + cause.getMessage(), cause);
+        });
+    }
+
+    /**
+     * Publishes queued messages while the in-flight window has room. Called again from the
+     * delivery callbacks, so no thread waits for a PUBACK.
+     */
+    private void drainOutbox() {
+        while (!outbox.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= properties.getMaxInFlight()) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            OutgoingMessage next = outbox.poll();
+            if (next == null || !pendingRequests.isPending(next.id())) {
+                // Lost the race for the last message, or the request already timed out
+                inFlight.decrementAndGet();
+                continue;
+            }
+
+            try {
+                mqttAsyncClient.publish(commandTopic, next.message(), null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken token) {
+                        inFlight.decrementAndGet();
+                        drainOutbox();
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken token, Throwable exception) {
+                        inFlight.decrementAndGet();
+                        pendingRequests.fail(next.id(), exception);
+                        drainOutbox();
+                    }
+                });
+                log.debug("MQTT published to {} : request {}", commandTopic, next.id());
+            } catch (Exception e) {
+                inFlight.decrementAndGet();
+                pendingRequests.fail(next.id(), e);
+            }
+        }
+    }
+
+    private boolean isPipelined() {
+        return properties.getMode() == MqttTransportProperties.Mode.PIPELINED;
+    }
+
+    public CorrelationMetricsDto getCorrelationMetrics() {
+        return pendingRequests.metrics();
+    }
+
+    public List<LaneMetricsDto> getLaneMetrics() {
+        return lanes.metrics();
+    }
+
+    public MqttMetricsDto getMqttMetrics() {
+        return new MqttMetricsDto(
+                properties.getMode().name(),
+                properties.getMaxInFlight(),
+                inFlight.get(),
+                outbox.size(),
+                Arrays.stream(latencyByQos).map(LatencyRecorder::snapshot).toList()
+        );
     }
 
-    @SuppressWarnings("unchecked")
     private void handleIncomingMessage(String message) {
         try {
             log.info("MQTT received raw message: {}", message);  // Додано для debug
-            Map<String, Object> response = objectMapper.readValue(message, Map.class);
+            // Only the id is scanned here, the payload is deserialized once by the waiting request
+            long id = JsonIdScanner.extractId(message);
 
-            Object idObj = response.get("id");
-            if (idObj != null) {
-                String id = String.valueOf(idObj);
+            if (id != JsonIdScanner.NO_ID) {
                 log.info("MQTT response contains ID: {}", id);  // Додано для debug
-                CompletableFuture<String> future = pendingRequests.remove(id);
-                if (future != null) {
-                    future.complete(message);
+                if (pendingRequests.complete(id, message)) {
                     log.info("Completed request for ID: {}", id);
                 } else {
                     log.warn("No pending request found for message ID: {}", id);
                 }
             } else {
                 log.warn("Received MQTT message without ID: {}", message);
-                // Якщо немає ID, але є очікуючий запит - завершуємо його
-                if (!pendingRequests.isEmpty()) {
-                    String firstKey = pendingRequests.keySet().iterator().next();
-                    CompletableFuture<String> future = pendingRequests.remove(firstKey);
-                    if (future != null && !future.isDone()) {
-                        log.warn("Completing pending request {} with response without ID", firstKey);
-                        future.complete(message);
-                    }
+                // Якщо немає ID, але є очікуючий запит - завершуємо найстаріший
+                if (pendingRequests.completeOldest(message)) {
+                    log.warn("Completed oldest pending request with response without ID");
                 }
             }
         } catch (Exception e) {
+            pendingRequests.recordOrphan();
             log.error("Error handling incoming MQTT message", e);
         }
     }
@@ -265,5 +530,9 @@ public class MqttCommunicationService implements CommunicationService {
     public void cleanup() {
         log.info("Cleaning up MQTT Communication Service");
         disconnect();
+        // Not shutdownNow: the requests failed by disconnect still have their completions queued
+        laneExecutor.shutdown();
     }
+
+    private record OutgoingMessage(long id, MqttMessage message) {}
 }
\ No newline at end of file
@@ -1,152 +1,386 @@
 package org.example.diplomwork.service.impl;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.example.diplomwork.config.CommandSequencerProperties;
+import org.example.diplomwork.config.HistoryJournalProperties;
+import org.example.diplomwork.config.HistoryPathProperties;
+import org.example.diplomwork.config.HistoryProperties;
+import org.example.diplomwork.config.HistorySpatialProperties;
+import org.example.diplomwork.config.OdometryProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.history.HistoryPageDto;
+import org.example.diplomwork.dto.history.HistoryPathDto;
+import org.example.diplomwork.dto.history.NearestPositionDto;
+import org.example.diplomwork.dto.history.RegionVisitsDto;
+import org.example.diplomwork.dto.history.VisitIntervalDto;
+import org.example.diplomwork.dto.metrics.HistoryMetricsDto;
+import org.example.diplomwork.dto.metrics.HistorySinkMetricsDto;
+import org.example.diplomwork.dto.metrics.SequencerMetricsDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.dto.platform.PlatformResponseDto;
 import org.example.diplomwork.dto.platform.PlatformUpdateDto;
+import org.example.diplomwork.dto.platform.StopRaceResponseDto;
 import org.example.diplomwork.dto.position.PositionResponseDto;
 import org.example.diplomwork.entities.CommunicationProtocol;
 import org.example.diplomwork.entities.MovementHistory;
+import org.example.diplomwork.entities.PlatformState;
 import org.example.diplomwork.entities.Position;
 import org.example.diplomwork.service.CommunicationService;
+import org.example.diplomwork.util.history.HistoryCursor;
+import org.example.diplomwork.util.history.HistoryExporter;
+import org.example.diplomwork.util.history.HistoryJournal;
+import org.example.diplomwork.util.history.HistorySink;
+import org.example.diplomwork.util.history.MovementHistoryBuffer;
+import org.example.diplomwork.util.history.PathLevels;
+import org.example.diplomwork.util.history.SpatialGrid;
+import org.example.diplomwork.util.odometry.Odometry;
+import org.example.diplomwork.util.odometry.OdometryIntegrator;
+import org.example.diplomwork.util.sequencer.CommandSequencer;
 import org.example.diplomwork.util.websocket.WebSocketBroadcastService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class PlatformService {
-    private final HttpCommunicationService httpService;
-    private final WebSocketCommunicationService webSocketService;
-    private final MqttCommunicationService mqttService;
-    private final WebSocketBroadcastService wsBroadcastService;
+    private static final String MOVE_KEY = "move";
 
-    private final List<MovementHistory> movementHistory;
-    private final Position currentPosition;
-    private Double currentAngle = 0.0;
-    private Double totalDistance = 0.0;
-    private Double wheelRadius = 0.03;
-
-    private long lastMovementTime = 0;
-    private final double maxRPM = 200.0;
-    private final double movementTimeInterval = 0.1;
-
-    private CommunicationProtocol currentProtocol = CommunicationProtocol.HTTP;
-    private CommunicationService currentService;
-
-    public PlatformService(HttpCommunicationService httpService,
-                           WebSocketCommunicationService webSocketService,
-                           MqttCommunicationService mqttService,
-                           WebSocketBroadcastService wsBroadcastService) {
-        this.httpService = httpService;
-        this.webSocketService = webSocketService;
-        this.mqttService = mqttService;
+    private final TransportConnectionManager connectionManager;
+    private final WebSocketBroadcastService wsBroadcastService;
+    // Moves and stops go through one sequencer so they reach the platform in arrival order;
+    // read-only polls skip it and are only limited by the transport's poll lane
+    private final CommandSequencer sequencer;
+    private final boolean coalesceMoves;
+
+    private final MovementHistoryBuffer movementHistory;
+    // Simplified levels of the same path for drawing it without every point
+    private final PathLevels movementPath;
+    // Grid over the same positions for region and nearest-position queries
+    private final SpatialGrid visitedPositions;
+    // Durable copy of the history and pose; null when the journal is disabled
+    private final HistoryJournal journal;
+    // Reporting copy of movements and command outcomes, written off the command path
+    private final HistorySink historySink;
+    // Pose and odometry, replaced as a whole by compare-and-set so readers never block
+    private final AtomicReference<PlatformState> state;
+    private volatile double wheelRadius = 0.03;
+    // Bumped by every acknowledged stop; a move sent before it must not restart the platform
+    private final AtomicLong stopEpoch = new AtomicLong();
+    // Fixed-rate engine that owns the pose between commands; null in PER_REQUEST mode
+    private final OdometryIntegrator integrator;
+
+    private volatile CommunicationProtocol currentProtocol = CommunicationProtocol.HTTP;
+
+    @Autowired
+    public PlatformService(TransportConnectionManager connectionManager,
+                           WebSocketBroadcastService wsBroadcastService,
+                           CommandSequencerProperties sequencerProperties,
+                           OdometryProperties odometryProperties,
+                           HistoryProperties historyProperties,
+                           HistoryJournalProperties journalProperties,
+                           HistorySink historySink,
+                           HistoryPathProperties pathProperties,
+                           HistorySpatialProperties spatialProperties) {
+        this.connectionManager = connectionManager;
         this.wsBroadcastService = wsBroadcastService;
-        this.movementHistory = new ArrayList<>();
-        this.currentPosition = new Position(0., 0.);
-        this.currentService = httpService;
-        this.lastMovementTime = System.currentTimeMillis();
+        this.sequencer = CommandSequencer.start("platform", sequencerProperties.getQueueCapacity());
+        this.coalesceMoves = sequencerProperties.isCoalesceMoves();
+        this.movementPath = new PathLevels(pathProperties.getBaseTolerance(), pathProperties.getLevels(),
+                historyProperties.getCapacity());
+        this.visitedPositions = new SpatialGrid(spatialProperties.getCellSize(), spatialProperties.getCapacity());
+        this.state = new AtomicReference<>(PlatformState.origin(System.currentTimeMillis()));
+        this.journal = journalProperties.isEnabled()
+                ? HistoryJournal.open(journalProperties.getDirectory(), journalProperties.getSegmentSize().toBytes(),
+                        journalProperties.getMaxSegments(), journalProperties.getCommitInterval())
+                : null;
+        // Continue the journal's numbering, so cursors issued before a restart survive the replay
+        this.movementHistory = journal != null
+                ? new MovementHistoryBuffer(historyProperties.getCapacity(), historyProperties.getOverflow(),
+                        journal.epoch(), journal.firstSequence())
+                : new MovementHistoryBuffer(historyProperties.getCapacity(), historyProperties.getOverflow());
+        this.historySink = historySink;
+        this.integrator = odometryProperties.getMode() == OdometryProperties.Mode.FIXED_RATE
+                ? new OdometryIntegrator(state, () -> wheelRadius, odometryProperties.getTick(),
+                        odometryProperties.getPublishInterval(), this::publishPose)
+                : null;
+    }
+
+    /**
+     * Restores the history and the pose from the journal. Runs once every field is set, before
+     * the service takes its first command.
+     */
+    @PostConstruct
+    public void replayJournal() {
+        if (journal == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        long replayed = journal.replay((kind, timestamp, x, y, angle, distance, direction, speed) -> {
+            if (kind == HistoryJournal.Kind.MOVE) {
+                movementHistory.append(timestamp, x, y, angle, distance, direction, speed);
+                movementPath.append(timestamp, x, y);
+                visitedPositions.append(timestamp, x, y);
+            }
+            state.set(new PlatformState(x, y, angle, distance, timestamp));
+        });
+        // The time the service was down is not motion, odometry resumes from now
+        state.updateAndGet(restored -> new PlatformState(restored.x(), restored.y(), restored.angle(),
+                restored.totalDistance(), System.currentTimeMillis()));
+        log.info("Replayed {} history journal records in {} ms", replayed, (System.nanoTime() - started) / 1_000_000);
     }
 
     public PlatformResponseDto movePlatform(MoveRequestDto moveRequest) {
-        switchProtocolIfNeeded(moveRequest.protocol());
+        return await(submitMove(CommandSequencer.blocking(() -> {
+            switchProtocolIfNeeded(moveRequest.protocol());
 
-        try {
-            ESP32ResponseDto esp32Response = currentService.sendMoveCommand(moveRequest);
-
-            if (esp32Response != null && "ok".equals(esp32Response.getStatus())) {
-                updatePositionWithResponse(moveRequest, esp32Response);
-                PlatformUpdateDto updateDto = createPlatformUpdate(moveRequest, esp32Response);
-                wsBroadcastService.broadcastPlatformUpdate(updateDto);
-                saveMovementHistory(moveRequest);
-                return createSuccessResponse(moveRequest);
-            } else {
-                handleErrorResponse(esp32Response);
-                throw new RuntimeException("ESP32 error: " +
-                        (esp32Response != null ? esp32Response.getMessage() : "Unknown error"));
+            try {
+                long epoch = stopEpoch.get();
+                ESP32ResponseDto esp32Response = call("move", service -> service.sendMoveCommand(moveRequest), this::isOk);
+                return applyMoveResponse(moveRequest, esp32Response, epoch);
+            } catch (Exception e) {
+                throw moveFailure(e);
             }
+        })));
+    }
 
-        } catch (Exception e) {
-            log.error("Error sending request to ESP32: ", e);
-            wsBroadcastService.broadcastError("Failed to communicate: " + e.getMessage());
-            throw new RuntimeException("Failed to communicate with platform: " + e.getMessage(), e);
-        }
+    public CompletableFuture<PlatformResponseDto> movePlatformAsync(MoveRequestDto moveRequest) {
+        return submitMove(() -> {
+            switchProtocolIfNeeded(moveRequest.protocol());
+
+            long epoch = stopEpoch.get();
+            return callAsync("move", service -> service.sendMoveCommandAsync(moveRequest), this::isOk)
+                    .thenApply(esp32Response -> applyMoveResponse(moveRequest, esp32Response, epoch))
+                    .exceptionally(e -> {
+                        throw moveFailure(unwrap(e));
+                    });
+        });
     }
 
     public PlatformResponseDto stopPlatform() {
-        try {
-            ESP32ResponseDto esp32Response = currentService.sendStopCommand();
-
-            if (esp32Response != null && "ok".equals(esp32Response.getStatus())) {
-                PlatformUpdateDto stopUpdate = new PlatformUpdateDto();
-                stopUpdate.setType("POSITION_UPDATE");
-                stopUpdate.setPosition(currentPosition);
-                stopUpdate.setAngle(currentAngle);
-                stopUpdate.setDirection("stop");
-                stopUpdate.setSpeed(0);
-                stopUpdate.setIsMoving(false);
-                stopUpdate.setDistanceTraveled(totalDistance);
-                stopUpdate.setTimestamp(System.currentTimeMillis());
-
-                wsBroadcastService.broadcastPlatformUpdate(stopUpdate);
-
-                return createStopResponse();
-            } else {
-                handleErrorResponse(esp32Response);
-                throw new RuntimeException("ESP32 error: " +
-                        (esp32Response != null ? esp32Response.getMessage() : "Unknown error"));
+        return await(sequencer.submitUrgent(MOVE_KEY, CommandSequencer.blocking(() -> {
+            try {
+                ESP32ResponseDto esp32Response = call("stop", CommunicationService::sendStopCommand, this::isOk);
+                return applyStopResponse(esp32Response);
+            } catch (Exception e) {
+                throw stopFailure(e);
             }
+        })));
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to stop platform: ", e);
-            wsBroadcastService.broadcastError("Failed to stop: " + e.getMessage());
-            throw new RuntimeException("Failed to stop platform: " + e.getMessage());
+    public CompletableFuture<PlatformResponseDto> stopPlatformAsync() {
+        return sequencer.submitUrgent(MOVE_KEY, () -> callAsync("stop", CommunicationService::sendStopCommandAsync, this::isOk)
+                .thenApply(this::applyStopResponse)
+                .exceptionally(e -> {
+                    throw stopFailure(unwrap(e));
+                }));
+    }
+
+    /**
+     * Sends stop over every open link at once. The first "ok" acknowledgement wins; the
+     * other attempts are cancelled and their late answers ignored. As an emergency path it
+     * does not wait behind queued commands in the sequencer, but drops the queued moves first
+     * so none of them restarts the platform after the stop.
+     */
+    public CompletableFuture<StopRaceResponseDto> stopPlatformRace() {
+        int dropped = sequencer.dropQueued(MOVE_KEY);
+        if (dropped > 0) {
+            log.info("Stop race dropped {} queued moves", dropped);
+        }
+        List<CommunicationProtocol> contenders = connectionManager.openLinks();
+        CompletableFuture<StopRaceResult> race = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<ESP32ResponseDto>> attempts = new ArrayList<>(contenders.size());
+        long startNanos = System.nanoTime();
+
+        for (CommunicationProtocol protocol : contenders) {
+            CompletableFuture<ESP32ResponseDto> attempt = connectionManager.get(protocol).sendStopCommandAsync();
+            attempts.add(attempt);
+            attempt.whenComplete((response, error) -> {
+                if (error instanceof CancellationException) {
+                    return;
+                }
+                long latencyNanos = System.nanoTime() - startNanos;
+                boolean ok = error == null && response != null && isOk(response);
+                recordOutcome("stopRace", protocol, latencyNanos, ok);
+
+                if (ok) {
+                    race.complete(new StopRaceResult(protocol, latencyNanos, response));
+                } else if (failures.incrementAndGet() == contenders.size()) {
+                    race.completeExceptionally(new RuntimeException("ESP32 error: no transport acknowledged stop" +
+                            (error != null ? " (last: " + unwrap(error).getMessage() + ")" : "")));
+                }
+            });
         }
+        race.whenComplete((result, error) -> attempts.forEach(attempt -> attempt.cancel(false)));
+
+        List<String> transports = contenders.stream().map(Enum::name).toList();
+        return race
+                .thenApply(result -> {
+                    log.info("Stop race won by {} in {} ms", result.protocol(), result.latencyNanos() / 1_000_000.0);
+                    return new StopRaceResponseDto(
+                            applyStopResponse(result.response()),
+                            result.protocol().name(),
+                            result.latencyNanos() / 1_000_000.0,
+                            transports
+                    );
+                })
+                .exceptionally(e -> {
+                    throw stopFailure(unwrap(e));
+                });
     }
 
     public ESP32StatusResponseDto getESP32Status() {
         try {
-            ESP32StatusResponseDto statusResponse = currentService.getStatus();
+            return applyStatusResponse(call("status", CommunicationService::getStatus, this::isStatusAnswered));
+        } catch (Exception e) {
+            throw statusFailure(e);
+        }
+    }
+
+    public CompletableFuture<ESP32StatusResponseDto> getESP32StatusAsync() {
+        return callAsync("status", CommunicationService::getStatusAsync, this::isStatusAnswered)
+                .thenApply(this::applyStatusResponse)
+                .exceptionally(e -> {
+                    throw statusFailure(unwrap(e));
+                });
+    }
 
-            if (statusResponse == null) {
-                throw new RuntimeException("Failed to get ESP32 status: null response");
+    /**
+     * Applies a move acknowledgement unless a stop has been acknowledged since the move was
+     * sent ({@code epoch}); such a move is reported as cancelled and leaves the pose alone.
+     */
+    private PlatformResponseDto applyMoveResponse(MoveRequestDto moveRequest, ESP32ResponseDto esp32Response,
+                                                  long epoch) {
+        if (esp32Response != null && "ok".equals(esp32Response.getStatus())) {
+            if (epoch != stopEpoch.get()) {
+                throw supersededByStop();
             }
+            PlatformState updated = updatePositionWithResponse(moveRequest, esp32Response);
+            if (integrator != null && epoch != stopEpoch.get()) {
+                // The stop was acknowledged while the engine was being commanded
+                integrator.halt();
+                throw supersededByStop();
+            }
+            PlatformUpdateDto updateDto = createPlatformUpdate(updated, moveRequest, esp32Response);
+            wsBroadcastService.broadcastPlatformUpdate(updateDto);
+            saveMovementHistory(updated, moveRequest.direction(), moveRequest.speed());
+            return createSuccessResponse(updated, moveRequest);
+        } else {
+            handleErrorResponse(esp32Response);
+            throw new RuntimeException("ESP32 error: " +
+                    (esp32Response != null ? esp32Response.getMessage() : "Unknown error"));
+        }
+    }
+
+    private static CancellationException supersededByStop() {
+        return new CancellationException("Move was acknowledged after a stop");
+    }
 
-            PlatformUpdateDto statusUpdate = new PlatformUpdateDto();
-            statusUpdate.setType("STATUS_UPDATE");
-            statusUpdate.setPosition(currentPosition);
-            statusUpdate.setAngle(statusResponse.getCurrentAngle() != null ?
-                    statusResponse.getCurrentAngle() : currentAngle);
-            statusUpdate.setSpeed(statusResponse.getCurrentSpeed());
-            statusUpdate.setDirection(statusResponse.getCurrentDirection());
-            statusUpdate.setIsMoving(statusResponse.getIsMoving());
-            statusUpdate.setTimestamp(System.currentTimeMillis());
+    private RuntimeException moveFailure(Throwable e) {
+        if (e instanceof CancellationException superseded) {
+            // Overtaken by a stop, not a communication failure
+            return superseded;
+        }
+        log.error("Error sending request to ESP32: ", e);
+        wsBroadcastService.broadcastError("Failed to communicate: " + e.getMessage());
+        return new RuntimeException("Failed to communicate with platform: " + e.getMessage(), e);
+    }
 
-            wsBroadcastService.broadcastPlatformUpdate(statusUpdate);
+    private PlatformResponseDto applyStopResponse(ESP32ResponseDto esp32Response) {
+        if (esp32Response != null && "ok".equals(esp32Response.getStatus())) {
+            // Before the halt, so a move applied concurrently sees the new epoch after commanding
+            stopEpoch.incrementAndGet();
+            if (integrator != null) {
+                integrator.halt();
+            }
+            PlatformState current = state.get();
+            journalPose(current);
+            PlatformUpdateDto stopUpdate = new PlatformUpdateDto();
+            stopUpdate.setType("POSITION_UPDATE");
+            stopUpdate.setPosition(current.position());
+            stopUpdate.setAngle(current.angle());
+            stopUpdate.setDirection("stop");
+            stopUpdate.setSpeed(0);
+            stopUpdate.setIsMoving(false);
+            stopUpdate.setDistanceTraveled(current.totalDistance());
+            stopUpdate.setTimestamp(System.currentTimeMillis());
+
+            wsBroadcastService.broadcastPlatformUpdate(stopUpdate);
+
+            return createStopResponse(current);
+        } else {
+            handleErrorResponse(esp32Response);
+            throw new RuntimeException("ESP32 error: " +
+                    (esp32Response != null ? esp32Response.getMessage() : "Unknown error"));
+        }
+    }
 
-            return statusResponse;
-        } catch (Exception e) {
-            log.error("Failed to get ESP32 status: ", e);
-            wsBroadcastService.broadcastError("Status check failed: " + e.getMessage());
-            throw new RuntimeException("Failed to get ESP32 status: " + e.getMessage());
+    private RuntimeException stopFailure(Throwable e) {
+        log.error("Failed to stop platform: ", e);
+        wsBroadcastService.broadcastError("Failed to stop: " + e.getMessage());
+        return new RuntimeException("Failed to stop platform: " + e.getMessage());
+    }
+
+    private ESP32StatusResponseDto applyStatusResponse(ESP32StatusResponseDto statusResponse) {
+        if (statusResponse == null) {
+            throw new RuntimeException("Failed to get ESP32 status: null response");
         }
+        if (integrator != null && Boolean.FALSE.equals(statusResponse.getIsMoving())) {
+            // The device stopped on its own, e.g. after its operation duration ran out
+            integrator.halt();
+            journalPose(state.get());
+        }
+
+        PlatformState current = state.get();
+        PlatformUpdateDto statusUpdate = new PlatformUpdateDto();
+        statusUpdate.setType("STATUS_UPDATE");
+        statusUpdate.setPosition(current.position());
+        statusUpdate.setAngle(statusResponse.getCurrentAngle() != null ?
+                statusResponse.getCurrentAngle() : current.angle());
+        statusUpdate.setSpeed(statusResponse.getCurrentSpeed());
+        statusUpdate.setDirection(statusResponse.getCurrentDirection());
+        statusUpdate.setIsMoving(statusResponse.getIsMoving());
+        statusUpdate.setTimestamp(System.currentTimeMillis());
+
+        wsBroadcastService.broadcastPlatformUpdate(statusUpdate);
+
+        return statusResponse;
     }
 
-    private PlatformUpdateDto createPlatformUpdate(MoveRequestDto request, ESP32ResponseDto response) {
+    private RuntimeException statusFailure(Throwable e) {
+        log.error("Failed to get ESP32 status: ", e);
+        wsBroadcastService.broadcastError("Status check failed: " + e.getMessage());
+        return new RuntimeException("Failed to get ESP32 status: " + e.getMessage());
+    }
+
+    private PlatformUpdateDto createPlatformUpdate(PlatformState current, MoveRequestDto request,
+                                                   ESP32ResponseDto response) {
         PlatformUpdateDto update = new PlatformUpdateDto();
         update.setType("POSITION_UPDATE");
-        update.setPosition(currentPosition);
-        update.setAngle(currentAngle);
+        update.setPosition(current.position());
+        update.setAngle(current.angle());
         update.setDirection(request.direction());
         update.setSpeed(request.speed());
         update.setIsMoving(true);
-        update.setDistanceTraveled(totalDistance);
+        update.setDistanceTraveled(current.totalDistance());
         update.setTimestamp(System.currentTimeMillis());
 
         if (response.getAngle() != null) {
@@ -156,92 +390,65 @@ public class PlatformService {
         return update;
     }
 
-    private void updatePositionWithResponse(MoveRequestDto request, ESP32ResponseDto response) {
-        if (response.getAngle() != null) {
-            this.currentAngle = response.getAngle();
-        } else if (request.angle() != null) {
-            this.currentAngle = request.angle();
+    private PlatformState updatePositionWithResponse(MoveRequestDto request, ESP32ResponseDto response) {
+        PlatformState updated;
+        if (integrator != null) {
+            // The engine moves the pose from here on, the acknowledgement only sets the heading
+            updated = state.updateAndGet(current -> current.withAngle(heading(current, request, response)));
+            integrator.command(request.direction(), request.speed());
+        } else {
+            double radius = wheelRadius;
+            // The update function may run more than once under contention, so it must stay pure
+            updated = state.updateAndGet(current -> advance(current, request, response, radius));
         }
 
-        double distance = calculateRealisticDistance(request.speed());
-        updatePositionBasedOnDirection(request.direction(), distance);
-        totalDistance += Math.abs(distance);
+        // Guarded: the varargs array and the boxed distance would be allocated even with debug off
+        if (log.isDebugEnabled()) {
+            log.debug("Movement - Direction: {}, Speed: {}, Total: {}m",
+                    request.direction(), request.speed(), updated.totalDistance());
+        }
+        return updated;
+    }
 
-        log.debug("Movement - Direction: {}, Speed: {}, Distance: {:.4f}m, Total: {:.4f}m",
-                request.direction(), request.speed(), distance, totalDistance);
+    private static PlatformState advance(PlatformState current, MoveRequestDto request, ESP32ResponseDto response,
+                                         double radius) {
+        return Odometry.advance(current, request.direction(), request.speed(), heading(current, request, response),
+                radius, System.currentTimeMillis());
     }
 
-    private double calculateRealisticDistance(int motorSpeed) {
-        long currentTime = System.currentTimeMillis();
-        double deltaTime = (currentTime - lastMovementTime) / 1000.0;
-        lastMovementTime = currentTime;
-        if (deltaTime > 1.0 || deltaTime <= 0) {
-            deltaTime = movementTimeInterval;
+    private static double heading(PlatformState current, MoveRequestDto request, ESP32ResponseDto response) {
+        if (response.getAngle() != null) {
+            return response.getAngle();
         }
-        double speedPercentage = Math.max(0, Math.min(255, motorSpeed)) / 255.0;
-        double currentRPM = maxRPM * speedPercentage;
-        double rotations = (currentRPM / 60.0) * deltaTime;
-        double wheelCircumference = 2 * Math.PI * wheelRadius;
-
-        double distance = rotations * wheelCircumference;
-
-        log.debug("Speed: {}%, RPM: {:.2f}, Time: {:.3f}s, Rotations: {:.4f}, Distance: {:.4f}m",
-                speedPercentage * 100, currentRPM, deltaTime, rotations, distance);
-
-        return distance;
-    }
-
-    private void updatePositionBasedOnDirection(String direction, double distance) {
-        switch (direction) {
-            case "forward":
-                double deltaX = distance * Math.cos(Math.toRadians(currentAngle));
-                double deltaY = distance * Math.sin(Math.toRadians(currentAngle));
-                currentPosition.setX(currentPosition.getX() + deltaX);
-                currentPosition.setY(currentPosition.getY() + deltaY);
-                log.debug("Forward movement - DeltaX: {:.4f}, DeltaY: {:.4f}, New pos: ({:.4f}, {:.4f})",
-                        deltaX, deltaY, currentPosition.getX(), currentPosition.getY());
-                break;
-
-            case "backward":
-                double backDeltaX = -distance * Math.cos(Math.toRadians(currentAngle));
-                double backDeltaY = -distance * Math.sin(Math.toRadians(currentAngle));
-                currentPosition.setX(currentPosition.getX() + backDeltaX);
-                currentPosition.setY(currentPosition.getY() + backDeltaY);
-                log.debug("Backward movement - DeltaX: {:.4f}, DeltaY: {:.4f}, New pos: ({:.4f}, {:.4f})",
-                        backDeltaX, backDeltaY, currentPosition.getX(), currentPosition.getY());
-                break;
-
-            case "left":
-                double leftTurnAngle = calculateTurnAngle(distance);
-                currentAngle -= leftTurnAngle;
-                if (currentAngle < 0) currentAngle += 360;
-                log.debug("Left turn - Angle change: {:.2f}°, New angle: {:.2f}°",
-                        leftTurnAngle, currentAngle);
-                break;
-
-            case "right":
-                double rightTurnAngle = calculateTurnAngle(distance);
-                currentAngle += rightTurnAngle;
-                if (currentAngle >= 360) currentAngle -= 360;
-                log.debug("Right turn - Angle change: {:.2f}°, New angle: {:.2f}°",
-                        rightTurnAngle, currentAngle);
-                break;
+        if (request.angle() != null) {
+            return request.angle();
         }
+        return current.angle();
     }
 
-    private double calculateTurnAngle(double wheelDistance) {
-        double wheelbase = 0.2;
-        double angleRadians = wheelDistance / (wheelbase / 2);
-        double angleDegrees = Math.toDegrees(angleRadians);
-        return Math.min(angleDegrees, 10.0);
+    /**
+     * Called by the integrator every publish interval while moving. The samples go to the
+     * history like acknowledged moves do, otherwise the path between two commands and the
+     * motion after the last one would never be recorded.
+     */
+    private void publishPose(PlatformState current, String direction, int speed) {
+        saveMovementHistory(current, direction, speed);
+
+        PlatformUpdateDto update = new PlatformUpdateDto();
+        update.setType("POSITION_UPDATE");
+        update.setPosition(current.position());
+        update.setAngle(current.angle());
+        update.setIsMoving(true);
+        update.setDistanceTraveled(current.totalDistance());
+        update.setTimestamp(current.lastMovementTime());
+
+        wsBroadcastService.broadcastPlatformUpdate(update);
     }
 
     public PlatformResponseDto resetPosition() {
-        currentPosition.setX(0.);
-        currentPosition.setY(0.);
-        currentAngle = 0.0;
-        totalDistance = 0.0;
-        lastMovementTime = System.currentTimeMillis();
+        PlatformState origin = PlatformState.origin(System.currentTimeMillis());
+        state.set(origin);
+        journalPose(origin);
 
         log.info("Position reset to origin");
 
@@ -255,46 +462,140 @@ public class PlatformService {
 
     public ESP32InfoResponseDto getESP32Info() {
         try {
-            ESP32InfoResponseDto infoResponse = currentService.getInfo();
+            return applyInfoResponse(call("info", CommunicationService::getInfo, this::isInfoAnswered));
+        } catch (Exception e) {
+            throw infoFailure(e);
+        }
+    }
 
-            if (infoResponse == null) {
-                throw new RuntimeException("Failed to get ESP32 info: null response");
-            }
+    public CompletableFuture<ESP32InfoResponseDto> getESP32InfoAsync() {
+        return callAsync("info", CommunicationService::getInfoAsync, this::isInfoAnswered)
+                .thenApply(this::applyInfoResponse)
+                .exceptionally(e -> {
+                    throw infoFailure(unwrap(e));
+                });
+    }
 
-            if ("error".equals(infoResponse.getStatus())) {
-                throw new RuntimeException("ESP32 info error: " + infoResponse);
-            }
+    private ESP32InfoResponseDto applyInfoResponse(ESP32InfoResponseDto infoResponse) {
+        if (infoResponse == null) {
+            throw new RuntimeException("Failed to get ESP32 info: null response");
+        }
 
-            return infoResponse;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to get ESP32 info: " + e.getMessage());
+        if ("error".equals(infoResponse.getStatus())) {
+            throw new RuntimeException("ESP32 info error: " + infoResponse);
         }
+
+        return infoResponse;
+    }
+
+    private RuntimeException infoFailure(Throwable e) {
+        return new RuntimeException("Failed to get ESP32 info: " + e.getMessage());
     }
 
     public PositionResponseDto getCurrentPosition() {
+        PlatformState current = state.get();
         return new PositionResponseDto(
-                currentPosition.getX(),
-                currentPosition.getY(),
-                totalDistance,
-                currentAngle
+                current.x(),
+                current.y(),
+                current.totalDistance(),
+                current.angle()
         );
     }
 
     public List<MovementHistory> getMovementHistory() {
-        return movementHistory.stream()
-                .map(history -> {
-                    MovementHistory newHistory = new MovementHistory(
-                            history.getDirection(),
-                            history.getSpeed(),
-                            history.getTimestamp(),
-                            history.getPosition(),
-                            history.getAngle(),
-                            history.getDistanceTravelled()
-                    );
-                    newHistory.setAngle(history.getAngle());
-                    return newHistory;
-                })
-                .collect(Collectors.toList());
+        return movementHistory.snapshot();
+    }
+
+    /**
+     * Entries within {@code [from, to]} after the cursor position, oldest first. Either bound
+     * may be null. An absent cursor starts at the oldest entry still held.
+     */
+    public HistoryPageDto getMovementHistoryPage(Long from, Long to, String cursor, int limit) {
+        long epoch = movementHistory.epoch();
+        MovementHistoryBuffer.Page page = movementHistory.page(
+                from != null ? from : Long.MIN_VALUE,
+                to != null ? to : Long.MAX_VALUE,
+                HistoryCursor.decode(cursor, epoch),
+                limit
+        );
+        return new HistoryPageDto(page.entries(), HistoryCursor.encode(epoch, page.lastSequence()), page.hasMore());
+    }
+
+    /**
+     * Streams the movements within the optional [from, to] timestamp range to the writer,
+     * oldest first, and returns how many were written.
+     */
+    public long exportMovementHistory(Long from, Long to, HistoryExporter.Format format, Writer out) throws IOException {
+        return HistoryExporter.export(
+                movementHistory,
+                from != null ? from : Long.MIN_VALUE,
+                to != null ? to : Long.MAX_VALUE,
+                format,
+                out
+        );
+    }
+
+    /**
+     * Returns the path within the optional [from, to] timestamp range, simplified to at most
+     * {@code tolerance} metres of error (the finest level when null) and at most
+     * {@code maxPoints} points.
+     */
+    public HistoryPathDto getMovementPath(Long from, Long to, Double tolerance, int maxPoints) {
+        PathLevels.Polyline path = movementPath.path(
+                from != null ? from : Long.MIN_VALUE,
+                to != null ? to : Long.MAX_VALUE,
+                tolerance != null ? tolerance : 0,
+                maxPoints
+        );
+        return new HistoryPathDto(path.tolerance(), path.size(), path.timestamps(), path.xs(), path.ys());
+    }
+
+    /**
+     * Returns the recorded positions inside the rectangle within the optional [from, to]
+     * timestamp range, earliest first and at most {@code limit} of them.
+     */
+    public RegionVisitsDto getVisitsInRectangle(double minX, double minY, double maxX, double maxY,
+                                                Long from, Long to, int limit) {
+        return toDto(visitedPositions.rectangle(minX, minY, maxX, maxY,
+                from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE, limit));
+    }
+
+    /**
+     * Returns the recorded positions within {@code radius} metres of ({@code x}, {@code y})
+     * within the optional [from, to] timestamp range, earliest first and at most {@code limit}
+     * of them.
+     */
+    public RegionVisitsDto getVisitsInRadius(double x, double y, double radius, Long from, Long to, int limit) {
+        return toDto(visitedPositions.circle(x, y, radius,
+                from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE, limit));
+    }
+
+    /**
+     * Returns up to {@code count} recorded positions closest to ({@code x}, {@code y}) within
+     * the optional [from, to] timestamp range, nearest first.
+     */
+    public List<NearestPositionDto> getNearestPositions(double x, double y, int count, Long from, Long to) {
+        return visitedPositions.nearest(x, y, count,
+                        from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE)
+                .stream()
+                .map(n -> new NearestPositionDto(n.timestamp(), n.x(), n.y(), n.distance()))
+                .toList();
+    }
+
+    private RegionVisitsDto toDto(SpatialGrid.Visits visits) {
+        List<VisitIntervalDto> intervals = visits.intervals().stream()
+                .map(interval -> new VisitIntervalDto(interval.from(), interval.to(), interval.points()))
+                .toList();
+        return new RegionVisitsDto(visits.total(), visits.total() > visits.timestamps().length, intervals,
+                visits.timestamps(), visits.xs(), visits.ys());
+    }
+
+    public HistoryMetricsDto getHistoryMetrics() {
+        return movementHistory.metrics();
+    }
+
+    public HistorySinkMetricsDto getHistorySinkMetrics() {
+        return historySink.metrics();
     }
 
     public void setWheelRadius(Double radius) {
@@ -317,12 +618,100 @@ public class PlatformService {
         wsBroadcastService.broadcastPlatformUpdate(configUpdate);
     }
 
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Moves are keyed so a stop can drop the ones still queued; with coalescing enabled only
+     * the latest waiting move is kept.
+     */
+    private <T> CompletableFuture<T> submitMove(Supplier<CompletableFuture<T>> command) {
+        return coalesceMoves
+                ? sequencer.submitLatest(MOVE_KEY, command)
+                : sequencer.submitAsync(MOVE_KEY, command);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public SequencerMetricsDto getSequencerMetrics() {
+        return sequencer.metrics();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        sequencer.close();
+        if (integrator != null) {
+            integrator.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     private void handleErrorResponse(ESP32ResponseDto response) {
         String errorMsg = response != null ? response.getMessage() : "Unknown error";
         log.error("ESP32 error response: {}", errorMsg);
         wsBroadcastService.broadcastError("ESP32 error: " + errorMsg);
     }
 
+    /**
+     * Runs a command over the current link, or over the routed link in AUTO mode, and feeds
+     * its latency and outcome back to the router. The outcome is also audited to the history
+     * sink under {@code name}.
+     */
+    private <T> T call(String name, Function<CommunicationService, T> command, Predicate<T> healthy) {
+        CommunicationProtocol link = resolveLink();
+        long startNanos = System.nanoTime();
+        try {
+            T response = command.apply(connectionManager.get(link));
+            recordOutcome(name, link, System.nanoTime() - startNanos, response != null && healthy.test(response));
+            return response;
+        } catch (RuntimeException e) {
+            recordOutcome(name, link, System.nanoTime() - startNanos, false);
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(String name, Function<CommunicationService, CompletableFuture<T>> command,
+                                               Predicate<T> healthy) {
+        CommunicationProtocol link = resolveLink();
+        long startNanos = System.nanoTime();
+        return command.apply(connectionManager.get(link))
+                .whenComplete((response, error) -> recordOutcome(name, link,
+                        System.nanoTime() - startNanos, error == null && response != null && healthy.test(response)));
+    }
+
+    private void recordOutcome(String name, CommunicationProtocol link, long latencyNanos, boolean success) {
+        connectionManager.recordOutcome(link, latencyNanos, success);
+        historySink.command(System.currentTimeMillis(), name, link.name(), success, latencyNanos);
+    }
+
+    private CommunicationProtocol resolveLink() {
+        return currentProtocol == CommunicationProtocol.AUTO ? connectionManager.route() : currentProtocol;
+    }
+
+    private boolean isOk(ESP32ResponseDto response) {
+        return "ok".equals(response.getStatus());
+    }
+
+    private boolean isStatusAnswered(ESP32StatusResponseDto response) {
+        return !"error".equals(response.getStatus());
+    }
+
+    private boolean isInfoAnswered(ESP32InfoResponseDto response) {
+        return !"error".equals(response.getStatus());
+    }
+
     private void switchProtocolIfNeeded(CommunicationProtocol protocol) {
         if (protocol != currentProtocol) {
             log.info("Switching from {} to {} protocol", currentProtocol, protocol);
@@ -330,30 +719,15 @@ public class PlatformService {
             wsBroadcastService.broadcastStatusUpdate(
                     String.format("Switching to %s protocol", protocol));
 
-            if (currentService != null && currentService.isConnected()) {
-                try {
-                    currentService.disconnect();
-                } catch (Exception e) {
-                    log.warn("Error disconnecting from {}: {}", currentProtocol, e.getMessage());
-                }
-            }
-
-            switch (protocol) {
-                case HTTP:
-                    currentService = httpService;
-                    break;
-                case WEBSOCKET:
-                    currentService = webSocketService;
-                    break;
-                case MQTT:
-                    currentService = mqttService;
-                    break;
+            if (protocol == CommunicationProtocol.AUTO) {
+                // Links are picked per command, nothing to connect up front
+                currentProtocol = protocol;
+                return;
             }
 
+            // The previous link stays open, switching back later costs no handshake
             try {
-                if (!currentService.isConnected()) {
-                    currentService.connect();
-                }
+                connectionManager.select(protocol);
 
                 wsBroadcastService.broadcastStatusUpdate(
                         String.format("Connected via %s", protocol));
@@ -363,7 +737,7 @@ public class PlatformService {
                 wsBroadcastService.broadcastError(
                         String.format("Failed to connect via %s, falling back to HTTP", protocol));
 
-                currentService = httpService;
+                connectionManager.select(CommunicationProtocol.HTTP);
                 currentProtocol = CommunicationProtocol.HTTP;
                 throw new RuntimeException("Failed to connect to " + protocol + ", using HTTP fallback");
             }
@@ -372,34 +746,51 @@ public class PlatformService {
         }
     }
 
-    private PlatformResponseDto createSuccessResponse(MoveRequestDto request) {
+    private record StopRaceResult(CommunicationProtocol protocol, long latencyNanos, ESP32ResponseDto response) {}
+
+    private PlatformResponseDto createSuccessResponse(PlatformState current, MoveRequestDto request) {
         PlatformResponseDto response = new PlatformResponseDto(
                 "success",
-                currentPosition,
+                current.position(),
                 request.direction()
         );
-        response.setAngle(currentAngle);
-        response.setDistanceTravelled(totalDistance);
+        response.setAngle(current.angle());
+        response.setDistanceTravelled(current.totalDistance());
         return response;
     }
 
-    private PlatformResponseDto createStopResponse() {
+    private PlatformResponseDto createStopResponse(PlatformState current) {
         PlatformResponseDto response = new PlatformResponseDto();
-        response.setPosition(currentPosition);
-        response.setAngle(currentAngle);
-        response.setDistanceTravelled(totalDistance);
+        response.setPosition(current.position());
+        response.setAngle(current.angle());
+        response.setDistanceTravelled(current.totalDistance());
         return response;
     }
 
-    private void saveMovementHistory(MoveRequestDto request) {
-        MovementHistory historyEntry = new MovementHistory(
-                request.direction(),
-                request.speed(),
-                System.currentTimeMillis(),
-                new Position(currentPosition.getX(), currentPosition.getY()),
-                currentAngle,
-                totalDistance
+    private void saveMovementHistory(PlatformState current, String direction, int speed) {
+        movementHistory.append(
+                current.lastMovementTime(),
+                current.x(),
+                current.y(),
+                current.angle(),
+                current.totalDistance(),
+                direction,
+                speed
         );
-        movementHistory.add(historyEntry);
+        movementPath.append(current.lastMovementTime(), current.x(), current.y());
+        visitedPositions.append(current.lastMovementTime(), current.x(), current.y());
+        historySink.movement(current.lastMovementTime(), current.x(), current.y(), current.angle(),
+                current.totalDistance(), direction, speed);
+        if (journal != null) {
+            journal.append(HistoryJournal.Kind.MOVE, current.lastMovementTime(), current.x(), current.y(),
+                    current.angle(), current.totalDistance(), direction, speed);
+        }
+    }
+
+    private void journalPose(PlatformState current) {
+        if (journal != null) {
+            journal.append(HistoryJournal.Kind.POSE, current.lastMovementTime(), current.x(), current.y(),
+                    current.angle(), current.totalDistance(), null, 0);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package org.example.diplomwork.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.diplomwork.config.TransportConnectionProperties;
+import org.example.diplomwork.config.TransportRoutingProperties;
+import org.example.diplomwork.dto.metrics.LinkStatusDto;
+import org.example.diplomwork.entities.CommunicationProtocol;
+import org.example.diplomwork.service.CommunicationService;
+import org.example.diplomwork.util.metrics.EwmaTracker;
+import org.example.diplomwork.util.resilience.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the HTTP, WebSocket and MQTT links open side by side. Dropped links are reconnected
+ * in the background with exponential backoff, so a protocol switch only selects a link
+ * instead of paying a handshake inside the request.
+ *
+ * <p>For {@link CommunicationProtocol#AUTO} every command is routed to the open link with
+ * the best recent latency and success rate. Links that keep failing are taken out of
+ * rotation by a circuit breaker and probed back in.
+ */
+@Slf4j
+@Service
+public class TransportConnectionManager {
+    private final Map<CommunicationProtocol, Link> links = new EnumMap<>(CommunicationProtocol.class);
+    private final TransportConnectionProperties properties;
+    private final TransportRoutingProperties routingProperties;
+    private final AtomicLong routedCommands = new AtomicLong();
+    private final ExecutorService reconnectExecutor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("transport-reconnect-", 0).daemon().factory());
+    private volatile CommunicationProtocol selected = CommunicationProtocol.HTTP;
+
+    public TransportConnectionManager(HttpCommunicationService httpService,
+                                      WebSocketCommunicationService webSocketService,
+                                      MqttCommunicationService mqttService) {
+        this(httpService, webSocketService, mqttService,
+                new TransportConnectionProperties(), new TransportRoutingProperties());
+    }
+
+    @Autowired
+    public TransportConnectionManager(HttpCommunicationService httpService,
+                                      WebSocketCommunicationService webSocketService,
+                                      MqttCommunicationService mqttService,
+                                      TransportConnectionProperties properties,
+                                      TransportRoutingProperties routingProperties) {
+        this.properties = properties;
+        this.routingProperties = routingProperties;
+        links.put(CommunicationProtocol.HTTP, new Link(httpService, routingProperties));
+        links.put(CommunicationProtocol.WEBSOCKET, new Link(webSocketService, routingProperties));
+        links.put(CommunicationProtocol.MQTT, new Link(mqttService, routingProperties));
+    }
+
+    public CommunicationService get(CommunicationProtocol protocol) {
+        return links.get(protocol).service;
+    }
+
+    /**
+     * Makes the link for the protocol current. Normally the link is already open; it is only
+     * connected here if the background reconnect has not managed to yet.
+     */
+    public CommunicationService select(CommunicationProtocol protocol) {
+        Link link = links.get(protocol);
+        if (!link.service.isConnected() && !connect(protocol, link)) {
+            throw new RuntimeException("Link " + protocol + " is not connected");
+        }
+        selected = protocol;
+        return link.service;
+    }
+
+    /**
+     * Links that can take a command right now. HTTP needs no session and is always included.
+     */
+    public List<CommunicationProtocol> openLinks() {
+        return links.entrySet().stream()
+                .filter(entry -> entry.getKey() == CommunicationProtocol.HTTP || entry.getValue().service.isConnected())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Picks the link for the next AUTO command. A tripped link that is due for a probe gets
+     * it first; otherwise the lowest latency-per-success score wins, with every
+     * {@code exploreEvery}-th command sent to the least recently measured link.
+     */
+    public CommunicationProtocol route() {
+        for (Map.Entry<CommunicationProtocol, Link> entry : links.entrySet()) {
+            Link link = entry.getValue();
+            if (link.service.isConnected() && link.breaker.tryAcquireProbe()) {
+                return routeTo(entry.getKey());
+            }
+        }
+
+        List<Map.Entry<CommunicationProtocol, Link>> candidates = links.entrySet().stream()
+                .filter(entry -> entry.getValue().breaker.isClosed() && entry.getValue().service.isConnected())
+                .toList();
+        if (candidates.isEmpty()) {
+            return routeTo(CommunicationProtocol.HTTP);
+        }
+
+        Comparator<Map.Entry<CommunicationProtocol, Link>> order =
+                routedCommands.incrementAndGet() % routingProperties.getExploreEvery() == 0
+                        ? Comparator.comparingLong(entry -> entry.getValue().lastSampleNanos)
+                        : Comparator.comparingDouble(entry -> entry.getValue().score());
+        return routeTo(candidates.stream().min(order).orElseThrow().getKey());
+    }
+
+    private CommunicationProtocol routeTo(CommunicationProtocol protocol) {
+        selected = protocol;
+        return protocol;
+    }
+
+    public void recordOutcome(CommunicationProtocol protocol, long latencyNanos, boolean success) {
+        Link link = links.get(protocol);
+        link.tracker.record(latencyNanos, success);
+        link.lastSampleNanos = System.nanoTime();
+        if (success) {
+            link.breaker.recordSuccess();
+        } else {
+            link.breaker.recordFailure();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${platform.transport.connections.health-check-interval:5s}")
+    public void checkLinks() {
+        long now = System.nanoTime();
+        links.forEach((protocol, link) -> {
+            if (link.service.isConnected() || now - link.nextAttemptNanos < 0) {
+                return;
+            }
+            if (link.connecting.compareAndSet(false, true)) {
+                // One slow handshake must not hold up the other links
+                reconnectExecutor.execute(() -> {
+                    try {
+                        connect(protocol, link);
+                    } finally {
+                        link.connecting.set(false);
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean connect(CommunicationProtocol protocol, Link link) {
+        // Serializes a request-path connect with a background attempt on the same link
+        link.lock.lock();
+        try {
+            if (link.service.isConnected()) {
+                return true;
+            }
+            link.service.connect();
+            if (link.failures > 0) {
+                log.info("Link {} reconnected after {} failed attempts", protocol, link.failures);
+            }
+            link.failures = 0;
+            link.nextAttemptNanos = System.nanoTime();
+            link.connects.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            link.failures++;
+            Duration backoff = backoff(link.failures);
+            link.nextAttemptNanos = System.nanoTime() + backoff.toNanos();
+            log.warn("Link {} connect failed ({} in a row), next attempt in {}s: {}",
+                    protocol, link.failures, backoff.toSeconds(), e.getMessage());
+            return false;
+        } finally {
+            link.lock.unlock();
+        }
+    }
+
+    private Duration backoff(int failures) {
+        Duration delay = properties.getHealthCheckInterval().multipliedBy(1L << Math.min(failures - 1, 16));
+        return delay.compareTo(properties.getMaxReconnectBackoff()) > 0 ? properties.getMaxReconnectBackoff() : delay;
+    }
+
+    public List<LinkStatusDto> getLinkStatus() {
+        return links.entrySet().stream()
+                .map(entry -> new LinkStatusDto(
+                        entry.getKey().name(),
+                        entry.getValue().service.isConnected(),
+                        entry.getKey() == selected,
+                        entry.getValue().failures,
+                        entry.getValue().connects.get(),
+                        entry.getValue().tracker.latencyMillis(),
+                        entry.getValue().tracker.successRate(),
+                        entry.getValue().breaker.state().name()
+                ))
+                .toList();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        reconnectExecutor.shutdownNow();
+    }
+
+    private static class Link {
+        private static final double MIN_SUCCESS_RATE = 0.01;
+
+        private final CommunicationService service;
+        private final AtomicBoolean connecting = new AtomicBoolean();
+        private final AtomicLong connects = new AtomicLong();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final EwmaTracker tracker;
+        private final CircuitBreaker breaker;
+        private volatile int failures;
+        private volatile long nextAttemptNanos = System.nanoTime();
+        private volatile long lastSampleNanos = System.nanoTime();
+
+        private Link(CommunicationService service, TransportRoutingProperties routingProperties) {
+            this.service = service;
+            this.tracker = new EwmaTracker(routingProperties.getEwmaAlpha());
+            this.breaker = new CircuitBreaker(routingProperties.getFailureThreshold(), routingProperties.getOpenDuration());
+        }
+
+        private double score() {
+            // Unmeasured links score best so each one gets sampled
+            if (tracker.samples() == 0) {
+                return 0;
+            }
+            return tracker.latencyMillis() / Math.max(tracker.successRate(), MIN_SUCCESS_RATE);
+        }
+    }
+}
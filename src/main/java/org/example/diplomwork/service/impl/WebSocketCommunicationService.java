@@ -2,33 +2,68 @@ package org.example.diplomwork.service.impl;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.diplomwork.config.TransportLaneProperties;
+import org.example.diplomwork.config.WebSocketTransportProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.metrics.CorrelationMetricsDto;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.service.CommunicationService;
+import org.example.diplomwork.util.codec.BinaryFrameCodec;
+import org.example.diplomwork.util.correlation.PendingRequestRegistry;
+import org.example.diplomwork.util.dispatch.PriorityLanes;
+import org.example.diplomwork.util.json.JsonIdScanner;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 @Service
 public class WebSocketCommunicationService implements CommunicationService {
+    private static final String JSON_SUBPROTOCOL = "esp32.json";
+    private static final int MAX_PENDING_REQUESTS = 1024;
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(5);
+    private static final int SEND_TIME_LIMIT_MILLIS = 5000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 64 * 1024;
+
     private String wsUrl = "ws://192.168.0.70:81";
 
     private final ObjectMapper mapper;
+    private final WebSocketTransportProperties properties;
+    private final PriorityLanes lanes;
     private WebSocketSession session;
-    private final Map<String, CompletableFuture<String>> pendingRequests = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong();
+    private final PendingRequestRegistry<Object> pendingRequests =
+            new PendingRequestRegistry<>("websocket", MAX_PENDING_REQUESTS, RESPONSE_TIMEOUT);
     private final StandardWebSocketClient client = new StandardWebSocketClient();
     private volatile boolean connected = false;
+    private volatile boolean binaryMode = false;
 
     public WebSocketCommunicationService() {
+        this(new WebSocketTransportProperties());
+    }
+
+    public WebSocketCommunicationService(WebSocketTransportProperties properties) {
+        this(properties, new TransportLaneProperties());
+    }
+
+    @Autowired
+    public WebSocketCommunicationService(WebSocketTransportProperties properties,
+                                         TransportLaneProperties laneProperties) {
+        this.properties = properties;
+        this.lanes = new PriorityLanes("websocket", laneProperties);
         this.mapper = new ObjectMapper();
         this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
@@ -36,61 +71,96 @@ public class WebSocketCommunicationService implements CommunicationService {
     @Override
     public ESP32ResponseDto sendMoveCommand(MoveRequestDto moveRequest) {
         try {
-            Map<String, Object> cmd = new HashMap<>();
-            cmd.put("command", "move");
-            cmd.put("direction", moveRequest.direction());
-            cmd.put("speed", moveRequest.speed());
-            if (moveRequest.angle() != null) {
-                cmd.put("angle", moveRequest.angle());
-            }
-
-            return sendCommand(cmd, ESP32ResponseDto.class);
+            return sendCommand(createMoveCommand(moveRequest), ESP32ResponseDto.class);
         } catch (Exception e) {
-            ESP32ResponseDto errorResponse = new ESP32ResponseDto();
-            errorResponse.setStatus("error");
-            errorResponse.setMessage("WebSocket error: " + e.getMessage());
-            return errorResponse;
+            return createErrorResponse(e);
         }
     }
 
     @Override
     public ESP32ResponseDto sendStopCommand() {
         try {
-            Map<String, Object> cmd = new HashMap<>();
-            cmd.put("command", "stop");
-            return sendCommand(cmd, ESP32ResponseDto.class);
+            return sendCommand(createCommand("stop"), ESP32ResponseDto.class);
         } catch (Exception e) {
-            ESP32ResponseDto errorResponse = new ESP32ResponseDto();
-            errorResponse.setStatus("error");
-            errorResponse.setMessage("WebSocket error: " + e.getMessage());
-            return errorResponse;
+            return createErrorResponse(e);
         }
     }
 
     @Override
     public ESP32StatusResponseDto getStatus() {
         try {
-            Map<String, Object> cmd = new HashMap<>();
-            cmd.put("command", "status");
-            return sendCommand(cmd, ESP32StatusResponseDto.class);
+            return sendCommand(createCommand("status"), ESP32StatusResponseDto.class);
         } catch (Exception e) {
-            ESP32StatusResponseDto errorResponse = new ESP32StatusResponseDto();
-            errorResponse.setStatus("error");
-            return errorResponse;
+            return createStatusErrorResponse();
         }
     }
 
     @Override
     public ESP32InfoResponseDto getInfo() {
         try {
-            Map<String, Object> cmd = new HashMap<>();
-            cmd.put("command", "info");
-            return sendCommand(cmd, ESP32InfoResponseDto.class);
+            return sendCommand(createCommand("info"), ESP32InfoResponseDto.class);
         } catch (Exception e) {
-            ESP32InfoResponseDto errorResponse = new ESP32InfoResponseDto();
-            errorResponse.setStatus("error");
-            return errorResponse;
+            return createInfoErrorResponse();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendMoveCommandAsync(MoveRequestDto moveRequest) {
+        return sendCommandAsync(createMoveCommand(moveRequest), ESP32ResponseDto.class)
+                .exceptionally(e -> createErrorResponse(unwrap(e)));
+    }
+
+    @Override
+    public CompletableFuture<ESP32ResponseDto> sendStopCommandAsync() {
+        return sendCommandAsync(createCommand("stop"), ESP32ResponseDto.class)
+                .exceptionally(e -> createErrorResponse(unwrap(e)));
+    }
+
+    @Override
+    public CompletableFuture<ESP32StatusResponseDto> getStatusAsync() {
+        return sendCommandAsync(createCommand("status"), ESP32StatusResponseDto.class)
+                .exceptionally(e -> createStatusErrorResponse());
+    }
+
+    @Override
+    public CompletableFuture<ESP32InfoResponseDto> getInfoAsync() {
+        return sendCommandAsync(createCommand("info"), ESP32InfoResponseDto.class)
+                .exceptionally(e -> createInfoErrorResponse());
+    }
+
+    private Map<String, Object> createCommand(String name) {
+        Map<String, Object> cmd = new HashMap<>();
+        cmd.put("command", name);
+        return cmd;
+    }
+
+    private Map<String, Object> createMoveCommand(MoveRequestDto moveRequest) {
+        Map<String, Object> cmd = createCommand("move");
+        cmd.put("direction", moveRequest.direction());
+        cmd.put("speed", moveRequest.speed());
+        if (moveRequest.angle() != null) {
+            cmd.put("angle", moveRequest.angle());
         }
+        return cmd;
+    }
+
+    private ESP32ResponseDto createErrorResponse(Throwable e) {
+        ESP32ResponseDto errorResponse = new ESP32ResponseDto();
+        errorResponse.setStatus("error");
+        errorResponse.setMessage("WebSocket error: " + e.getMessage());
+        return errorResponse;
+    }
+
+    private ESP32StatusResponseDto createStatusErrorResponse() {
+        ESP32StatusResponseDto errorResponse = new ESP32StatusResponseDto();
+        errorResponse.setStatus("error");
+        return errorResponse;
+    }
+
+    private ESP32InfoResponseDto createInfoErrorResponse() {
+        ESP32InfoResponseDto errorResponse = new ESP32InfoResponseDto();
+        errorResponse.setStatus("error");
+        return errorResponse;
     }
 
     @Override
@@ -100,11 +170,22 @@ public class WebSocketCommunicationService implements CommunicationService {
         try {
             MyWebSocketHandler handler = new MyWebSocketHandler();
 
-            CompletableFuture<WebSocketSession> future = client.execute(handler, String.valueOf(new URI(wsUrl)));
-            this.session = future.get(5, TimeUnit.SECONDS);
+            CompletableFuture<WebSocketSession> future;
+            if (properties.isBinaryFrames()) {
+                // The device picks the first subprotocol it supports, or none for plain JSON
+                WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+                headers.setSecWebSocketProtocol(List.of(BinaryFrameCodec.SUBPROTOCOL, JSON_SUBPROTOCOL));
+                future = client.execute(handler, headers, new URI(wsUrl));
+            } else {
+                future = client.execute(handler, String.valueOf(new URI(wsUrl)));
+            }
+            // Lanes send concurrently, and a raw session allows only one sender at a time
+            this.session = new ConcurrentWebSocketSessionDecorator(future.get(5, TimeUnit.SECONDS),
+                    SEND_TIME_LIMIT_MILLIS, SEND_BUFFER_LIMIT_BYTES);
+            this.binaryMode = BinaryFrameCodec.SUBPROTOCOL.equals(session.getAcceptedProtocol());
             this.connected = true;
 
-            System.out.println("WebSocket connected to: " + wsUrl);
+            System.out.println("WebSocket connected to: " + wsUrl + (binaryMode ? " (binary frames)" : ""));
 
         } catch (Exception e) {
             this.connected = false;
@@ -123,7 +204,7 @@ public class WebSocketCommunicationService implements CommunicationService {
             }
         }
         connected = false;
-        pendingRequests.clear();
+        pendingRequests.failAll(new RuntimeException("WebSocket disconnected"));
     }
 
     @Override
@@ -132,51 +213,146 @@ public class WebSocketCommunicationService implements CommunicationService {
     }
 
     public <T> T sendCommand(Map<String, Object> command, Class<T> responseType) throws Exception {
-        if (!isConnected()) {
-            connect();
+        try {
+            return sendCommandAsync(command, responseType).join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
         }
+    }
+
+    /**
+     * Sends the command through its priority lane; it goes out once the lane has in-flight
+     * budget, ahead of anything waiting in lower lanes.
+     */
+    public <T> CompletableFuture<T> sendCommandAsync(Map<String, Object> command, Class<T> responseType) {
+        PriorityLanes.Lane lane = PriorityLanes.laneOf((String) command.get("command"));
+        return lanes.submit(lane, () -> dispatch(command, responseType));
+    }
 
-        String id = String.valueOf(idCounter.incrementAndGet());
-        command.put("id", id);
+    private <T> CompletableFuture<T> dispatch(Map<String, Object> command, Class<T> responseType) {
+        long id = pendingRequests.nextId();
+        command.put("id", String.valueOf(id));
 
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put(id, future);
+        CompletableFuture<Object> future = pendingRequests.register(id);
 
-        try {
-            String json = mapper.writeValueAsString(command);
-            session.sendMessage(new TextMessage(json));
-            System.out.println("WebSocket sent: " + json);
+        if (!future.isDone()) {
+            try {
+                // Reconnecting here would hold the lane for the handshake; TransportConnectionManager
+                // reconnects in the background with backoff
+                if (!isConnected()) {
+                    throw new RuntimeException("WebSocket is not connected");
+                }
 
-            String response = future.get(5, TimeUnit.SECONDS); //TODO test maybe rewrite
-            return mapper.readValue(response, responseType);
+                if (binaryMode) {
+                    sendBinaryCommand(command, id);
+                } else {
+                    String json = mapper.writeValueAsString(command);
+                    session.sendMessage(new TextMessage(json));
+                    System.out.println("WebSocket sent: " + json);
+                }
+            } catch (Exception e) {
+                pendingRequests.fail(id, e);
+            }
+        }
 
-        } catch (TimeoutException e) {
-            pendingRequests.remove(id);
-            throw new RuntimeException("WebSocket request timeout for command: " + command.get("command"));
+        return future.handle((response, error) -> {
+            if (error == null) {
+                return readResponse(response, responseType);
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof TimeoutException) {
+                throw new RuntimeException("WebSocket request timeout for command: " + command.get("command"));
+            }
+            throw new RuntimeException("WebSocket command failed: " + cause.getMessage(), cause);
+        });
+    }
+
+    private void sendBinaryCommand(Map<String, Object> command, long id) throws Exception {
+        Object speed = command.get("speed");
+        Object angle = command.get("angle");
+
+        // A fresh buffer per frame: while another lane is sending, the decorated session only
+        // queues the message and writes it later, so the buffer must not be reused on return
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.REQUEST_FRAME_SIZE);
+        BinaryFrameCodec.encodeRequest(frame,
+                BinaryFrameCodec.opcode((String) command.get("command")),
+                id,
+                (String) command.get("direction"),
+                speed != null ? ((Number) speed).intValue() : 0,
+                angle != null ? ((Number) angle).doubleValue() : null);
+        session.sendMessage(new BinaryMessage(frame));
+    }
+
+    private <T> T readResponse(Object response, Class<T> responseType) {
+        if (responseType.isInstance(response)) {
+            return responseType.cast(response);
+        }
+        try {
+            return mapper.readValue((String) response, responseType);
         } catch (Exception e) {
-            pendingRequests.remove(id);
             throw new RuntimeException("WebSocket command failed: " + e.getMessage(), e);
         }
     }
 
-    @SuppressWarnings("unchecked")
+    private void handleBinaryResponse(ByteBuffer frame) {
+        try {
+            if (frame.remaining() < BinaryFrameCodec.RESPONSE_HEADER_SIZE) {
+                pendingRequests.recordOrphan();
+                log.warn("Received truncated binary frame: {} bytes", frame.remaining());
+                return;
+            }
+
+            long id = BinaryFrameCodec.responseId(frame);
+            Object response;
+            try {
+                response = BinaryFrameCodec.decodeResponse(frame);
+            } catch (IllegalArgumentException e) {
+                // The header names the request, so fail it now rather than let it wait out the timeout
+                if (!pendingRequests.fail(id, e)) {
+                    pendingRequests.recordOrphan();
+                }
+                log.warn("Rejected binary response for ID {}: {}", id, e.getMessage());
+                return;
+            }
+            if (!pendingRequests.complete(id, response)) {
+                log.warn("No pending request found for ID: {}", id);
+            }
+        } catch (Exception e) {
+            pendingRequests.recordOrphan();
+            log.error("Error handling binary response", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    public CorrelationMetricsDto getCorrelationMetrics() {
+        return pendingRequests.metrics();
+    }
+
+    public List<LaneMetricsDto> getLaneMetrics() {
+        return lanes.metrics();
+    }
+
     private void handleResponse(String json) {
         try {
-            Map<String, Object> response = mapper.readValue(json, Map.class);
-            Object idObj = response.get("id");
-
-            if (idObj != null) {
-                String id = String.valueOf(idObj);
-                CompletableFuture<String> future = pendingRequests.remove(id);
-                if (future != null) {
-                    future.complete(json);
-                } else {
-                    System.err.println("No pending request found for ID: " + id);
+            // Only the id is scanned here, the payload is deserialized once by the waiting request
+            long id = JsonIdScanner.extractId(json);
+
+            if (id != JsonIdScanner.NO_ID) {
+                if (!pendingRequests.complete(id, json)) {
+                    log.warn("No pending request found for ID: {}", id);
                 }
             } else {
+                pendingRequests.recordOrphan();
                 System.err.println("Received response without ID: " + json);
             }
         } catch (Exception e) {
+            pendingRequests.recordOrphan();
             System.err.println("Error handling response: " + e.getMessage());
         }
     }
@@ -191,6 +367,8 @@ public class WebSocketCommunicationService implements CommunicationService {
         public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) {
             if (message instanceof TextMessage) {
                 handleResponse(((TextMessage) message).getPayload());
+            } else if (message instanceof BinaryMessage) {
+                handleBinaryResponse(((BinaryMessage) message).getPayload());
             }
         }
 
@@ -198,21 +376,14 @@ public class WebSocketCommunicationService implements CommunicationService {
         public void handleTransportError(WebSocketSession session, Throwable exception) {
             System.err.println("WebSocket transport error: " + exception.getMessage());
             connected = false;
-            for (CompletableFuture<String> future : pendingRequests.values()) {
-                future.completeExceptionally(exception);
-            }
-            pendingRequests.clear();
+            pendingRequests.failAll(exception);
         }
 
         @Override
         public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
             System.out.println("WebSocket connection closed: " + status);
             connected = false;
-
-            for (CompletableFuture<String> future : pendingRequests.values()) {
-                future.completeExceptionally(new RuntimeException("WebSocket connection closed"));
-            }
-            pendingRequests.clear();
+            pendingRequests.failAll(new RuntimeException("WebSocket connection closed"));
         }
 
         @Override
@@ -0,0 +1,181 @@
+package org.example.diplomwork.util.codec;
+
+import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
+import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
+import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-layout binary frames for the WebSocket device link, all values little-endian.
+ * <pre>
+ * Request  (12 bytes): opcode u8 | flags u8 | id u32 | direction u8 | speed u8 | angle f32
+ * Response header (6): opcode|0x80 u8 | status u8 (0 = ok) | id u32
+ *   move/stop (+16): direction u8 | speed u8 | moving u8 | reserved u8 | angle f32 | timestamp u32 | operationId u32
+ *   status    (+20): direction u8 | speed u8 | moving u8 | wifi u8 | angle f32 | uptime u32 | duration u32 | ip 4 x u8
+ *   info      (+26): ip 4 x u8 | version 3 x u8 | directions mask u8 | max speed u8 | reserved u8 | name 16 x ASCII
+ * </pre>
+ * IDs are the low 32 bits of the request ID.
+ */
+public final class BinaryFrameCodec {
+    public static final String SUBPROTOCOL = "esp32.binary.v1";
+
+    public static final byte OP_MOVE = 0x01;
+    public static final byte OP_STOP = 0x02;
+    public static final byte OP_STATUS = 0x03;
+    public static final byte OP_INFO = 0x04;
+
+    public static final int REQUEST_FRAME_SIZE = 12;
+    public static final int RESPONSE_HEADER_SIZE = 6;
+
+    private static final int RESPONSE_FLAG = 0x80;
+    private static final int FLAG_ANGLE = 0x01;
+    private static final int NAME_LENGTH = 16;
+    private static final int COMMAND_PAYLOAD_SIZE = 16;
+    private static final int STATUS_PAYLOAD_SIZE = 20;
+    private static final int INFO_PAYLOAD_SIZE = 26;
+    private static final String[] DIRECTIONS = {"stop", "forward", "backward", "left", "right"};
+
+    private BinaryFrameCodec() {
+    }
+
+    public static byte opcode(String command) {
+        return switch (command) {
+            case "move" -> OP_MOVE;
+            case "stop" -> OP_STOP;
+            case "status" -> OP_STATUS;
+            case "info" -> OP_INFO;
+            default -> throw new IllegalArgumentException("Unsupported binary command: " + command);
+        };
+    }
+
+    public static void encodeRequest(ByteBuffer target, byte opcode, long id,
+                                     String direction, int speed, Double angle) {
+        target.clear();
+        target.order(ByteOrder.LITTLE_ENDIAN);
+        target.put(opcode);
+        target.put((byte) (angle != null ? FLAG_ANGLE : 0));
+        target.putInt((int) id);
+        target.put(direction != null ? directionCode(direction) : 0);
+        target.put((byte) Math.max(0, Math.min(255, speed)));
+        target.putFloat(angle != null ? angle.floatValue() : 0f);
+        target.flip();
+    }
+
+    public static long responseId(ByteBuffer frame) {
+        return Integer.toUnsignedLong(frame.order(ByteOrder.LITTLE_ENDIAN).getInt(frame.position() + 2));
+    }
+
+    /**
+     * Decodes a response frame into the DTO matching its opcode.
+     *
+     * @throws IllegalArgumentException if the opcode is unknown or the frame is shorter than its payload
+     */
+    public static Object decodeResponse(ByteBuffer frame) {
+        ByteBuffer buffer = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int opcode = buffer.get() & 0xFF & ~RESPONSE_FLAG;
+        String status = buffer.get() == 0 ? "ok" : "error";
+        buffer.getInt();
+
+        int payloadSize = payloadSize(opcode);
+        if (buffer.remaining() < payloadSize) {
+            throw new IllegalArgumentException("Truncated binary response for opcode " + opcode + ": "
+                    + buffer.remaining() + " payload bytes, expected " + payloadSize);
+        }
+
+        return switch (opcode) {
+            case OP_MOVE, OP_STOP -> decodeCommandResponse(buffer, status);
+            case OP_STATUS -> decodeStatusResponse(buffer, status);
+            case OP_INFO -> decodeInfoResponse(buffer, status);
+            default -> throw new IllegalArgumentException("Unknown binary response opcode: " + opcode);
+        };
+    }
+
+    private static int payloadSize(int opcode) {
+        return switch (opcode) {
+            case OP_MOVE, OP_STOP -> COMMAND_PAYLOAD_SIZE;
+            case OP_STATUS -> STATUS_PAYLOAD_SIZE;
+            case OP_INFO -> INFO_PAYLOAD_SIZE;
+            default -> throw new IllegalArgumentException("Unknown binary response opcode: " + opcode);
+        };
+    }
+
+    private static ESP32ResponseDto decodeCommandResponse(ByteBuffer buffer, String status) {
+        ESP32ResponseDto response = new ESP32ResponseDto();
+        response.setStatus(status);
+        response.setDirection(directionName(buffer.get()));
+        response.setSpeed(buffer.get() & 0xFF);
+        response.setIsMoving(buffer.get() != 0);
+        buffer.get();
+        response.setAngle((double) buffer.getFloat());
+        response.setTimestamp(Integer.toUnsignedLong(buffer.getInt()));
+        response.setOperationId(buffer.getInt());
+        return response;
+    }
+
+    private static ESP32StatusResponseDto decodeStatusResponse(ByteBuffer buffer, String status) {
+        ESP32StatusResponseDto response = new ESP32StatusResponseDto();
+        response.setStatus(status);
+        response.setCurrentDirection(directionName(buffer.get()));
+        response.setCurrentSpeed(buffer.get() & 0xFF);
+        response.setIsMoving(buffer.get() != 0);
+        response.setWifiStatus(buffer.get() != 0 ? "connected" : "disconnected");
+        response.setCurrentAngle(buffer.getFloat());
+        response.setUptime(Integer.toUnsignedLong(buffer.getInt()));
+        response.setOperationDuration(Integer.toUnsignedLong(buffer.getInt()));
+        response.setIp(readIp(buffer));
+        return response;
+    }
+
+    private static ESP32InfoResponseDto decodeInfoResponse(ByteBuffer buffer, String status) {
+        ESP32InfoResponseDto response = new ESP32InfoResponseDto();
+        response.setStatus(status);
+        response.setIp(readIp(buffer));
+        response.setVersion((buffer.get() & 0xFF) + "." + (buffer.get() & 0xFF) + "." + (buffer.get() & 0xFF));
+
+        int directionMask = buffer.get() & 0xFF;
+        int maxSpeed = buffer.get() & 0xFF;
+        buffer.get();
+
+        byte[] name = new byte[NAME_LENGTH];
+        buffer.get(name);
+        int length = 0;
+        while (length < NAME_LENGTH && name[length] != 0) {
+            length++;
+        }
+        response.setPlatformName(new String(name, 0, length, StandardCharsets.US_ASCII));
+
+        List<String> directions = new ArrayList<>();
+        for (int i = 1; i < DIRECTIONS.length; i++) {
+            if ((directionMask & (1 << (i - 1))) != 0) {
+                directions.add(DIRECTIONS[i]);
+            }
+        }
+        response.setCapabilities(new ESP32InfoResponseDto.Capabilities(
+                String.join(",", directions), "0-" + maxSpeed));
+        return response;
+    }
+
+    private static byte directionCode(String direction) {
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            if (DIRECTIONS[i].equals(direction)) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported direction: " + direction);
+    }
+
+    private static String directionName(byte code) {
+        int index = code & 0xFF;
+        return index < DIRECTIONS.length ? DIRECTIONS[index] : "unknown";
+    }
+
+    private static String readIp(ByteBuffer buffer) {
+        return (buffer.get() & 0xFF) + "." + (buffer.get() & 0xFF) + "."
+                + (buffer.get() & 0xFF) + "." + (buffer.get() & 0xFF);
+    }
+}
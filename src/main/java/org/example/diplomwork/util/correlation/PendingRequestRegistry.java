@@ -0,0 +1,195 @@
+package org.example.diplomwork.util.correlation;
+
+import org.example.diplomwork.dto.metrics.CorrelationMetricsDto;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Correlates device responses with the requests waiting for them.
+ * <p>
+ * IDs are sequential longs, so a pending request lives in slot {@code id & mask} of a fixed array
+ * instead of a map entry. Whoever removes a request from its slot (response, timeout or failure)
+ * is the only one allowed to complete its future, so every future is completed exactly once.
+ * Timeouts of all registries run on one shared scheduler thread.
+ */
+public class PendingRequestRegistry<T> {
+    private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER = createScheduler();
+
+    private final String name;
+    private final long timeoutMillis;
+    private final int mask;
+    private final AtomicReferenceArray<PendingRequest<T>> slots;
+    private final AtomicLong idCounter = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder late = new LongAdder();
+    private final LongAdder orphaned = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public PendingRequestRegistry(String name, int capacity, Duration timeout) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.name = name;
+        this.timeoutMillis = timeout.toMillis();
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public long nextId() {
+        return idCounter.incrementAndGet();
+    }
+
+    public CompletableFuture<T> register(long id) {
+        PendingRequest<T> request = new PendingRequest<>(id);
+        int slot = slot(id);
+
+        if (!slots.compareAndSet(slot, null, request)) {
+            rejected.increment();
+            request.future.completeExceptionally(
+                    new IllegalStateException(name + ": too many pending requests"));
+            return request.future;
+        }
+
+        pending.incrementAndGet();
+        request.timeoutTask = TIMEOUT_SCHEDULER.schedule(
+                () -> expire(slot, request), timeoutMillis, TimeUnit.MILLISECONDS);
+        return request.future;
+    }
+
+    public boolean complete(long id, T response) {
+        PendingRequest<T> request = remove(id);
+        if (request == null) {
+            recordUnmatched(id);
+            return false;
+        }
+        completed.increment();
+        return request.future.complete(response);
+    }
+
+    /**
+     * Completes the oldest pending request, for devices that answer without echoing the ID.
+     */
+    public boolean completeOldest(T response) {
+        PendingRequest<T> oldest = null;
+        for (int i = 0; i < slots.length(); i++) {
+            PendingRequest<T> request = slots.get(i);
+            if (request != null && (oldest == null || request.id < oldest.id)) {
+                oldest = request;
+            }
+        }
+        if (oldest == null || remove(oldest.id) != oldest) {
+            orphaned.increment();
+            return false;
+        }
+        completed.increment();
+        return oldest.future.complete(response);
+    }
+
+    public boolean fail(long id, Throwable error) {
+        PendingRequest<T> request = remove(id);
+        if (request == null) {
+            return false;
+        }
+        failed.increment();
+        return request.future.completeExceptionally(error);
+    }
+
+    public void failAll(Throwable error) {
+        for (int i = 0; i < slots.length(); i++) {
+            PendingRequest<T> request = slots.get(i);
+            if (request != null && slots.compareAndSet(i, request, null)) {
+                release(request);
+                failed.increment();
+                request.future.completeExceptionally(error);
+            }
+        }
+    }
+
+    public boolean isPending(long id) {
+        PendingRequest<T> request = slots.get(slot(id));
+        return request != null && request.id == id;
+    }
+
+    public void recordOrphan() {
+        orphaned.increment();
+    }
+
+    public CorrelationMetricsDto metrics() {
+        return new CorrelationMetricsDto(
+                name,
+                pending.get(),
+                completed.sum(),
+                timedOut.sum(),
+                late.sum(),
+                orphaned.sum(),
+                rejected.sum(),
+                failed.sum()
+        );
+    }
+
+    private PendingRequest<T> remove(long id) {
+        int slot = slot(id);
+        PendingRequest<T> request = slots.get(slot);
+        if (request == null || request.id != id || !slots.compareAndSet(slot, request, null)) {
+            return null;
+        }
+        release(request);
+        return request;
+    }
+
+    private void expire(int slot, PendingRequest<T> request) {
+        if (slots.compareAndSet(slot, request, null)) {
+            pending.decrementAndGet();
+            timedOut.increment();
+            request.future.completeExceptionally(new TimeoutException(
+                    name + " request " + request.id + " timed out after " + timeoutMillis + " ms"));
+        }
+    }
+
+    private void release(PendingRequest<T> request) {
+        pending.decrementAndGet();
+        Future<?> timeoutTask = request.timeoutTask;
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    private void recordUnmatched(long id) {
+        // An ID we issued that is no longer pending has already timed out or failed
+        if (id > 0 && id <= idCounter.get()) {
+            late.increment();
+        } else {
+            orphaned.increment();
+        }
+    }
+
+    private int slot(long id) {
+        return (int) (id & mask);
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("request-timeout").daemon().factory());
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static final class PendingRequest<T> {
+        private final long id;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile Future<?> timeoutTask;
+
+        private PendingRequest(long id) {
+            this.id = id;
+        }
+    }
+}
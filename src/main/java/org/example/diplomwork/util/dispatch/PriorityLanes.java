@@ -0,0 +1,149 @@
+package org.example.diplomwork.util.dispatch;
+
+import org.example.diplomwork.config.TransportLaneProperties;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
+import org.example.diplomwork.util.metrics.LatencyRecorder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Prioritized dispatch of device calls on one transport. Each lane has its own in-flight
+ * budget, and free budget is handed out in lane order, so a stop never waits behind moves or
+ * status polls and never competes with them for a slot.
+ *
+ * <p>Dispatch is lock-free: whichever thread submits or completes a call drains the lanes,
+ * and concurrent drain requests are folded into the running one. A completion is handled on
+ * the completion executor, so a transport whose calls complete on a client callback thread
+ * can keep the next send off that thread.
+ */
+public class PriorityLanes {
+    public enum Lane {
+        STOP,
+        MOVE,
+        POLL
+    }
+
+    private final String transport;
+    private final LaneState[] lanes;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final Executor completionExecutor;
+
+    public PriorityLanes(String transport, TransportLaneProperties properties) {
+        this(transport, properties, Runnable::run);
+    }
+
+    public PriorityLanes(String transport, TransportLaneProperties properties, Executor completionExecutor) {
+        this.transport = transport;
+        this.completionExecutor = completionExecutor;
+        this.lanes = new LaneState[] {
+                new LaneState(Lane.STOP, properties.getStopBudget()),
+                new LaneState(Lane.MOVE, properties.getMoveBudget()),
+                new LaneState(Lane.POLL, properties.getPollBudget())
+        };
+    }
+
+    public static Lane laneOf(String command) {
+        return switch (command) {
+            case "stop" -> Lane.STOP;
+            case "move" -> Lane.MOVE;
+            default -> Lane.POLL;
+        };
+    }
+
+    public <T> CompletableFuture<T> submit(Lane lane, Supplier<CompletableFuture<T>> call) {
+        Pending<T> pending = new Pending<>(call, System.nanoTime());
+        lanes[lane.ordinal()].queue.offer(pending);
+        drain();
+        return pending.result;
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            // Only the draining thread starts calls, so the budget check cannot be overtaken
+            for (LaneState lane : lanes) {
+                while (lane.inFlight.get() < lane.budget) {
+                    Pending<?> next = lane.queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    lane.inFlight.incrementAndGet();
+                    start(lane, next);
+                }
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private <T> void start(LaneState lane, Pending<T> pending) {
+        lane.queueWait.recordSince(pending.enqueuedNanos);
+
+        CompletableFuture<T> call;
+        try {
+            call = pending.call.get();
+        } catch (Throwable e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        call.whenCompleteAsync((value, error) -> {
+            lane.inFlight.decrementAndGet();
+            lane.latency.recordSince(pending.enqueuedNanos);
+            if (error == null) {
+                pending.result.complete(value);
+            } else {
+                pending.result.completeExceptionally(error);
+            }
+            drain();
+        }, completionExecutor);
+    }
+
+    public List<LaneMetricsDto> metrics() {
+        return Arrays.stream(lanes)
+                .map(lane -> new LaneMetricsDto(
+                        transport,
+                        lane.lane.name(),
+                        lane.budget,
+                        lane.inFlight.get(),
+                        lane.queue.size(),
+                        lane.queueWait.snapshot(),
+                        lane.latency.snapshot()
+                ))
+                .toList();
+    }
+
+    private static class LaneState {
+        private final Lane lane;
+        private final int budget;
+        private final Queue<Pending<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LatencyRecorder queueWait = new LatencyRecorder("queueWait");
+        private final LatencyRecorder latency = new LatencyRecorder("latency");
+
+        private LaneState(Lane lane, int budget) {
+            if (budget < 1) {
+                throw new IllegalArgumentException("Lane " + lane + " needs a budget of at least 1");
+            }
+            this.lane = lane;
+            this.budget = budget;
+        }
+    }
+
+    private static class Pending<T> {
+        private final Supplier<CompletableFuture<T>> call;
+        private final long enqueuedNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(Supplier<CompletableFuture<T>> call, long enqueuedNanos) {
+            this.call = call;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.diplomwork.util.history;
+
+/**
+ * Reusable block of history rows in primitive columns, filled by
+ * {@link MovementHistoryBuffer#fill}. Streaming consumers keep one chunk for the whole export,
+ * so their memory does not grow with the history.
+ */
+public class HistoryChunk {
+    final long[] timestamps;
+    final double[] xs;
+    final double[] ys;
+    final double[] angles;
+    final double[] distances;
+    final String[] directions;
+    final int[] speeds;
+    int size;
+    long lastSequence;
+    boolean hasMore;
+
+    public HistoryChunk(int capacity) {
+        this.timestamps = new long[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.angles = new double[capacity];
+        this.distances = new double[capacity];
+        this.directions = new String[capacity];
+        this.speeds = new int[capacity];
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
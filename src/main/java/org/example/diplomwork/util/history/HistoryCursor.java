@@ -0,0 +1,44 @@
+package org.example.diplomwork.util.history;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque pagination cursor for the movement history: the buffer epoch and the last sequence
+ * a client has seen, packed into 16 bytes and Base64url encoded.
+ */
+public final class HistoryCursor {
+    // Start of the history, before the first sequence
+    public static final long START = -1;
+
+    private static final int SIZE = 2 * Long.BYTES;
+
+    private HistoryCursor() {
+    }
+
+    public static String encode(long epoch, long sequence) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).putLong(epoch).putLong(sequence);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * The sequence to continue after, or {@link #START} for no cursor or one issued before the
+     * history was recreated.
+     */
+    public static long decode(String cursor, long epoch) {
+        if (cursor == null || cursor.isEmpty()) {
+            return START;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor, e);
+        }
+        if (bytes.length != SIZE) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return buffer.getLong() == epoch ? Math.max(START, buffer.getLong()) : START;
+    }
+}
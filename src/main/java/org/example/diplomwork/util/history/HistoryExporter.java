@@ -0,0 +1,119 @@
+package org.example.diplomwork.util.history;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes movement history as NDJSON or CSV straight from the buffer, one reusable chunk at a
+ * time, flushing after every chunk. Memory use is fixed by the chunk size, not the history.
+ *
+ * <p>The export covers the entries present when it starts; movements recorded while it runs
+ * are left for the next export.
+ */
+public final class HistoryExporter {
+    public static final int CHUNK_SIZE = 1024;
+
+    private static final String CSV_HEADER = "timestamp,direction,speed,x,y,angle,distanceTravelled\n";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + name);
+        }
+    }
+
+    private HistoryExporter() {
+    }
+
+    /**
+     * Writes every entry with {@code from <= timestamp <= to} and returns how many were written.
+     */
+    public static long export(MovementHistoryBuffer buffer, long from, long to, Format format, Writer out)
+            throws IOException {
+        HistoryChunk chunk = new HistoryChunk(CHUNK_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        // Directions come from a small dictionary, so each one is escaped once per export
+        Map<String, String> escaped = new HashMap<>();
+        long untilSequence = buffer.lastSequence();
+        long afterSequence = HistoryCursor.START;
+        long rows = 0;
+
+        if (format == Format.CSV) {
+            out.write(CSV_HEADER);
+        }
+        do {
+            buffer.fill(chunk, from, to, afterSequence, untilSequence);
+            for (int i = 0; i < chunk.size; i++) {
+                line.setLength(0);
+                if (format == Format.NDJSON) {
+                    appendJson(line, chunk, i, escaped);
+                } else {
+                    appendCsv(line, chunk, i, escaped);
+                }
+                out.append(line);
+            }
+            out.flush();
+            rows += chunk.size;
+            afterSequence = chunk.lastSequence;
+        } while (chunk.hasMore);
+        return rows;
+    }
+
+    // Same shape as a MovementHistory entry of /history
+    private static void appendJson(StringBuilder line, HistoryChunk chunk, int i, Map<String, String> escaped) {
+        line.append("{\"direction\":\"")
+                .append(escaped.computeIfAbsent(chunk.directions[i],
+                        direction -> new String(JsonStringEncoder.getInstance().quoteAsString(direction))))
+                .append("\",\"speed\":").append(chunk.speeds[i])
+                .append(",\"timestamp\":").append(chunk.timestamps[i])
+                .append(",\"position\":{\"x\":").append(chunk.xs[i])
+                .append(",\"y\":").append(chunk.ys[i])
+                .append("},\"angle\":").append(chunk.angles[i])
+                .append(",\"distanceTravelled\":").append(chunk.distances[i])
+                .append("}\n");
+    }
+
+    private static void appendCsv(StringBuilder line, HistoryChunk chunk, int i, Map<String, String> escaped) {
+        line.append(chunk.timestamps[i]).append(',')
+                .append(escaped.computeIfAbsent(chunk.directions[i], HistoryExporter::csvField)).append(',')
+                .append(chunk.speeds[i]).append(',')
+                .append(chunk.xs[i]).append(',')
+                .append(chunk.ys[i]).append(',')
+                .append(chunk.angles[i]).append(',')
+                .append(chunk.distances[i]).append('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,547 @@
+package org.example.diplomwork.util.history;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of movements and pose checkpoints in memory-mapped segment files.
+ * Every entry is one fixed 64-byte record, so an append is a copy into the mapped page cache
+ * with no system call, and replay is a sequential scan of the mapped files.
+ *
+ * <p>A background thread forces the mapped segments to disk every commit interval, so all
+ * records appended in between are committed together. It also maps the next segment ahead of
+ * time and deletes segments beyond the retention limit, which keeps file operations off the
+ * append path.
+ *
+ * <p>Each record carries a CRC32C of its contents. A scan stops at the first record that does
+ * not match, which is where a segment ends or where a crash tore the tail, and appends resume
+ * from there.
+ *
+ * <p>The first record of every segment is a header with the journal epoch and the sequence of
+ * the segment's first movement. Movements are numbered in append order, so a history rebuilt
+ * by {@link #replay} can hand out the same sequences, and cursors, it did before a restart.
+ */
+@Slf4j
+public class HistoryJournal implements AutoCloseable {
+    public static final int RECORD_SIZE = 64;
+    // Longer directions are truncated; the platform commands are short words
+    static final int MAX_DIRECTION_BYTES = 14;
+
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    // Record layout, little-endian
+    private static final int CRC = 0;
+    private static final int KIND = 4;
+    private static final int DIRECTION_LENGTH = 5;
+    private static final int DIRECTION = 6;
+    private static final int SPEED = 20;
+    private static final int TIMESTAMP = 24;
+    private static final int X = 32;
+    private static final int Y = 40;
+    private static final int ANGLE = 48;
+    private static final int DISTANCE = 56;
+
+    // Header layout, record 0 of every segment
+    private static final byte HEADER = (byte) 0x7F;
+    private static final int EPOCH = 8;
+    private static final int FIRST_SEQUENCE = 16;
+
+    public enum Kind {
+        // An acknowledged move, replayed into the history and the pose
+        MOVE,
+        // A pose without a movement (a stop or a reset), replayed into the pose only
+        POSE;
+
+        private static final Kind[] VALUES = values();
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void record(Kind kind, long timestamp, double x, double y, double angle, double distance,
+                    String direction, int speed);
+    }
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    private final long epoch;
+    private final long firstSequence;
+    private final long commitIntervalNanos;
+    private final ScheduledExecutorService committer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+    private final Deque<Path> retained = new ArrayDeque<>();
+    private final List<Segment> sealed = new ArrayList<>();
+    private final List<Path> retired = new ArrayList<>();
+    private Segment active;
+    private Segment spare;
+    private int position;
+    // Sequence the next movement gets
+    private long nextSequence;
+    private long appended;
+    private long failed;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and starts the committer.
+     */
+    public static HistoryJournal open(Path directory, long segmentBytes, int maxSegments, Duration commitInterval) {
+        HistoryJournal journal = new HistoryJournal(directory, segmentBytes, maxSegments, commitInterval);
+        journal.committer.scheduleWithFixedDelay(journal::commit, journal.commitIntervalNanos,
+                journal.commitIntervalNanos, TimeUnit.NANOSECONDS);
+        return journal;
+    }
+
+    private HistoryJournal(Path directory, long segmentBytes, int maxSegments, Duration commitInterval) {
+        if (segmentBytes < 2L * RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal segment must hold a header and one record: " + segmentBytes);
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("Journal must keep at least one segment: " + maxSegments);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = (int) Math.min(segmentBytes / RECORD_SIZE, Integer.MAX_VALUE / RECORD_SIZE);
+        this.maxSegments = maxSegments;
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segmentFiles();
+            retained.addAll(segments);
+            active = segments.isEmpty() ? map(0) : map(indexOf(segments.getLast()));
+            if (segments.isEmpty()) {
+                retained.add(active.path);
+            }
+
+            nextSequence = sequenceAfter(segments);
+            ByteBuffer first = null;
+            for (int i = 0; i < segments.size() && first == null; i++) {
+                first = header(i == segments.size() - 1 ? active.buffer : mapReadOnly(segments.get(i)));
+            }
+            if (first != null) {
+                this.epoch = first.getLong(EPOCH);
+                this.firstSequence = first.getLong(FIRST_SEQUENCE);
+            } else {
+                this.epoch = ThreadLocalRandom.current().nextLong();
+                this.firstSequence = nextSequence;
+            }
+
+            // A segment without a header was mapped ahead of time and never written to
+            if (header(active.buffer) == null) {
+                writeHeader(active.buffer);
+                position = 1;
+            } else {
+                position = scan(active.buffer).end();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open history journal in " + directory, e);
+        }
+
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.committer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("history-journal").daemon().factory());
+    }
+
+    /**
+     * Scans every retained segment oldest first and hands each valid record to the visitor.
+     * Returns the number of records replayed.
+     */
+    public long replay(RecordVisitor visitor) {
+        List<Path> segments;
+        lock.lock();
+        try {
+            segments = List.copyOf(retained);
+        } finally {
+            lock.unlock();
+        }
+
+        byte[] bytes = new byte[RECORD_SIZE];
+        ByteBuffer view = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C check = new CRC32C();
+        DirectionDecoder directions = new DirectionDecoder();
+        long replayed = 0;
+        for (Path segment : segments) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read history journal segment " + segment, e);
+            }
+
+            if (header(buffer) == null) {
+                continue;
+            }
+            int records = buffer.capacity() / RECORD_SIZE;
+            for (int i = 1; i < records; i++) {
+                buffer.get(i * RECORD_SIZE, bytes);
+                if (!isValid(view, check)) {
+                    break;
+                }
+                visitor.record(
+                        Kind.VALUES[view.get(KIND) - 1],
+                        view.getLong(TIMESTAMP),
+                        view.getDouble(X),
+                        view.getDouble(Y),
+                        view.getDouble(ANGLE),
+                        view.getDouble(DISTANCE),
+                        directions.decode(bytes, view.get(DIRECTION_LENGTH)),
+                        view.getInt(SPEED)
+                );
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Appends one record. The record is in the page cache when this returns and reaches the
+     * disk with the next commit. Failures are logged and counted, never thrown, so the
+     * journal cannot fail a move.
+     */
+    public void append(Kind kind, long timestamp, double x, double y, double angle, double distance,
+                       String direction, int speed) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (position == active.records && !roll()) {
+                failed++;
+                return;
+            }
+
+            encode(kind, timestamp, x, y, angle, distance, direction, speed);
+            active.buffer.put(position * RECORD_SIZE, record);
+            position++;
+            appended++;
+            if (kind == Kind.MOVE) {
+                nextSequence++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called under the lock with the active segment full
+    private boolean roll() {
+        long next = active.index + 1;
+        Segment segment = spare != null && spare.index == next ? spare : null;
+        spare = null;
+        if (segment == null) {
+            // The committer had no segment ready yet, so the append path maps one itself
+            try {
+                segment = map(next);
+            } catch (IOException e) {
+                log.warn("Failed to create history journal segment {}: {}", next, e.getMessage());
+                return false;
+            }
+        }
+
+        sealed.add(active);
+        active = segment;
+        writeHeader(active.buffer);
+        position = 1;
+        retained.add(segment.path);
+        while (retained.size() > maxSegments) {
+            retired.add(retained.removeFirst());
+        }
+        return true;
+    }
+
+    // Called under the lock
+    private void encode(Kind kind, long timestamp, double x, double y, double angle, double distance,
+                        String direction, int speed) {
+        Arrays.fill(record, DIRECTION, DIRECTION + MAX_DIRECTION_BYTES, (byte) 0);
+        int length = direction != null ? Math.min(direction.length(), MAX_DIRECTION_BYTES) : 0;
+        for (int i = 0; i < length; i++) {
+            char c = direction.charAt(i);
+            record[DIRECTION + i] = (byte) (c < 128 ? c : '?');
+        }
+
+        recordBuffer.put(KIND, (byte) (kind.ordinal() + 1));
+        recordBuffer.put(DIRECTION_LENGTH, (byte) length);
+        recordBuffer.putInt(SPEED, speed);
+        recordBuffer.putLong(TIMESTAMP, timestamp);
+        recordBuffer.putDouble(X, x);
+        recordBuffer.putDouble(Y, y);
+        recordBuffer.putDouble(ANGLE, angle);
+        recordBuffer.putDouble(DISTANCE, distance);
+        crc.reset();
+        crc.update(record, KIND, RECORD_SIZE - KIND);
+        recordBuffer.putInt(CRC, (int) crc.getValue());
+    }
+
+    // Called under the lock, or from the constructor
+    private void writeHeader(MappedByteBuffer buffer) {
+        Arrays.fill(record, (byte) 0);
+        recordBuffer.put(KIND, HEADER);
+        recordBuffer.putLong(EPOCH, epoch);
+        recordBuffer.putLong(FIRST_SEQUENCE, nextSequence);
+        crc.reset();
+        crc.update(record, KIND, RECORD_SIZE - KIND);
+        recordBuffer.putInt(CRC, (int) crc.getValue());
+        buffer.put(0, record);
+    }
+
+    // The segment's header record, or null if it has none
+    private static ByteBuffer header(ByteBuffer buffer) {
+        if (buffer.capacity() < RECORD_SIZE) {
+            return null;
+        }
+        byte[] bytes = new byte[RECORD_SIZE];
+        buffer.get(0, bytes);
+        ByteBuffer view = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (view.get(KIND) != HEADER) {
+            return null;
+        }
+        CRC32C check = new CRC32C();
+        check.update(bytes, KIND, RECORD_SIZE - KIND);
+        return view.getInt(CRC) == (int) check.getValue() ? view : null;
+    }
+
+    // Sequence after the last movement on disk. Only the newest segments can lack a header, and
+    // replay skips those, so the newest segment with one ends the sequence.
+    private long sequenceAfter(List<Path> segments) throws IOException {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            MappedByteBuffer buffer = i == segments.size() - 1 ? active.buffer : mapReadOnly(segments.get(i));
+            ByteBuffer header = header(buffer);
+            if (header != null) {
+                return header.getLong(FIRST_SEQUENCE) + scan(buffer).moves();
+            }
+        }
+        return 0;
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static boolean isValid(ByteBuffer view, CRC32C check) {
+        byte kind = view.get(KIND);
+        if (kind < 1 || kind > Kind.VALUES.length) {
+            return false;
+        }
+        check.reset();
+        check.update(view.array(), KIND, RECORD_SIZE - KIND);
+        return view.getInt(CRC) == (int) check.getValue();
+    }
+
+    // Valid records after the header of a segment that has one
+    private static Scan scan(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[RECORD_SIZE];
+        ByteBuffer view = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C check = new CRC32C();
+        int records = buffer.capacity() / RECORD_SIZE;
+        long moves = 0;
+        for (int i = 1; i < records; i++) {
+            buffer.get(i * RECORD_SIZE, bytes);
+            if (!isValid(view, check)) {
+                return new Scan(i, moves);
+            }
+            if (view.get(KIND) == Kind.MOVE.ordinal() + 1) {
+                moves++;
+            }
+        }
+        return new Scan(records, moves);
+    }
+
+    /**
+     * Forces everything appended so far to disk. Runs on the committer thread every commit
+     * interval; the lock is only held to collect the segments, not for the disk writes.
+     */
+    public void commit() {
+        Segment current;
+        List<Segment> toForce;
+        List<Path> toDelete;
+        lock.lock();
+        try {
+            current = active;
+            toForce = List.copyOf(sealed);
+            toDelete = List.copyOf(retired);
+            sealed.clear();
+            retired.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            for (Segment segment : toForce) {
+                segment.buffer.force();
+            }
+            current.buffer.force();
+            for (Path path : toDelete) {
+                Files.deleteIfExists(path);
+            }
+            prepareSpare(current.index + 1);
+        } catch (Exception e) {
+            // Retried with the next commit; forcing or deleting twice is harmless
+            log.warn("History journal commit failed: {}", e.getMessage());
+            lock.lock();
+            try {
+                sealed.addAll(0, toForce);
+                retired.addAll(0, toDelete);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void prepareSpare(long index) throws IOException {
+        lock.lock();
+        try {
+            if (closed || (spare != null && spare.index == index)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Segment next = map(index);
+        lock.lock();
+        try {
+            if (!closed && active.index + 1 == index) {
+                spare = next;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment map(long index) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // An existing segment keeps its size if segment-size was changed since it was written
+            long size = Math.max(channel.size() / RECORD_SIZE * RECORD_SIZE, (long) recordsPerSegment * RECORD_SIZE);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(index, path, buffer, (int) (size / RECORD_SIZE));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(indexOf(a), indexOf(b)))
+                    .toList();
+        }
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Identifies this journal's history; it is kept for as long as any segment is retained.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Sequence of the first movement {@link #replay} hands over, as it was numbered when
+     * appended.
+     */
+    public long firstSequence() {
+        return firstSequence;
+    }
+
+    public long appended() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long failed() {
+        lock.lock();
+        try {
+            return failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the committer and forces what is left, so a clean shutdown loses nothing.
+     */
+    @Override
+    public void close() {
+        committer.shutdown();
+        try {
+            if (!committer.awaitTermination(5, TimeUnit.SECONDS)) {
+                committer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lock.lock();
+        try {
+            closed = true;
+            spare = null;
+        } finally {
+            lock.unlock();
+        }
+        commit();
+    }
+
+    private record Segment(long index, Path path, MappedByteBuffer buffer, int records) {
+    }
+
+    // end is the index of the first invalid record
+    private record Scan(int end, long moves) {
+    }
+
+    // Replay sees the same few directions over and over, so the last one decoded is reused
+    private static final class DirectionDecoder {
+        private final byte[] last = new byte[MAX_DIRECTION_BYTES];
+        private int lastLength = -1;
+        private String lastDirection;
+
+        private String decode(byte[] bytes, int length) {
+            if (length != lastLength
+                    || !Arrays.equals(bytes, DIRECTION, DIRECTION + length, last, 0, length)) {
+                System.arraycopy(bytes, DIRECTION, last, 0, length);
+                lastLength = length;
+                lastDirection = new String(bytes, DIRECTION, length, StandardCharsets.US_ASCII);
+            }
+            return lastDirection;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.diplomwork.util.history;
+
+import org.example.diplomwork.dto.metrics.HistorySinkMetricsDto;
+import org.example.diplomwork.dto.metrics.LatencyMetricsDto;
+
+/**
+ * Destination for movements and command outcomes outside the service, such as a reporting
+ * database. Both methods are called on the command path, so an implementation must only
+ * hand the row off and never block on I/O.
+ */
+public interface HistorySink extends AutoCloseable {
+    HistorySink DISCARD = new HistorySink() {
+        @Override
+        public void movement(long timestamp, double x, double y, double angle, double distance,
+                             String direction, int speed) {
+        }
+
+        @Override
+        public void command(long timestamp, String command, String protocol, boolean success, long latencyNanos) {
+        }
+
+        @Override
+        public HistorySinkMetricsDto metrics() {
+            return new HistorySinkMetricsDto("discard", 0, 0, 0, 0, 0, 0, 0, 0,
+                    new LatencyMetricsDto("batchWrite", 0, 0, 0));
+        }
+    };
+
+    void movement(long timestamp, double x, double y, double angle, double distance, String direction, int speed);
+
+    void command(long timestamp, String command, String protocol, boolean success, long latencyNanos);
+
+    HistorySinkMetricsDto metrics();
+
+    @Override
+    default void close() {
+    }
+}
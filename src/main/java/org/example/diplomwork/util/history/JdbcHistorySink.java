@@ -0,0 +1,281 @@
+package org.example.diplomwork.util.history;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.diplomwork.config.HistorySinkProperties;
+import org.example.diplomwork.dto.metrics.HistorySinkMetricsDto;
+import org.example.diplomwork.util.metrics.LatencyRecorder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes movements and command outcomes to a relational database in batches. Callers only
+ * add the row to a bounded lock-free queue; one writer thread drains it with
+ * {@code addBatch}/{@code executeBatch} whenever {@code batchSize} rows are waiting or
+ * {@code flushInterval} has passed, one transaction per batch.
+ *
+ * <p>A full queue never holds up the command path: the new row is dropped and counted. A batch
+ * the database rejects is counted as failed and not retried, so a database outage costs rows
+ * instead of memory; the connection is opened again for the next batch.
+ */
+@Slf4j
+public class JdbcHistorySink implements HistorySink {
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS movement_history (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                timestamp_ms BIGINT NOT NULL,
+                direction VARCHAR(32),
+                speed INT NOT NULL,
+                x DOUBLE PRECISION NOT NULL,
+                y DOUBLE PRECISION NOT NULL,
+                angle DOUBLE PRECISION NOT NULL,
+                distance_travelled DOUBLE PRECISION NOT NULL
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS command_audit (
+                id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                timestamp_ms BIGINT NOT NULL,
+                command VARCHAR(32) NOT NULL,
+                protocol VARCHAR(16) NOT NULL,
+                success BOOLEAN NOT NULL,
+                latency_ms DOUBLE PRECISION NOT NULL
+            )"""
+    };
+    private static final String INSERT_MOVEMENT = "INSERT INTO movement_history "
+            + "(timestamp_ms, direction, speed, x, y, angle, distance_travelled) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_COMMAND = "INSERT INTO command_audit "
+            + "(timestamp_ms, command, protocol, success, latency_ms) VALUES (?, ?, ?, ?, ?)";
+
+    private final HistorySinkProperties properties;
+    private final long flushIntervalNanos;
+    private final Queue<Row> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger highWater = new AtomicInteger();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LatencyRecorder batchWrite = new LatencyRecorder("batchWrite");
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread
+    private Connection connection;
+    private PreparedStatement insertMovement;
+    private PreparedStatement insertCommand;
+
+    /**
+     * Creates a sink and starts its writer thread.
+     */
+    public static JdbcHistorySink start(HistorySinkProperties properties) {
+        JdbcHistorySink sink = new JdbcHistorySink(properties);
+        sink.writer.start();
+        return sink;
+    }
+
+    private JdbcHistorySink(HistorySinkProperties properties) {
+        if (properties.getQueueCapacity() < 1 || properties.getBatchSize() < 1) {
+            throw new IllegalArgumentException("History sink queue capacity and batch size must be positive");
+        }
+        this.properties = properties;
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.writer = Thread.ofPlatform().name("history-sink").daemon().unstarted(this::drain);
+    }
+
+    @Override
+    public void movement(long timestamp, double x, double y, double angle, double distance,
+                         String direction, int speed) {
+        offer(new Movement(timestamp, x, y, angle, distance, direction, speed));
+    }
+
+    @Override
+    public void command(long timestamp, String command, String protocol, boolean success, long latencyNanos) {
+        offer(new Command(timestamp, command, protocol, success, latencyNanos / 1_000_000.0));
+    }
+
+    private void offer(Row row) {
+        if (!running || !reserveSlot()) {
+            dropped.increment();
+            return;
+        }
+        queue.offer(row);
+        enqueued.increment();
+        // Wake the writer early once a full batch is waiting
+        if (depth.get() >= properties.getBatchSize()) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = depth.get();
+            if (current >= properties.getQueueCapacity()) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        highWater.accumulateAndGet(current + 1, Math::max);
+        return true;
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (running) {
+            long waitNanos = deadline - System.nanoTime();
+            if (waitNanos > 0 && depth.get() < properties.getBatchSize()) {
+                // A producer unparks after offering, so a full batch cannot be missed between check and park
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            flush();
+            deadline = System.nanoTime() + flushIntervalNanos;
+        }
+        flush();
+        closeConnection();
+        int left = depth.getAndSet(0);
+        if (left > 0) {
+            log.warn("History sink shut down with {} rows not written", left);
+            failed.add(left);
+        }
+    }
+
+    // Writes everything queued, batchSize rows per transaction
+    private void flush() {
+        while (depth.get() > 0) {
+            int rows = 0;
+            Row row;
+            long startNanos = System.nanoTime();
+            try {
+                prepare();
+                while (rows < properties.getBatchSize() && (row = queue.poll()) != null) {
+                    depth.decrementAndGet();
+                    rows++;
+                    row.addTo(this);
+                }
+                if (rows == 0) {
+                    // A producer has reserved a slot but not offered its row yet
+                    return;
+                }
+                insertMovement.executeBatch();
+                insertCommand.executeBatch();
+                connection.commit();
+                written.add(rows);
+                batches.increment();
+                batchWrite.recordSince(startNanos);
+            } catch (SQLException | RuntimeException e) {
+                // The writer thread must survive a misbehaving driver as well as a failed batch
+                log.warn("History sink batch of {} rows failed: {}", rows, e.getMessage());
+                failed.add(rows);
+                closeConnection();
+                if (rows == 0) {
+                    // Cannot connect; leave the rows queued until the next interval
+                    return;
+                }
+            }
+        }
+    }
+
+    private void prepare() throws SQLException {
+        if (connection != null) {
+            return;
+        }
+        connection = DriverManager.getConnection(properties.getUrl(), properties.getUsername(), properties.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+        connection.setAutoCommit(false);
+        insertMovement = connection.prepareStatement(INSERT_MOVEMENT);
+        insertCommand = connection.prepareStatement(INSERT_COMMAND);
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Closing history sink connection failed: {}", e.getMessage());
+        }
+        connection = null;
+        insertMovement = null;
+        insertCommand = null;
+    }
+
+    @Override
+    public HistorySinkMetricsDto metrics() {
+        return new HistorySinkMetricsDto(
+                "jdbc",
+                depth.get(),
+                properties.getQueueCapacity(),
+                highWater.get(),
+                enqueued.sum(),
+                written.sum(),
+                dropped.sum(),
+                failed.sum(),
+                batches.sum(),
+                batchWrite.snapshot()
+        );
+    }
+
+    /**
+     * Stops accepting rows and waits for the writer to flush what is queued.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private sealed interface Row permits Movement, Command {
+        void addTo(JdbcHistorySink sink) throws SQLException;
+    }
+
+    private record Movement(long timestamp, double x, double y, double angle, double distance,
+                            String direction, int speed) implements Row {
+        @Override
+        public void addTo(JdbcHistorySink sink) throws SQLException {
+            PreparedStatement insert = sink.insertMovement;
+            insert.setLong(1, timestamp);
+            insert.setString(2, direction);
+            insert.setInt(3, speed);
+            insert.setDouble(4, x);
+            insert.setDouble(5, y);
+            insert.setDouble(6, angle);
+            insert.setDouble(7, distance);
+            insert.addBatch();
+        }
+    }
+
+    private record Command(long timestamp, String command, String protocol, boolean success,
+                           double latencyMillis) implements Row {
+        @Override
+        public void addTo(JdbcHistorySink sink) throws SQLException {
+            PreparedStatement insert = sink.insertCommand;
+            insert.setLong(1, timestamp);
+            insert.setString(2, command);
+            insert.setString(3, protocol);
+            insert.setBoolean(4, success);
+            insert.setDouble(5, latencyMillis);
+            insert.addBatch();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.example.diplomwork.util.history;
+
+import org.example.diplomwork.config.HistoryProperties.OverflowPolicy;
+import org.example.diplomwork.dto.metrics.HistoryMetricsDto;
+import org.example.diplomwork.entities.MovementHistory;
+import org.example.diplomwork.entities.Position;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed-capacity ring buffer of movement history stored as primitive columns: about 42 bytes
+ * per entry instead of a {@link MovementHistory} with its boxed fields. Directions are
+ * dictionary-coded to one byte and speeds (0-255) are stored unsigned in one byte.
+ *
+ * <p>Appends write into preallocated arrays and do not allocate once a direction has been
+ * seen. Readers copy out under a read lock; {@link MovementHistory} objects are only built for
+ * the entries a caller asks for.
+ *
+ * <p>Every appended entry gets the next sequence number, so entries still in the buffer form a
+ * contiguous sequence range and a sequence maps to its slot directly. Timestamps are kept
+ * non-decreasing, which lets {@link #page} find a time range by binary search.
+ */
+public class MovementHistoryBuffer {
+    private static final int MAX_DIRECTIONS = 256;
+    private static final String UNKNOWN_DIRECTION = "unknown";
+
+    private final int capacity;
+    private final OverflowPolicy overflow;
+    private final long[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] angles;
+    private final double[] distances;
+    private final byte[] directionCodes;
+    private final byte[] speeds;
+    // Code 0 is reserved for directions beyond the dictionary size
+    private final String[] directions = new String[MAX_DIRECTIONS];
+    private final Map<String, Integer> directionIndex = new HashMap<>();
+    private final StampedLock lock = new StampedLock();
+    // Cursors carry this so ones issued by a different history can be recognised
+    private final long epoch;
+    // Sequence of the first entry ever appended
+    private final long firstSequence;
+
+    // Guarded by lock
+    private int head;
+    private int size;
+    private long appended;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long overwritten;
+    private long rejected;
+
+    public MovementHistoryBuffer(int capacity, OverflowPolicy overflow) {
+        this(capacity, overflow, ThreadLocalRandom.current().nextLong(), 0);
+    }
+
+    /**
+     * A buffer continuing an earlier history, such as one replayed from the journal: the first
+     * entry appended gets {@code firstSequence}, so cursors issued before a restart still apply.
+     */
+    public MovementHistoryBuffer(int capacity, OverflowPolicy overflow, long epoch, long firstSequence) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.epoch = epoch;
+        this.firstSequence = firstSequence;
+        this.timestamps = new long[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.angles = new double[capacity];
+        this.distances = new double[capacity];
+        this.directionCodes = new byte[capacity];
+        this.speeds = new byte[capacity];
+        this.directions[0] = UNKNOWN_DIRECTION;
+        this.directionIndex.put(UNKNOWN_DIRECTION, 0);
+    }
+
+    /**
+     * Appends one entry. Returns false if the buffer is full and the policy rejects it.
+     */
+    public boolean append(long timestamp, double x, double y, double angle, double distance,
+                          String direction, int speed) {
+        long stamp = lock.writeLock();
+        try {
+            int slot;
+            if (size < capacity) {
+                slot = (head + size) % capacity;
+                size++;
+            } else if (overflow == OverflowPolicy.OVERWRITE_OLDEST) {
+                slot = head;
+                head = (head + 1) % capacity;
+                overwritten++;
+            } else {
+                rejected++;
+                return false;
+            }
+
+            // A wall clock step backwards must not break the ordering binary search relies on
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            timestamps[slot] = lastTimestamp;
+            xs[slot] = x;
+            ys[slot] = y;
+            angles[slot] = angle;
+            distances[slot] = distance;
+            directionCodes[slot] = (byte) directionCode(direction);
+            speeds[slot] = (byte) Math.max(0, Math.min(255, speed));
+            appended++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Called under the write lock
+    private int directionCode(String direction) {
+        Integer code = directionIndex.get(direction);
+        if (code != null) {
+            return code;
+        }
+        int next = directionIndex.size();
+        if (next >= MAX_DIRECTIONS) {
+            return 0;
+        }
+        directions[next] = direction;
+        directionIndex.put(direction, next);
+        return next;
+    }
+
+    /**
+     * All entries, oldest first.
+     */
+    public List<MovementHistory> snapshot() {
+        long stamp = lock.readLock();
+        try {
+            List<MovementHistory> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entries.add(entryAt((head + i) % capacity));
+            }
+            return entries;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Up to {@code limit} entries with {@code from <= timestamp <= to} and a sequence after
+     * {@code afterSequence}, oldest first. Costs O(log n + k) for k returned entries.
+     */
+    public Page page(long from, long to, long afterSequence, int limit) {
+        long stamp = lock.readLock();
+        try {
+            long oldest = oldestSequence();
+            int start = startIndex(from, afterSequence);
+            int end = upperBound(to);
+
+            int count = Math.max(0, Math.min(limit, end - start));
+            List<MovementHistory> entries = new ArrayList<>(count);
+            for (int i = start; i < start + count; i++) {
+                entries.add(entryAt((head + i) % capacity));
+            }
+            long lastSequence = count > 0 ? oldest + start + count - 1 : Math.max(afterSequence, oldest - 1);
+            return new Page(entries, lastSequence, start + count < end);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the next entries with {@code from <= timestamp <= to}, a sequence after
+     * {@code afterSequence} and at most {@code untilSequence} into the reusable chunk. The
+     * lock is only held for the copy, so a slow consumer never blocks appends.
+     */
+    public void fill(HistoryChunk chunk, long from, long to, long afterSequence, long untilSequence) {
+        long stamp = lock.readLock();
+        try {
+            long oldest = oldestSequence();
+            int start = startIndex(from, afterSequence);
+            int end = (int) Math.min(upperBound(to), Math.max(0, untilSequence + 1 - oldest));
+
+            int count = Math.max(0, Math.min(chunk.capacity(), end - start));
+            for (int i = 0; i < count; i++) {
+                int slot = (head + start + i) % capacity;
+                chunk.timestamps[i] = timestamps[slot];
+                chunk.xs[i] = xs[slot];
+                chunk.ys[i] = ys[slot];
+                chunk.angles[i] = angles[slot];
+                chunk.distances[i] = distances[slot];
+                chunk.directions[i] = directions[directionCodes[slot] & 0xFF];
+                chunk.speeds[i] = speeds[slot] & 0xFF;
+            }
+            chunk.size = count;
+            chunk.lastSequence = count > 0 ? oldest + start + count - 1 : afterSequence;
+            chunk.hasMore = start + count < end;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sequence of the newest entry, or the one before the first sequence if nothing was appended.
+     */
+    public long lastSequence() {
+        long stamp = lock.readLock();
+        try {
+            return firstSequence + appended - 1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Sequence of the oldest entry still held; called under a lock
+    private long oldestSequence() {
+        return firstSequence + appended - size;
+    }
+
+    // First logical index at or after from and after the sequence; called under a lock
+    private int startIndex(long from, long afterSequence) {
+        long oldest = oldestSequence();
+        int start = lowerBound(from);
+        if (afterSequence >= oldest) {
+            start = (int) Math.max(start, Math.min(size, afterSequence + 1 - oldest));
+        }
+        return start;
+    }
+
+    // First logical index with timestamp >= from; called under a lock
+    private int lowerBound(long from) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[(head + mid) % capacity] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First logical index with timestamp > to; called under a lock
+    private int upperBound(long to) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[(head + mid) % capacity] <= to) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Called under a lock
+    private MovementHistory entryAt(int slot) {
+        return new MovementHistory(
+                directions[directionCodes[slot] & 0xFF],
+                speeds[slot] & 0xFF,
+                timestamps[slot],
+                new Position(xs[slot], ys[slot]),
+                angles[slot],
+                distances[slot]
+        );
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public HistoryMetricsDto metrics() {
+        long stamp = lock.readLock();
+        try {
+            return new HistoryMetricsDto(capacity, size, overflow.name(), appended, overwritten, rejected,
+                    directionIndex.size() - 1);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * One page of history. {@code lastSequence} is the sequence of the last entry returned, or
+     * the position the caller already had if nothing new matched; pass it back as
+     * {@code afterSequence} to continue.
+     */
+    public record Page(List<MovementHistory> entries, long lastSequence, boolean hasMore) {
+    }
+}
@@ -0,0 +1,265 @@
+package org.example.diplomwork.util.history;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Simplified copies of the platform path at tolerances {@code base}, {@code 2 * base},
+ * {@code 4 * base} and so on, kept up to date as positions are appended so a query never
+ * reprocesses the history.
+ *
+ * <p>Each level runs a streaming sleeve simplification: from the last kept vertex it tracks
+ * the cone of directions that pass within the tolerance of every position since, and keeps a
+ * new vertex when the next position falls outside that cone or comes back closer to the
+ * vertex than an earlier one. An append is constant work per level, and every dropped position
+ * lies within the level's tolerance of the simplified path.
+ *
+ * <p>Each level keeps at most {@code maxVertices} vertices, the oldest are dropped beyond that.
+ */
+public class PathLevels {
+    private final Level[] levels;
+    private final StampedLock lock = new StampedLock();
+    // Guarded by lock
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public PathLevels(double baseTolerance, int levelCount, int maxVertices) {
+        if (baseTolerance <= 0 || levelCount < 1 || maxVertices < 2) {
+            throw new IllegalArgumentException("Path levels need a positive tolerance, at least one level and two vertices");
+        }
+        this.levels = new Level[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levels[i] = new Level(baseTolerance * (1L << i), maxVertices);
+        }
+    }
+
+    public void append(long timestamp, double x, double y) {
+        long stamp = lock.writeLock();
+        try {
+            // Same clamp as the history buffer, so time ranges can be binary searched
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            for (Level level : levels) {
+                level.append(lastTimestamp, x, y);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the path with {@code from <= timestamp <= to} at the coarsest level whose
+     * tolerance does not exceed {@code tolerance}, coarsened further until it has at most
+     * {@code maxPoints} points. If even the coarsest level has more, it is thinned evenly.
+     */
+    public Polyline path(long from, long to, double tolerance, int maxPoints) {
+        long stamp = lock.readLock();
+        try {
+            int chosen = 0;
+            while (chosen + 1 < levels.length && levels[chosen + 1].tolerance <= tolerance) {
+                chosen++;
+            }
+            while (chosen + 1 < levels.length && levels[chosen].count(from, to) > maxPoints) {
+                chosen++;
+            }
+            return levels[chosen].copy(from, to, maxPoints);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public double tolerance(int level) {
+        return levels[level].tolerance;
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    public record Polyline(double tolerance, long[] timestamps, double[] xs, double[] ys) {
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    private static final class Level {
+        private final double tolerance;
+        private final int maxVertices;
+        // Kept vertices, a ring that grows on demand up to maxVertices
+        private long[] timestamps = new long[16];
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private int head;
+        private int size;
+
+        // Latest position, the live end of the path until a later one replaces it
+        private boolean hasTail;
+        private long tailTimestamp;
+        private double tailX;
+        private double tailY;
+
+        // Directions from the last vertex that pass within tolerance of every position since,
+        // as offsets from coneReference; unbounded until a position leaves the tolerance disc
+        private boolean coneBounded;
+        private double coneReference;
+        private double coneLow;
+        private double coneHigh;
+        // Largest distance from the last vertex so far; a position closer than this turns back
+        private double reach;
+
+        private Level(double tolerance, int maxVertices) {
+            this.tolerance = tolerance;
+            this.maxVertices = maxVertices;
+        }
+
+        private void append(long timestamp, double x, double y) {
+            if (size == 0) {
+                keep(timestamp, x, y);
+                return;
+            }
+            if (!fits(x, y)) {
+                // The previous position is as far as the line from the last vertex reaches
+                keep(tailTimestamp, tailX, tailY);
+                fits(x, y);
+            }
+            hasTail = true;
+            tailTimestamp = timestamp;
+            tailX = x;
+            tailY = y;
+        }
+
+        // Narrows the cone to the position; false if no line from the last vertex can cover it too
+        private boolean fits(double x, double y) {
+            int last = slot(size - 1);
+            double dx = x - xs[last];
+            double dy = y - ys[last];
+            double distance = Math.hypot(dx, dy);
+            if (distance <= tolerance && reach <= tolerance) {
+                // Every position so far is within tolerance of the vertex itself, any direction covers them
+                reach = Math.max(reach, distance);
+                return true;
+            }
+            if (distance < reach) {
+                // Dropping a turning point would leave it off the segment to a nearer position
+                return false;
+            }
+            reach = distance;
+
+            double direction = Math.atan2(dy, dx);
+            double halfWidth = Math.asin(tolerance / distance);
+            if (!coneBounded) {
+                coneBounded = true;
+                coneReference = direction;
+                coneLow = -halfWidth;
+                coneHigh = halfWidth;
+                return true;
+            }
+
+            double offset = Math.IEEEremainder(direction - coneReference, 2 * Math.PI);
+            if (offset < coneLow || offset > coneHigh) {
+                return false;
+            }
+            coneLow = Math.max(coneLow, offset - halfWidth);
+            coneHigh = Math.min(coneHigh, offset + halfWidth);
+            return true;
+        }
+
+        private void keep(long timestamp, double x, double y) {
+            if (size == maxVertices) {
+                head = (head + 1) % timestamps.length;
+                size--;
+            } else if (size == timestamps.length) {
+                grow();
+            }
+            int slot = slot(size);
+            timestamps[slot] = timestamp;
+            xs[slot] = x;
+            ys[slot] = y;
+            size++;
+            hasTail = false;
+            coneBounded = false;
+            reach = 0;
+        }
+
+        private void grow() {
+            int capacity = (int) Math.min((long) timestamps.length * 2, maxVertices);
+            long[] newTimestamps = new long[capacity];
+            double[] newXs = new double[capacity];
+            double[] newYs = new double[capacity];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                newTimestamps[i] = timestamps[slot];
+                newXs[i] = xs[slot];
+                newYs[i] = ys[slot];
+            }
+            timestamps = newTimestamps;
+            xs = newXs;
+            ys = newYs;
+            head = 0;
+        }
+
+        private int slot(int index) {
+            return (head + index) % timestamps.length;
+        }
+
+        private int count(long from, long to) {
+            int count = Math.max(0, upperBound(to) - lowerBound(from));
+            return hasTail && tailTimestamp >= from && tailTimestamp <= to ? count + 1 : count;
+        }
+
+        private Polyline copy(long from, long to, int maxPoints) {
+            int start = lowerBound(from);
+            int end = Math.max(start, upperBound(to));
+            boolean tail = hasTail && tailTimestamp >= from && tailTimestamp <= to;
+            int available = end - start + (tail ? 1 : 0);
+            int points = Math.min(available, Math.max(maxPoints, 2));
+
+            long[] outTimestamps = new long[points];
+            double[] outXs = new double[points];
+            double[] outYs = new double[points];
+            for (int i = 0; i < points; i++) {
+                // Even thinning that always keeps both ends
+                int index = points == available ? i
+                        : (int) Math.round((double) i * (available - 1) / Math.max(1, points - 1));
+                if (tail && index == available - 1) {
+                    outTimestamps[i] = tailTimestamp;
+                    outXs[i] = tailX;
+                    outYs[i] = tailY;
+                } else {
+                    int slot = slot(start + index);
+                    outTimestamps[i] = timestamps[slot];
+                    outXs[i] = xs[slot];
+                    outYs[i] = ys[slot];
+                }
+            }
+            return new Polyline(tolerance, outTimestamps, outXs, outYs);
+        }
+
+        // First vertex index with timestamp >= from
+        private int lowerBound(long from) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[slot(mid)] < from) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First vertex index with timestamp > to
+        private int upperBound(long to) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[slot(mid)] <= to) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package org.example.diplomwork.util.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Uniform grid over the recorded positions for "when was the platform here" questions. Every
+ * position gets the next sequence number and is stored in primitive columns; each occupied
+ * cell lists the sequences that fall into it, oldest first, in a primitive hash map keyed by
+ * cell coordinates.
+ *
+ * <p>A region query only visits the cells overlapping the region. Cells entirely inside it are
+ * counted without looking at their positions, and the earliest matches are merged from the
+ * cells' own sorted lists, so a query costs the cells it touches plus the positions it
+ * returns. A nearest-neighbour query grows rings of cells around the point until no closer
+ * position can exist.
+ *
+ * <p>The grid keeps the latest {@code capacity} positions. The oldest position is always at
+ * the front of its cell, so dropping it is constant work. Timestamps are kept non-decreasing
+ * like in {@link MovementHistoryBuffer}, which turns a time range into a sequence range.
+ */
+public class SpatialGrid {
+    private static final int INITIAL_CELLS = 1024;
+
+    private final double cellSize;
+    private final int capacity;
+    private final long[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by lock
+    private long appended;
+    private long lastTimestamp = Long.MIN_VALUE;
+    // Open-addressing map from packed cell coordinates to cells, linear probing
+    private long[] cellKeys = new long[INITIAL_CELLS];
+    private Cell[] cells = new Cell[INITIAL_CELLS];
+    private int cellCount;
+    // Cell range ever occupied; it never shrinks, so it always covers the occupied cells
+    private long minCellX = Long.MAX_VALUE;
+    private long maxCellX = Long.MIN_VALUE;
+    private long minCellY = Long.MAX_VALUE;
+    private long maxCellY = Long.MIN_VALUE;
+
+    public SpatialGrid(double cellSize, int capacity) {
+        if (!(cellSize > 0) || capacity < 1) {
+            throw new IllegalArgumentException("Spatial grid needs a positive cell size and capacity");
+        }
+        this.cellSize = cellSize;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+    }
+
+    public void append(long timestamp, double x, double y) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = (int) (appended % capacity);
+            if (appended >= capacity) {
+                // The overwritten position is the oldest one, so it heads its cell
+                long oldKey = key(xs[slot], ys[slot]);
+                Cell oldCell = cell(oldKey);
+                oldCell.removeFirst();
+                if (oldCell.size == 0) {
+                    removeCell(oldKey);
+                }
+            }
+
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            timestamps[slot] = lastTimestamp;
+            xs[slot] = x;
+            ys[slot] = y;
+            long cellX = cellIndex(x);
+            long cellY = cellIndex(y);
+            long key = pack(cellX, cellY);
+            Cell cell = cell(key);
+            if (cell == null) {
+                cell = new Cell();
+                putCell(key, cell);
+                minCellX = Math.min(minCellX, cellX);
+                maxCellX = Math.max(maxCellX, cellX);
+                minCellY = Math.min(minCellY, cellY);
+                maxCellY = Math.max(maxCellY, cellY);
+            }
+            cell.add(appended);
+            appended++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Positions with {@code minX <= x <= maxX}, {@code minY <= y <= maxY} and
+     * {@code from <= timestamp <= to}.
+     */
+    public Visits rectangle(double minX, double minY, double maxX, double maxY, long from, long to, int limit) {
+        return visits(new Rectangle(minX, minY, maxX, maxY), from, to, limit);
+    }
+
+    /**
+     * Positions within {@code radius} of ({@code x}, {@code y}) and
+     * {@code from <= timestamp <= to}.
+     */
+    public Visits circle(double x, double y, double radius, long from, long to, int limit) {
+        return visits(new Circle(x, y, radius), from, to, limit);
+    }
+
+    private Visits visits(Region region, long from, long to, int limit) {
+        long stamp = lock.readLock();
+        try {
+            long lowSequence = firstSequenceAtOrAfter(from);
+            long highSequence = firstSequenceAfter(to) - 1;
+            List<Run> runs = new ArrayList<>();
+            if (lowSequence <= highSequence) {
+                forEachCell(region, (cell, cellX, cellY) -> {
+                    int start = cell.firstAtOrAfter(lowSequence);
+                    int end = cell.firstAtOrAfter(highSequence + 1);
+                    if (start < end) {
+                        Run run = region.containsCell(cellX, cellY, cellSize)
+                                ? new Run(cell, start, end, null)
+                                : new Run(cell, start, end, region);
+                        if (run.matched > 0) {
+                            runs.add(run);
+                        }
+                    }
+                });
+            }
+
+            int total = 0;
+            for (Run run : runs) {
+                total += run.matched;
+            }
+            // Every cell lists its sequences in order, so merging the runs yields the earliest matches
+            PriorityQueue<Run> merge = new PriorityQueue<>(runs);
+            int points = Math.min(total, limit);
+            long[] sequences = new long[points];
+            for (int i = 0; i < points; i++) {
+                Run run = merge.poll();
+                sequences[i] = run.current();
+                if (run.advance()) {
+                    merge.add(run);
+                }
+            }
+
+            List<Interval> intervals = new ArrayList<>();
+            for (int i = 0; i < points; i++) {
+                int start = i;
+                // Consecutive sequences are one uninterrupted stay in the region
+                while (i + 1 < points && sequences[i + 1] == sequences[i] + 1) {
+                    i++;
+                }
+                intervals.add(new Interval(timestamp(sequences[start]), timestamp(sequences[i]), i - start + 1));
+            }
+
+            long[] outTimestamps = new long[points];
+            double[] outXs = new double[points];
+            double[] outYs = new double[points];
+            for (int i = 0; i < points; i++) {
+                int slot = (int) (sequences[i] % capacity);
+                outTimestamps[i] = timestamps[slot];
+                outXs[i] = xs[slot];
+                outYs[i] = ys[slot];
+            }
+            return new Visits(total, intervals, outTimestamps, outXs, outYs);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Visits the occupied cells overlapping the region's bounding box; called under a lock
+    private void forEachCell(Region region, CellVisitor visitor) {
+        long fromX = Math.max(cellIndex(region.minX()), minCellX);
+        long toX = Math.min(cellIndex(region.maxX()), maxCellX);
+        long fromY = Math.max(cellIndex(region.minY()), minCellY);
+        long toY = Math.min(cellIndex(region.maxY()), maxCellY);
+        if (fromX > toX || fromY > toY) {
+            return;
+        }
+        double boxCells = (double) (toX - fromX + 1) * (toY - fromY + 1);
+        if (boxCells > cellCount) {
+            // A region larger than the occupied area is cheaper to answer from the occupied cells
+            for (int i = 0; i < cells.length; i++) {
+                Cell cell = cells[i];
+                if (cell != null) {
+                    long cellX = cellKeys[i] >> 32;
+                    long cellY = (int) cellKeys[i];
+                    if (cellX >= fromX && cellX <= toX && cellY >= fromY && cellY <= toY) {
+                        visitor.visit(cell, cellX, cellY);
+                    }
+                }
+            }
+            return;
+        }
+        for (long cellX = fromX; cellX <= toX; cellX++) {
+            for (long cellY = fromY; cellY <= toY; cellY++) {
+                visitIfPresent(cellX, cellY, visitor);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code count} positions closest to ({@code x}, {@code y}) with
+     * {@code from <= timestamp <= to}, nearest first.
+     */
+    public List<Neighbour> nearest(double x, double y, int count, long from, long to) {
+        long stamp = lock.readLock();
+        try {
+            long lowSequence = firstSequenceAtOrAfter(from);
+            long highSequence = firstSequenceAfter(to) - 1;
+            if (count < 1 || cellCount == 0 || lowSequence > highSequence) {
+                return List.of();
+            }
+
+            NearestSet best = new NearestSet(count);
+            CellVisitor consider = (cell, cellX, cellY) -> {
+                int end = cell.firstAtOrAfter(highSequence + 1);
+                for (int i = cell.firstAtOrAfter(lowSequence); i < end; i++) {
+                    int slot = (int) (cell.get(i) % capacity);
+                    double dx = xs[slot] - x;
+                    double dy = ys[slot] - y;
+                    best.offer(cell.get(i), dx * dx + dy * dy);
+                }
+            };
+
+            long centerX = cellIndex(x);
+            long centerY = cellIndex(y);
+            // Rings closer than the occupied range are empty
+            long firstRing = Math.max(Math.max(0, Math.max(minCellX - centerX, centerX - maxCellX)),
+                    Math.max(minCellY - centerY, centerY - maxCellY));
+            long probed = 0;
+            for (long ring = firstRing; ; ring++) {
+                double unsearched = unsearchedDistanceSquared(x, y, centerX, centerY, ring);
+                if (unsearched == Double.POSITIVE_INFINITY
+                        || best.isFull() && best.worstDistanceSquared() <= unsearched) {
+                    break;
+                }
+                if (probed > cellCount) {
+                    // Sparse cells around the point: finish over the occupied cells instead
+                    scanOccupiedCells(x, y, ring, centerX, centerY, best, consider);
+                    break;
+                }
+                probed += forEachRingCell(centerX, centerY, ring, consider);
+            }
+
+            List<Neighbour> neighbours = new ArrayList<>(best.size);
+            for (int i : best.order()) {
+                int slot = (int) (best.sequences[i] % capacity);
+                neighbours.add(new Neighbour(timestamps[slot], xs[slot], ys[slot], Math.sqrt(best.distances[i])));
+            }
+            return neighbours;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Lower bound on the squared distance to occupied cells from this ring outwards, infinite once
+    // the rings cover the occupied range; such cells lie in one of four strips around the center
+    private double unsearchedDistanceSquared(double x, double y, long centerX, long centerY, long ring) {
+        double closest = Double.POSITIVE_INFINITY;
+        double acrossX = gap(x, minCellX, maxCellX);
+        double acrossY = gap(y, minCellY, maxCellY);
+        if (centerX + ring <= maxCellX) {
+            closest = Math.min(closest, square(gap(x, Math.max(centerX + ring, minCellX), maxCellX)) + square(acrossY));
+        }
+        if (centerX - ring >= minCellX) {
+            closest = Math.min(closest, square(gap(x, minCellX, Math.min(centerX - ring, maxCellX))) + square(acrossY));
+        }
+        if (centerY + ring <= maxCellY) {
+            closest = Math.min(closest, square(acrossX) + square(gap(y, Math.max(centerY + ring, minCellY), maxCellY)));
+        }
+        if (centerY - ring >= minCellY) {
+            closest = Math.min(closest, square(acrossX) + square(gap(y, minCellY, Math.min(centerY - ring, maxCellY))));
+        }
+        return closest;
+    }
+
+    // Distance from the coordinate to the span of cells first..last along one axis
+    private double gap(double coordinate, long first, long last) {
+        return Math.max(0, Math.max(first * cellSize - coordinate, coordinate - (last + 1) * cellSize));
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    // Visits the part of the ring inside the occupied range and returns how many cells it looked up
+    private long forEachRingCell(long centerX, long centerY, long ring, CellVisitor visitor) {
+        if (ring == 0) {
+            visitIfPresent(centerX, centerY, visitor);
+            return 1;
+        }
+        long probed = 0;
+        long fromX = Math.max(centerX - ring, minCellX);
+        long toX = Math.min(centerX + ring, maxCellX);
+        for (long cellY : new long[]{centerY - ring, centerY + ring}) {
+            if (cellY >= minCellY && cellY <= maxCellY) {
+                for (long cellX = fromX; cellX <= toX; cellX++) {
+                    visitIfPresent(cellX, cellY, visitor);
+                }
+                probed += Math.max(0, toX - fromX + 1);
+            }
+        }
+        long fromY = Math.max(centerY - ring + 1, minCellY);
+        long toY = Math.min(centerY + ring - 1, maxCellY);
+        for (long cellX : new long[]{centerX - ring, centerX + ring}) {
+            if (cellX >= minCellX && cellX <= maxCellX) {
+                for (long cellY = fromY; cellY <= toY; cellY++) {
+                    visitIfPresent(cellX, cellY, visitor);
+                }
+                probed += Math.max(0, toY - fromY + 1);
+            }
+        }
+        return probed;
+    }
+
+    private void visitIfPresent(long cellX, long cellY, CellVisitor visitor) {
+        Cell cell = cell(pack(cellX, cellY));
+        if (cell != null) {
+            visitor.visit(cell, cellX, cellY);
+        }
+    }
+
+    // Visits the occupied cells outside the rings already searched that could still hold a closer position
+    private void scanOccupiedCells(double x, double y, long searchedRings, long centerX, long centerY,
+                                   NearestSet best, CellVisitor visitor) {
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = cells[i];
+            if (cell == null) {
+                continue;
+            }
+            long cellX = cellKeys[i] >> 32;
+            long cellY = (int) cellKeys[i];
+            if (Math.max(Math.abs(cellX - centerX), Math.abs(cellY - centerY)) < searchedRings) {
+                continue;
+            }
+            double dx = Math.max(0, Math.max(cellX * cellSize - x, x - (cellX + 1) * cellSize));
+            double dy = Math.max(0, Math.max(cellY * cellSize - y, y - (cellY + 1) * cellSize));
+            if (!best.isFull() || dx * dx + dy * dy < best.worstDistanceSquared()) {
+                visitor.visit(cell, cellX, cellY);
+            }
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return (int) Math.min(appended, capacity);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // First retained sequence with timestamp >= from; called under a lock
+    private long firstSequenceAtOrAfter(long from) {
+        long low = Math.max(0, appended - capacity);
+        long high = appended;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamp(mid) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First retained sequence with timestamp > to; called under a lock
+    private long firstSequenceAfter(long to) {
+        long low = Math.max(0, appended - capacity);
+        long high = appended;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamp(mid) <= to) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long timestamp(long sequence) {
+        return timestamps[(int) (sequence % capacity)];
+    }
+
+    private long cellIndex(double coordinate) {
+        // Clamped so packing two indices into one long stays lossless
+        return (long) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(coordinate / cellSize)));
+    }
+
+    private long key(double x, double y) {
+        return pack(cellIndex(x), cellIndex(y));
+    }
+
+    private static long pack(long cellX, long cellY) {
+        return (cellX << 32) | (cellY & 0xFFFF_FFFFL);
+    }
+
+    private static int hash(long key) {
+        // Murmur3 finalizer, neighbouring cells must not land in neighbouring buckets
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private Cell cell(long key) {
+        int mask = cells.length - 1;
+        for (int i = hash(key) & mask; cells[i] != null; i = (i + 1) & mask) {
+            if (cellKeys[i] == key) {
+                return cells[i];
+            }
+        }
+        return null;
+    }
+
+    private void putCell(long key, Cell cell) {
+        if ((cellCount + 1) * 2 > cells.length) {
+            resize(cells.length * 2);
+        }
+        int mask = cells.length - 1;
+        int i = hash(key) & mask;
+        while (cells[i] != null) {
+            i = (i + 1) & mask;
+        }
+        cellKeys[i] = key;
+        cells[i] = cell;
+        cellCount++;
+    }
+
+    private void removeCell(long key) {
+        int mask = cells.length - 1;
+        int i = hash(key) & mask;
+        while (cellKeys[i] != key || cells[i] == null) {
+            i = (i + 1) & mask;
+        }
+        cells[i] = null;
+        cellCount--;
+
+        // Backward-shift the rest of the probe run so lookups never stop at the hole
+        for (int next = (i + 1) & mask; cells[next] != null; next = (next + 1) & mask) {
+            int home = hash(cellKeys[next]) & mask;
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                cellKeys[i] = cellKeys[next];
+                cells[i] = cells[next];
+                cells[next] = null;
+                i = next;
+            }
+        }
+    }
+
+    private void resize(int size) {
+        long[] oldKeys = cellKeys;
+        Cell[] oldCells = cells;
+        cellKeys = new long[size];
+        cells = new Cell[size];
+        cellCount = 0;
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCells[i] != null) {
+                putCell(oldKeys[i], oldCells[i]);
+            }
+        }
+    }
+
+    public record Visits(int total, List<Interval> intervals, long[] timestamps, double[] xs, double[] ys) {
+    }
+
+    /**
+     * One uninterrupted stay: consecutive recorded positions that all matched.
+     */
+    public record Interval(long from, long to, int points) {
+    }
+
+    public record Neighbour(long timestamp, double x, double y, double distance) {
+    }
+
+    private interface Region {
+        double minX();
+
+        double minY();
+
+        double maxX();
+
+        double maxY();
+
+        boolean contains(double x, double y);
+
+        default boolean containsCell(long cellX, long cellY, double cellSize) {
+            double left = cellX * cellSize;
+            double right = (cellX + 1) * cellSize;
+            double bottom = cellY * cellSize;
+            double top = (cellY + 1) * cellSize;
+            // Division rounding can file a position a few ulps outside its cell's nominal bounds
+            double slack = 4 * Math.ulp(Math.max(Math.max(Math.abs(left), Math.abs(right)),
+                    Math.max(Math.abs(bottom), Math.abs(top))));
+            return contains(left - slack, bottom - slack) && contains(left - slack, top + slack)
+                    && contains(right + slack, bottom - slack) && contains(right + slack, top + slack);
+        }
+    }
+
+    private record Rectangle(double minX, double minY, double maxX, double maxY) implements Region {
+        @Override
+        public boolean contains(double x, double y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+    }
+
+    private record Circle(double x, double y, double radius) implements Region {
+        @Override
+        public double minX() {
+            return x - radius;
+        }
+
+        @Override
+        public double minY() {
+            return y - radius;
+        }
+
+        @Override
+        public double maxX() {
+            return x + radius;
+        }
+
+        @Override
+        public double maxY() {
+            return y + radius;
+        }
+
+        @Override
+        public boolean contains(double px, double py) {
+            double dx = px - x;
+            double dy = py - y;
+            return dx * dx + dy * dy <= radius * radius;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(Cell cell, long cellX, long cellY);
+    }
+
+    // Matching positions of one cell in sequence order; the filter is null when the whole cell matches
+    private final class Run implements Comparable<Run> {
+        private final Cell cell;
+        private final int end;
+        private final Region filter;
+        private final int matched;
+        private int index;
+
+        private Run(Cell cell, int start, int end, Region filter) {
+            this.cell = cell;
+            this.end = end;
+            this.filter = filter;
+            if (filter == null) {
+                this.matched = end - start;
+                this.index = start;
+            } else {
+                int count = 0;
+                int first = end;
+                for (int i = start; i < end; i++) {
+                    if (matches(i)) {
+                        count++;
+                        first = Math.min(first, i);
+                    }
+                }
+                this.matched = count;
+                this.index = first;
+            }
+        }
+
+        private long current() {
+            return cell.get(index);
+        }
+
+        // Moves to the next matching position; false when there is none
+        private boolean advance() {
+            index++;
+            while (index < end && filter != null && !matches(index)) {
+                index++;
+            }
+            return index < end;
+        }
+
+        private boolean matches(int i) {
+            int slot = (int) (cell.get(i) % capacity);
+            return filter.contains(xs[slot], ys[slot]);
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return Long.compare(current(), other.current());
+        }
+    }
+
+    // Sequences of one cell, oldest first, in a ring that grows on demand
+    private static final class Cell {
+        private long[] sequences = new long[4];
+        private int head;
+        private int size;
+
+        private void add(long sequence) {
+            if (size == sequences.length) {
+                long[] grown = new long[sequences.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                sequences = grown;
+                head = 0;
+            }
+            sequences[(head + size) % sequences.length] = sequence;
+            size++;
+        }
+
+        private long get(int index) {
+            return sequences[(head + index) % sequences.length];
+        }
+
+        private void removeFirst() {
+            head = (head + 1) % sequences.length;
+            size--;
+        }
+
+        // First index whose sequence is >= the given one
+        private int firstAtOrAfter(long sequence) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid) < sequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // The closest positions seen so far; count is small, so a linear search for the worst is enough
+    private static final class NearestSet {
+        private final long[] sequences;
+        private final double[] distances;
+        private int size;
+        private int worst;
+
+        private NearestSet(int count) {
+            this.sequences = new long[count];
+            this.distances = new double[count];
+        }
+
+        private boolean isFull() {
+            return size == sequences.length;
+        }
+
+        private double worstDistanceSquared() {
+            return distances[worst];
+        }
+
+        private void offer(long sequence, double distanceSquared) {
+            if (!isFull()) {
+                sequences[size] = sequence;
+                distances[size] = distanceSquared;
+                size++;
+            } else if (distanceSquared < distances[worst]) {
+                sequences[worst] = sequence;
+                distances[worst] = distanceSquared;
+            } else {
+                return;
+            }
+            worst = 0;
+            for (int i = 1; i < size; i++) {
+                if (distances[i] > distances[worst]) {
+                    worst = i;
+                }
+            }
+        }
+
+        private int[] order() {
+            Integer[] indices = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+            Arrays.sort(indices, (a, b) -> Double.compare(distances[a], distances[b]));
+            return Arrays.stream(indices).mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
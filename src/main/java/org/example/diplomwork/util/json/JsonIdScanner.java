@@ -0,0 +1,65 @@
+package org.example.diplomwork.util.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads the correlation {@code id} of a device response with a streaming token scan.
+ * <p>
+ * Only the top-level fields are visited and nested values are skipped, so no tree or map is built
+ * and the payload is fully deserialized only once, into the DTO the pending request expects.
+ */
+public final class JsonIdScanner {
+    public static final long NO_ID = -1;
+    public static final long INVALID_ID = 0;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonIdScanner() {
+    }
+
+    public static long extractId(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return extractId(parser);
+        }
+    }
+
+    public static long extractId(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return extractId(parser);
+        }
+    }
+
+    private static long extractId(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return NO_ID;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("id".equals(field)) {
+                return switch (value) {
+                    case VALUE_NUMBER_INT -> parser.getLongValue();
+                    case VALUE_STRING -> parseId(parser.getText());
+                    case VALUE_NULL -> NO_ID;
+                    default -> INVALID_ID;
+                };
+            }
+            parser.skipChildren();
+        }
+        return NO_ID;
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return INVALID_ID;
+        }
+    }
+}
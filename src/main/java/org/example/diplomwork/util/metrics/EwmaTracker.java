@@ -0,0 +1,52 @@
+package org.example.diplomwork.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exponentially weighted moving averages of latency and success rate. Recent samples dominate,
+ * so the estimate follows link quality as it drifts instead of averaging over the whole uptime.
+ */
+public class EwmaTracker {
+    private final double alpha;
+    private final AtomicLong latencyBits = new AtomicLong(Double.doubleToLongBits(0));
+    private final AtomicLong successBits = new AtomicLong(Double.doubleToLongBits(1));
+    private final LongAdder samples = new LongAdder();
+
+    public EwmaTracker(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("EWMA alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    public void record(long latencyNanos, boolean success) {
+        // The first sample seeds the average instead of being pulled towards zero
+        boolean first = samples.sum() == 0;
+        samples.increment();
+        update(latencyBits, latencyNanos / 1_000_000.0, first);
+        update(successBits, success ? 1 : 0, first);
+    }
+
+    private void update(AtomicLong bits, double sample, boolean seed) {
+        long current;
+        long next;
+        do {
+            current = bits.get();
+            double average = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(seed ? sample : average + alpha * (sample - average));
+        } while (!bits.compareAndSet(current, next));
+    }
+
+    public double latencyMillis() {
+        return Double.longBitsToDouble(latencyBits.get());
+    }
+
+    public double successRate() {
+        return Double.longBitsToDouble(successBits.get());
+    }
+
+    public long samples() {
+        return samples.sum();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.diplomwork.util.metrics;
+
+import org.example.diplomwork.dto.metrics.LatencyMetricsDto;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free count/mean/max accumulator for request latencies, safe to record from
+ * transport callback threads.
+ */
+public class LatencyRecorder {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyMetricsDto snapshot() {
+        long samples = count.sum();
+        double average = samples == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / samples;
+        return new LatencyMetricsDto(name, samples, average, maxNanos.get() / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.diplomwork.util.odometry;
+
+import org.example.diplomwork.entities.PlatformState;
+
+/**
+ * Dead-reckoning kinematics of the platform on primitive doubles. {@link #advance} is pure and
+ * allocates nothing but the snapshot it returns, so it is safe to retry inside a
+ * compare-and-set loop and cheap enough to run for every move.
+ */
+public final class Odometry {
+    private static final double MAX_RPM = 200.0;
+    private static final double MAX_MOTOR_SPEED = 255.0;
+    // Assumed command interval when the gap since the last move is unusable
+    private static final double DEFAULT_INTERVAL_SECONDS = 0.1;
+    private static final double MAX_INTERVAL_SECONDS = 1.0;
+    private static final double WHEELBASE = 0.2;
+    private static final double MAX_TURN_DEGREES = 10.0;
+    private static final double FULL_TURN_DEGREES = 360.0;
+
+    private Odometry() {
+    }
+
+    /**
+     * Applies one move to {@code current}. {@code angle} is the heading in degrees to drive
+     * along; turns start from it.
+     */
+    public static PlatformState advance(PlatformState current, String direction, int motorSpeed, double angle,
+                                        double wheelRadius, long now) {
+        double distance = distance(motorSpeed, now - current.lastMovementTime(), wheelRadius);
+        return move(current, direction, angle, distance, now);
+    }
+
+    /**
+     * Continues the motion of {@code current} for {@code elapsedSeconds} of measured time, at
+     * the current heading.
+     */
+    public static PlatformState integrate(PlatformState current, String direction, int motorSpeed,
+                                          double elapsedSeconds, double wheelRadius, long now) {
+        double distance = wheelTravel(motorSpeed, elapsedSeconds, wheelRadius);
+        return move(current, direction, current.angle(), distance, now);
+    }
+
+    private static PlatformState move(PlatformState current, String direction, double angle, double distance,
+                                      long now) {
+        double x = current.x();
+        double y = current.y();
+
+        switch (direction) {
+            case "forward" -> {
+                double heading = Math.toRadians(angle);
+                x += distance * Math.cos(heading);
+                y += distance * Math.sin(heading);
+            }
+            case "backward" -> {
+                double heading = Math.toRadians(angle);
+                x -= distance * Math.cos(heading);
+                y -= distance * Math.sin(heading);
+            }
+            case "left" -> {
+                angle -= turnAngle(distance);
+                if (angle < 0) angle += FULL_TURN_DEGREES;
+            }
+            case "right" -> {
+                angle += turnAngle(distance);
+                if (angle >= FULL_TURN_DEGREES) angle -= FULL_TURN_DEGREES;
+            }
+            default -> {
+                // Unknown directions only add to the distance, as before
+            }
+        }
+
+        return new PlatformState(x, y, angle, current.totalDistance() + Math.abs(distance), now);
+    }
+
+    /**
+     * Wheel travel in metres for a motor speed (0-255) held over {@code elapsedMillis}.
+     */
+    public static double distance(int motorSpeed, long elapsedMillis, double wheelRadius) {
+        double deltaTime = elapsedMillis / 1000.0;
+        if (deltaTime > MAX_INTERVAL_SECONDS || deltaTime <= 0) {
+            deltaTime = DEFAULT_INTERVAL_SECONDS;
+        }
+        return wheelTravel(motorSpeed, deltaTime, wheelRadius);
+    }
+
+    /**
+     * Wheel travel in metres for a motor speed (0-255) held over exactly {@code seconds}.
+     */
+    public static double wheelTravel(int motorSpeed, double seconds, double wheelRadius) {
+        double speedPercentage = Math.max(0, Math.min(MAX_MOTOR_SPEED, motorSpeed)) / MAX_MOTOR_SPEED;
+        double rotations = (MAX_RPM * speedPercentage / 60.0) * seconds;
+        return rotations * 2 * Math.PI * wheelRadius;
+    }
+
+    /**
+     * Heading change in degrees for a pivot turn where each wheel travels {@code wheelDistance}.
+     */
+    public static double turnAngle(double wheelDistance) {
+        double angleDegrees = Math.toDegrees(wheelDistance / (WHEELBASE / 2));
+        return Math.min(angleDegrees, MAX_TURN_DEGREES);
+    }
+}
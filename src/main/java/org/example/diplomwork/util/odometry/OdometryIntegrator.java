@@ -0,0 +1,120 @@
+package org.example.diplomwork.util.odometry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.diplomwork.entities.PlatformState;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Dead-reckoning engine that integrates the last commanded motion at a fixed rate on one
+ * scheduler thread. The step is measured with {@link System#nanoTime()}, so a late tick covers
+ * the time it actually missed and the pose does not depend on how often clients send commands.
+ *
+ * <p>The pose lives in the shared state reference; ticks update it by compare-and-set like the
+ * request path does, and every {@code publishInterval} the latest snapshot is handed to the
+ * publisher, together with the motion that produced it, while the platform is moving.
+ */
+@Slf4j
+public class OdometryIntegrator implements AutoCloseable {
+    // Longer gaps (a suspended host, a stalled thread) are not trusted as motion
+    private static final double MAX_STEP_SECONDS = 1.0;
+
+    private final AtomicReference<PlatformState> state;
+    private final DoubleSupplier wheelRadius;
+    private final Publisher publisher;
+    private final long publishEveryTicks;
+    private final ScheduledExecutorService scheduler;
+    private volatile Motion motion = Motion.IDLE;
+    // Only touched by the scheduler thread
+    private long lastTickNanos;
+    private long ticks;
+    private PlatformState lastPublished;
+
+    public OdometryIntegrator(AtomicReference<PlatformState> state, DoubleSupplier wheelRadius,
+                              Duration tick, Duration publishInterval, Publisher publisher) {
+        this.state = state;
+        this.wheelRadius = wheelRadius;
+        this.publisher = publisher;
+        long tickNanos = tick.toNanos();
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Odometry tick must be positive: " + tick);
+        }
+        this.publishEveryTicks = Math.max(1, publishInterval.toNanos() / tickNanos);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("odometry").daemon().factory());
+        this.lastTickNanos = System.nanoTime();
+        this.lastPublished = state.get();
+        this.scheduler.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Makes the platform move in {@code direction} at {@code speed} from the next tick on. A
+     * zero speed or a "stop" direction halts it.
+     */
+    public void command(String direction, int speed) {
+        if (speed <= 0 || Motion.IDLE.direction().equals(direction)) {
+            halt();
+            return;
+        }
+        motion = new Motion(direction, speed);
+    }
+
+    public void halt() {
+        motion = Motion.IDLE;
+    }
+
+    public boolean isMoving() {
+        return motion != Motion.IDLE;
+    }
+
+    private void tick() {
+        long nowNanos = System.nanoTime();
+        double elapsedSeconds = Math.min((nowNanos - lastTickNanos) / 1e9, MAX_STEP_SECONDS);
+        lastTickNanos = nowNanos;
+
+        Motion current = motion;
+        if (current == Motion.IDLE) {
+            return;
+        }
+
+        try {
+            double radius = wheelRadius.getAsDouble();
+            long now = System.currentTimeMillis();
+            PlatformState updated = state.updateAndGet(pose ->
+                    Odometry.integrate(pose, current.direction(), current.speed(), elapsedSeconds, radius, now));
+            if (++ticks % publishEveryTicks == 0 && moved(updated)) {
+                lastPublished = updated;
+                publisher.publish(updated, current.direction(), current.speed());
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task, the engine has to keep running
+            log.warn("Odometry tick failed: {}", e.getMessage());
+        }
+    }
+
+    // Every sample ends up in the history stores, so a pose that has not changed is not repeated
+    private boolean moved(PlatformState updated) {
+        return updated.x() != lastPublished.x()
+                || updated.y() != lastPublished.y()
+                || updated.angle() != lastPublished.angle();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface Publisher {
+        void publish(PlatformState pose, String direction, int speed);
+    }
+
+    private record Motion(String direction, int speed) {
+        private static final Motion IDLE = new Motion("stop", 0);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.diplomwork.util.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the
+ * circuit opens for {@code openDuration}; then a single probe is let through, and its outcome
+ * either closes the circuit or opens it again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long stateChangedAt = System.nanoTime();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * Claims the probe slot of an open circuit whose open period has elapsed. A half-open
+     * probe that never reported back is replaced after another open period.
+     */
+    public boolean tryAcquireProbe() {
+        State current = state.get();
+        if (current == State.CLOSED || System.nanoTime() - stateChangedAt < openNanos) {
+            return false;
+        }
+        if (state.compareAndSet(current, State.HALF_OPEN)) {
+            stateChangedAt = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            stateChangedAt = System.nanoTime();
+        }
+    }
+
+    public void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            if (state.compareAndSet(current, State.OPEN)) {
+                stateChangedAt = System.nanoTime();
+            }
+        }
+    }
+
+    public State state() {
+        return state.get();
+    }
+}
@@ -0,0 +1,348 @@
+package org.example.diplomwork.util.sequencer;
+
+import org.example.diplomwork.dto.metrics.SequencerMetricsDto;
+import org.example.diplomwork.util.metrics.LatencyRecorder;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi-producer queue drained by one dedicated thread. Commands run strictly one at a
+ * time in submission order; an asynchronous command occupies the sequencer until its future
+ * completes. Producers only touch lock-free queues and a depth counter, and callers wait on
+ * the returned future.
+ *
+ * <p>Two variations on plain FIFO order are supported. {@link #submitLatest} keeps at most one
+ * queued command per key: a newer command replaces the queued one, and the replaced caller gets
+ * the newer command's result. {@link #submitUrgent} runs ahead of everything queued and drops
+ * queued commands of a given key, so nothing stale is sent after it.
+ */
+public class CommandSequencer implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final int capacity;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Task<?>> urgent = new ConcurrentLinkedQueue<>();
+    private final Map<String, AtomicReference<Task<?>>> latest = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger highWater = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder urgentSubmitted = new LongAdder();
+    private final LatencyRecorder queueWait = new LatencyRecorder("queueWait");
+    private final LatencyRecorder service = new LatencyRecorder("service");
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a sequencer and starts its worker thread.
+     */
+    public static CommandSequencer start(String name, int capacity) {
+        CommandSequencer sequencer = new CommandSequencer(name, capacity);
+        sequencer.worker.start();
+        return sequencer;
+    }
+
+    private CommandSequencer(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        this.worker = Thread.ofPlatform().name(name + "-sequencer").daemon().unstarted(this::drain);
+    }
+
+    /**
+     * Adapts a blocking command to the asynchronous form; exceptions it throws fail the
+     * returned future.
+     */
+    public static <T> Supplier<CompletableFuture<T>> blocking(Supplier<T> command) {
+        return () -> CompletableFuture.completedFuture(command.get());
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> command) {
+        return submitAsync(null, blocking(command));
+    }
+
+    public <T> CompletableFuture<T> submitAsync(Supplier<CompletableFuture<T>> command) {
+        return submitAsync(null, command);
+    }
+
+    /**
+     * Queues a command in FIFO order. The key only marks it so a later urgent command can
+     * drop it; it may be null.
+     */
+    public <T> CompletableFuture<T> submitAsync(String key, Supplier<CompletableFuture<T>> command) {
+        CompletableFuture<T> refused = refuseIfUnavailable();
+        if (refused != null) {
+            return refused;
+        }
+
+        Task<T> task = new Task<>(key, command, System.nanoTime());
+        queue.offer(task);
+        submitted.increment();
+        LockSupport.unpark(worker);
+        return task.result;
+    }
+
+    /**
+     * Queues a command unless one with the same key is still waiting, in which case the waiting
+     * command is replaced and its caller completes with this command's result.
+     */
+    public <T> CompletableFuture<T> submitLatest(String key, Supplier<CompletableFuture<T>> command) {
+        if (!running) {
+            return shutDown();
+        }
+
+        Task<T> task = new Task<>(key, command, System.nanoTime());
+        AtomicReference<Task<?>> slot = latest.computeIfAbsent(key, k -> new AtomicReference<>());
+        submitted.increment();
+
+        // A full queue can still take the command if it only replaces a waiting one
+        boolean reserved = reserveSlot();
+        Task<?> previous = reserved ? slot.getAndSet(task) : replaceWaiting(slot, task);
+        if (previous != null) {
+            // A non-empty slot always has a ticket in the queue, so no new one is needed
+            if (reserved) {
+                depth.decrementAndGet();
+            }
+            coalesced.increment();
+            follow(previous, task);
+            return task.result;
+        }
+        if (!reserved) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    name + " command queue is full (" + capacity + ")"));
+        }
+
+        queue.offer(new SlotTicket(slot));
+        LockSupport.unpark(worker);
+        return task.result;
+    }
+
+    private static Task<?> replaceWaiting(AtomicReference<Task<?>> slot, Task<?> task) {
+        Task<?> waiting;
+        do {
+            waiting = slot.get();
+            if (waiting == null) {
+                return null;
+            }
+        } while (!slot.compareAndSet(waiting, task));
+        return waiting;
+    }
+
+    /**
+     * Runs a command before anything queued. Queued commands with {@code dropKey} are failed
+     * with {@link CancellationException} so they cannot run after it. Urgent commands are
+     * never rejected for capacity.
+     */
+    public <T> CompletableFuture<T> submitUrgent(String dropKey, Supplier<CompletableFuture<T>> command) {
+        if (!running) {
+            return shutDown();
+        }
+
+        if (dropKey != null) {
+            dropQueued(dropKey);
+        }
+        Task<T> task = new Task<>(dropKey, command, System.nanoTime());
+        urgent.offer(task);
+        submitted.increment();
+        urgentSubmitted.increment();
+        LockSupport.unpark(worker);
+        return task.result;
+    }
+
+    /**
+     * Fails the queued and coalesced commands with {@code key} with {@link CancellationException},
+     * as {@link #submitUrgent} does, for callers that bypass the sequencer. A command already
+     * running is not affected. Returns how many were dropped.
+     */
+    public int dropQueued(String key) {
+        CancellationException reason = new CancellationException("Superseded by an urgent " + name + " command");
+        int count = 0;
+
+        AtomicReference<Task<?>> slot = latest.get(key);
+        Task<?> waiting = slot != null ? slot.getAndSet(null) : null;
+        if (waiting != null) {
+            dropped.increment();
+            count++;
+            waiting.result.completeExceptionally(reason);
+        }
+
+        for (Entry entry : queue) {
+            // remove() only succeeds if the worker has not taken the command in the meantime
+            if (entry instanceof Task<?> task && key.equals(task.key) && queue.remove(task)) {
+                depth.decrementAndGet();
+                dropped.increment();
+                count++;
+                task.result.completeExceptionally(reason);
+            }
+        }
+        return count;
+    }
+
+    private <T> CompletableFuture<T> refuseIfUnavailable() {
+        if (!running) {
+            return shutDown();
+        }
+        if (!reserveSlot()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    name + " command queue is full (" + capacity + ")"));
+        }
+        return null;
+    }
+
+    private <T> CompletableFuture<T> shutDown() {
+        return CompletableFuture.failedFuture(new RejectedExecutionException(name + " sequencer is shut down"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void follow(Task<?> replaced, Task<T> replacement) {
+        CompletableFuture<T> target = (CompletableFuture<T>) replaced.result;
+        replacement.result.whenComplete((value, error) -> {
+            if (error == null) {
+                target.complete(value);
+            } else {
+                target.completeExceptionally(error);
+            }
+        });
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = depth.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        highWater.accumulateAndGet(current + 1, Math::max);
+        return true;
+    }
+
+    private void drain() {
+        while (running) {
+            Task<?> task = urgent.poll();
+            if (task == null) {
+                Entry entry = queue.poll();
+                if (entry == null) {
+                    // A producer unparks after offering, so a wakeup cannot be lost between poll and park
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                depth.decrementAndGet();
+                task = entry.take();
+                if (task == null) {
+                    // The slot was emptied by an urgent command
+                    continue;
+                }
+            }
+            run(task);
+        }
+
+        RejectedExecutionException reason = new RejectedExecutionException(name + " sequencer is shut down");
+        Task<?> task;
+        while ((task = urgent.poll()) != null) {
+            task.result.completeExceptionally(reason);
+        }
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            task = entry.take();
+            if (task != null) {
+                task.result.completeExceptionally(reason);
+            }
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        long startNanos = System.nanoTime();
+        queueWait.record(startNanos - task.enqueuedNanos);
+
+        T value = null;
+        Throwable error = null;
+        try {
+            // Wait here so the next command is not sent before this one has been answered
+            value = task.command.get().join();
+        } catch (CompletionException e) {
+            error = e.getCause() != null ? e.getCause() : e;
+        } catch (Throwable e) {
+            error = e;
+        }
+
+        service.recordSince(startNanos);
+        completed.increment();
+        if (error == null) {
+            task.result.complete(value);
+        } else {
+            task.result.completeExceptionally(error);
+        }
+    }
+
+    public SequencerMetricsDto metrics() {
+        return new SequencerMetricsDto(
+                name,
+                depth.get() + urgent.size(),
+                capacity,
+                highWater.get(),
+                submitted.sum(),
+                completed.sum(),
+                rejected.sum(),
+                coalesced.sum(),
+                dropped.sum(),
+                urgentSubmitted.sum(),
+                queueWait.snapshot(),
+                service.snapshot()
+        );
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private interface Entry {
+        Task<?> take();
+    }
+
+    private static class Task<T> implements Entry {
+        private final String key;
+        private final Supplier<CompletableFuture<T>> command;
+        private final long enqueuedNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(String key, Supplier<CompletableFuture<T>> command, long enqueuedNanos) {
+            this.key = key;
+            this.command = command;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public Task<?> take() {
+            return this;
+        }
+    }
+
+    // Queue position of a coalescing slot; the command it runs is whatever the slot holds then
+    private record SlotTicket(AtomicReference<Task<?>> slot) implements Entry {
+        @Override
+        public Task<?> take() {
+            return slot.getAndSet(null);
+        }
+    }
+}
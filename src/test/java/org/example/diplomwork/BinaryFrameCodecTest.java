@@ -0,0 +1,132 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
+import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
+import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.util.codec.BinaryFrameCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFrameCodecTest {
+
+    @Test
+    void encodeRequest_ShouldWriteFixedLayoutFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.REQUEST_FRAME_SIZE);
+
+        BinaryFrameCodec.encodeRequest(frame, BinaryFrameCodec.OP_MOVE, 42, "backward", 200, 90.5);
+
+        assertEquals(BinaryFrameCodec.REQUEST_FRAME_SIZE, frame.remaining());
+        assertEquals(BinaryFrameCodec.OP_MOVE, frame.get(0));
+        assertEquals(1, frame.get(1));
+        assertEquals(42, frame.getInt(2));
+        assertEquals(2, frame.get(6));
+        assertEquals(200, frame.get(7) & 0xFF);
+        assertEquals(90.5f, frame.getFloat(8));
+    }
+
+    @Test
+    void encodeRequest_WithoutAngle_ShouldClearAngleFlag() {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.REQUEST_FRAME_SIZE);
+
+        BinaryFrameCodec.encodeRequest(frame, BinaryFrameCodec.OP_STOP, 7, null, 0, null);
+
+        assertEquals(0, frame.get(1));
+        assertEquals(0, frame.get(6));
+    }
+
+    @Test
+    void encodeRequest_WithUnknownDirection_ShouldThrowException() {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.REQUEST_FRAME_SIZE);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                BinaryFrameCodec.encodeRequest(frame, BinaryFrameCodec.OP_MOVE, 1, "up", 100, null));
+    }
+
+    @Test
+    void decodeResponse_WithMoveFrame_ShouldReturnResponseDto() {
+        ByteBuffer frame = responseHeader(BinaryFrameCodec.OP_MOVE, 0, 42, 16);
+        frame.put((byte) 1).put((byte) 150).put((byte) 1).put((byte) 0)
+                .putFloat(45f).putInt(123456).putInt(9);
+        frame.flip();
+
+        assertEquals(42, BinaryFrameCodec.responseId(frame));
+        ESP32ResponseDto response = (ESP32ResponseDto) BinaryFrameCodec.decodeResponse(frame);
+
+        assertEquals("ok", response.getStatus());
+        assertEquals("forward", response.getDirection());
+        assertEquals(150, response.getSpeed());
+        assertTrue(response.getIsMoving());
+        assertEquals(45.0, response.getAngle());
+        assertEquals(123456L, response.getTimestamp());
+        assertEquals(9, response.getOperationId());
+    }
+
+    @Test
+    void decodeResponse_WithStatusFrame_ShouldReturnStatusDto() {
+        ByteBuffer frame = responseHeader(BinaryFrameCodec.OP_STATUS, 0, 3, 20);
+        frame.put((byte) 3).put((byte) 80).put((byte) 1).put((byte) 1)
+                .putFloat(270f).putInt(60000).putInt(1500)
+                .put((byte) 192).put((byte) 168).put((byte) 0).put((byte) 70);
+        frame.flip();
+
+        ESP32StatusResponseDto response = (ESP32StatusResponseDto) BinaryFrameCodec.decodeResponse(frame);
+
+        assertEquals("left", response.getCurrentDirection());
+        assertEquals(80, response.getCurrentSpeed());
+        assertEquals("connected", response.getWifiStatus());
+        assertEquals(270f, response.getCurrentAngle());
+        assertEquals("192.168.0.70", response.getIp());
+    }
+
+    @Test
+    void decodeResponse_WithInfoFrame_ShouldReturnInfoDto() {
+        ByteBuffer frame = responseHeader(BinaryFrameCodec.OP_INFO, 0, 4, 26);
+        frame.put((byte) 192).put((byte) 168).put((byte) 0).put((byte) 70)
+                .put((byte) 1).put((byte) 2).put((byte) 3)
+                .put((byte) 0b1111).put((byte) 255).put((byte) 0);
+        byte[] name = new byte[16];
+        byte[] platformName = "ESP32-Platform".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(platformName, 0, name, 0, platformName.length);
+        frame.put(name);
+        frame.flip();
+
+        ESP32InfoResponseDto response = (ESP32InfoResponseDto) BinaryFrameCodec.decodeResponse(frame);
+
+        assertEquals("1.2.3", response.getVersion());
+        assertEquals("ESP32-Platform", response.getPlatformName());
+        assertEquals("forward,backward,left,right", response.getCapabilities().getDirections());
+        assertEquals("0-255", response.getCapabilities().getSpeedRange());
+    }
+
+    @Test
+    void decodeResponse_WithErrorStatus_ShouldReturnErrorDto() {
+        ByteBuffer frame = responseHeader(BinaryFrameCodec.OP_STOP, 1, 5, 16);
+        frame.put(new byte[16]);
+        frame.flip();
+
+        ESP32ResponseDto response = (ESP32ResponseDto) BinaryFrameCodec.decodeResponse(frame);
+
+        assertEquals("error", response.getStatus());
+    }
+
+    @Test
+    void decodeResponse_WithTruncatedStatusFrame_ShouldThrowException() {
+        // A move-sized payload under a status opcode
+        ByteBuffer frame = responseHeader(BinaryFrameCodec.OP_STATUS, 0, 6, 16);
+        frame.put(new byte[16]);
+        frame.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrameCodec.decodeResponse(frame));
+    }
+
+    private ByteBuffer responseHeader(byte opcode, int status, int id, int bodySize) {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.RESPONSE_HEADER_SIZE + bodySize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return frame.put((byte) (opcode | 0x80)).put((byte) status).putInt(id);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.resilience.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void recordFailure_AtThreshold_ShouldOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(10));
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.isClosed());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void recordSuccess_ShouldResetConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10));
+
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertTrue(breaker.isClosed());
+    }
+
+    @Test
+    void tryAcquireProbe_BeforeOpenPeriodElapsed_ShouldRefuse() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10));
+        breaker.recordFailure();
+
+        assertFalse(breaker.tryAcquireProbe());
+    }
+
+    @Test
+    void tryAcquireProbe_AfterOpenPeriod_ShouldAllowSingleProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(20));
+        breaker.recordFailure();
+        Thread.sleep(40);
+
+        assertTrue(breaker.tryAcquireProbe());
+        assertFalse(breaker.tryAcquireProbe());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    @Test
+    void probeOutcome_ShouldCloseOrReopen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(20));
+        breaker.recordFailure();
+        Thread.sleep(40);
+        breaker.tryAcquireProbe();
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(40);
+        breaker.tryAcquireProbe();
+        breaker.recordSuccess();
+        assertTrue(breaker.isClosed());
+    }
+}
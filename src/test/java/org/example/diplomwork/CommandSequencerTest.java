@@ -0,0 +1,159 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.sequencer.CommandSequencer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandSequencerTest {
+    private CommandSequencer sequencer;
+
+    @AfterEach
+    void tearDown() {
+        sequencer.close();
+    }
+
+    @Test
+    void submit_ShouldRunCommandsInSubmissionOrder() throws Exception {
+        sequencer = CommandSequencer.start("test", 1000);
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            int command = i;
+            results.add(sequencer.submit(() -> {
+                executed.add(command);
+                return command;
+            }));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get(1, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < executed.size(); i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    @Test
+    void submitAsync_ShouldHoldNextCommandUntilPreviousCompletes() throws Exception {
+        sequencer = CommandSequencer.start("test", 10);
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+
+        CompletableFuture<String> first = sequencer.submitAsync(() -> inFlight);
+        CompletableFuture<String> second = sequencer.submit(() -> "second");
+
+        Thread.sleep(50);
+        assertFalse(second.isDone());
+
+        inFlight.complete("first");
+
+        assertEquals("first", first.get(1, TimeUnit.SECONDS));
+        assertEquals("second", second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldReject() throws Exception {
+        sequencer = CommandSequencer.start("test", 1);
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        sequencer.submitAsync(() -> inFlight);
+        // Wait until the worker has taken the blocking command off the queue
+        while (sequencer.metrics().depth() > 0) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<String> queued = sequencer.submit(() -> "queued");
+        CompletableFuture<String> rejected = sequencer.submit(() -> "rejected");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        assertEquals(1, sequencer.metrics().rejected());
+
+        inFlight.complete("done");
+        assertEquals("queued", queued.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_WhenCommandThrows_ShouldFailOnlyThatCommand() throws Exception {
+        sequencer = CommandSequencer.start("test", 10);
+
+        CompletableFuture<String> failing = sequencer.submit(() -> {
+            throw new IllegalStateException("Device error");
+        });
+        CompletableFuture<String> next = sequencer.submit(() -> "next");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failing.get(1, TimeUnit.SECONDS));
+        assertEquals("Device error", exception.getCause().getMessage());
+        assertEquals("next", next.get(1, TimeUnit.SECONDS));
+        assertEquals(2, sequencer.metrics().completed());
+    }
+
+    @Test
+    void submitLatest_ShouldSendOnlyLatestWaitingCommand() throws Exception {
+        sequencer = CommandSequencer.start("test", 10);
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        List<String> executed = new CopyOnWriteArrayList<>();
+        sequencer.submitAsync(() -> inFlight);
+
+        List<CompletableFuture<String>> moves = new ArrayList<>();
+        for (String move : List.of("move-1", "move-2", "move-3")) {
+            moves.add(sequencer.submitLatest("move", CommandSequencer.blocking(() -> {
+                executed.add(move);
+                return move;
+            })));
+        }
+        inFlight.complete("done");
+
+        for (CompletableFuture<String> move : moves) {
+            assertEquals("move-3", move.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of("move-3"), executed);
+        assertEquals(2, sequencer.metrics().coalesced());
+    }
+
+    @Test
+    void submitUrgent_ShouldJumpQueueAndDropQueuedMoves() throws Exception {
+        sequencer = CommandSequencer.start("test", 10);
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        List<String> executed = new CopyOnWriteArrayList<>();
+        sequencer.submitAsync(() -> inFlight);
+        while (sequencer.metrics().depth() > 0) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<String> status = sequencer.submit(() -> {
+            executed.add("status");
+            return "status";
+        });
+        CompletableFuture<String> queuedMove = sequencer.submitAsync("move", CommandSequencer.blocking(() -> {
+            executed.add("move");
+            return "move";
+        }));
+        CompletableFuture<String> latestMove = sequencer.submitLatest("move", CommandSequencer.blocking(() -> {
+            executed.add("latest-move");
+            return "latest-move";
+        }));
+        CompletableFuture<String> stop = sequencer.submitUrgent("move", CommandSequencer.blocking(() -> {
+            executed.add("stop");
+            return "stop";
+        }));
+        inFlight.complete("done");
+
+        assertEquals("stop", stop.get(1, TimeUnit.SECONDS));
+        assertEquals("status", status.get(1, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> queuedMove.get(1, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> latestMove.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of("stop", "status"), executed);
+        assertEquals(2, sequencer.metrics().dropped());
+    }
+}
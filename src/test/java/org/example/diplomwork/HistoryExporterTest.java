@@ -0,0 +1,113 @@
+package org.example.diplomwork;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.diplomwork.config.HistoryProperties.OverflowPolicy;
+import org.example.diplomwork.util.history.HistoryExporter;
+import org.example.diplomwork.util.history.HistoryExporter.Format;
+import org.example.diplomwork.util.history.MovementHistoryBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static MovementHistoryBuffer bufferWith(int moves) {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(10_000, OverflowPolicy.OVERWRITE_OLDEST);
+        for (int i = 0; i < moves; i++) {
+            buffer.append(1000L + i, i, -i, i % 360, i * 0.5, i % 2 == 0 ? "forward" : "left", i % 256);
+        }
+        return buffer;
+    }
+
+    @Test
+    void export_Ndjson_ShouldWriteOneMovementObjectPerLineAcrossChunks() throws Exception {
+        int moves = HistoryExporter.CHUNK_SIZE * 2 + 5;
+        StringWriter out = new StringWriter();
+
+        long rows = HistoryExporter.export(bufferWith(moves), Long.MIN_VALUE, Long.MAX_VALUE, Format.NDJSON, out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(moves, rows);
+        assertEquals(moves, lines.length);
+        for (int i = 0; i < moves; i++) {
+            assertEquals(1000L + i, objectMapper.readTree(lines[i]).get("timestamp").asLong());
+        }
+
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals("left", second.get("direction").asText());
+        assertEquals(1, second.get("speed").asInt());
+        assertEquals(1.0, second.get("position").get("x").asDouble());
+        assertEquals(-1.0, second.get("position").get("y").asDouble());
+        assertEquals(1.0, second.get("angle").asDouble());
+        assertEquals(0.5, second.get("distanceTravelled").asDouble());
+    }
+
+    @Test
+    void export_ShouldFlushAfterEveryChunk() throws Exception {
+        int[] flushes = {0};
+        Writer out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        HistoryExporter.export(bufferWith(HistoryExporter.CHUNK_SIZE * 3), Long.MIN_VALUE, Long.MAX_VALUE,
+                Format.NDJSON, out);
+
+        assertEquals(3, flushes[0]);
+    }
+
+    @Test
+    void export_ShouldOnlyWriteEntriesWithinTimestampRange() throws Exception {
+        StringWriter out = new StringWriter();
+
+        long rows = HistoryExporter.export(bufferWith(100), 1010L, 1019L, Format.NDJSON, out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(10, rows);
+        assertEquals(1010L, objectMapper.readTree(lines[0]).get("timestamp").asLong());
+        assertEquals(1019L, objectMapper.readTree(lines[9]).get("timestamp").asLong());
+    }
+
+    @Test
+    void export_Csv_ShouldWriteHeaderAndQuoteDirectionsWhenNeeded() throws Exception {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(10, OverflowPolicy.OVERWRITE_OLDEST);
+        buffer.append(1000L, 1.5, -2.0, 90, 0.25, "forward", 120);
+        buffer.append(1001L, 0, 0, 0, 0, "left,\"slow\"", 60);
+        StringWriter out = new StringWriter();
+
+        long rows = HistoryExporter.export(buffer, Long.MIN_VALUE, Long.MAX_VALUE, Format.CSV, out);
+
+        assertEquals(2, rows);
+        assertEquals("""
+                timestamp,direction,speed,x,y,angle,distanceTravelled
+                1000,forward,120,1.5,-2.0,90.0,0.25
+                1001,"left,""slow""\",60,0.0,0.0,0.0,0.0
+                """, out.toString());
+    }
+
+    @Test
+    void export_WhenEmpty_ShouldWriteNothingButTheCsvHeader() throws Exception {
+        StringWriter ndjson = new StringWriter();
+        StringWriter csv = new StringWriter();
+
+        assertEquals(0, HistoryExporter.export(bufferWith(0), Long.MIN_VALUE, Long.MAX_VALUE, Format.NDJSON, ndjson));
+        assertEquals(0, HistoryExporter.export(bufferWith(0), Long.MIN_VALUE, Long.MAX_VALUE, Format.CSV, csv));
+        assertEquals("", ndjson.toString());
+        assertEquals("timestamp,direction,speed,x,y,angle,distanceTravelled\n", csv.toString());
+    }
+
+    @Test
+    void format_ShouldResolveCaseInsensitivelyAndRejectUnknown() {
+        assertEquals(Format.CSV, Format.of("CSV"));
+        assertEquals(Format.NDJSON, Format.of("ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> Format.of("xml"));
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.history.HistoryJournal;
+import org.example.diplomwork.util.history.HistoryJournal.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private record Entry(Kind kind, long timestamp, double x, double y, double angle, double distance,
+                         String direction, int speed) {
+    }
+
+    private HistoryJournal open(long segmentBytes, int maxSegments) {
+        return HistoryJournal.open(directory, segmentBytes, maxSegments, Duration.ofHours(1));
+    }
+
+    private static void appendMoves(HistoryJournal journal, int from, int to) {
+        for (int i = from; i < to; i++) {
+            journal.append(Kind.MOVE, 1000L + i, i, -i, i % 360, i * 0.5, i % 2 == 0 ? "forward" : "left", i);
+        }
+    }
+
+    private static List<Entry> replay(HistoryJournal journal) {
+        List<Entry> entries = new ArrayList<>();
+        journal.replay((kind, timestamp, x, y, angle, distance, direction, speed) ->
+                entries.add(new Entry(kind, timestamp, x, y, angle, distance, direction, speed)));
+        return entries;
+    }
+
+    @Test
+    void replay_AfterReopen_ShouldReturnAllRecordsInOrder() {
+        try (HistoryJournal journal = open(4096, 4)) {
+            appendMoves(journal, 0, 3);
+            journal.append(Kind.POSE, 2000L, 0, 0, 0, 0, null, 0);
+        }
+
+        try (HistoryJournal journal = open(4096, 4)) {
+            List<Entry> entries = replay(journal);
+
+            assertEquals(4, entries.size());
+            assertEquals(new Entry(Kind.MOVE, 1001L, 1, -1, 1, 0.5, "left", 1), entries.get(1));
+            assertEquals(new Entry(Kind.POSE, 2000L, 0, 0, 0, 0, "", 0), entries.get(3));
+        }
+    }
+
+    @Test
+    void append_AfterReopen_ShouldContinueAfterReplayedRecords() {
+        try (HistoryJournal journal = open(4096, 4)) {
+            appendMoves(journal, 0, 2);
+        }
+        try (HistoryJournal journal = open(4096, 4)) {
+            appendMoves(journal, 2, 4);
+        }
+
+        try (HistoryJournal journal = open(4096, 4)) {
+            assertEquals(List.of(1000L, 1001L, 1002L, 1003L),
+                    replay(journal).stream().map(Entry::timestamp).toList());
+        }
+    }
+
+    @Test
+    void append_WhenSegmentsFill_ShouldRollOverAndDeleteSegmentsBeyondRetention() throws IOException {
+        try (HistoryJournal journal = open(4L * HistoryJournal.RECORD_SIZE, 2)) {
+            appendMoves(journal, 0, 10);
+            journal.commit();
+
+            assertEquals(10, journal.appended());
+            assertEquals(0, journal.failed());
+            assertFalse(Files.exists(directory.resolve("history-00000000000000000000.journal")));
+        }
+
+        try (HistoryJournal journal = open(4L * HistoryJournal.RECORD_SIZE, 2)) {
+            // Three records per segment after the header
+            assertEquals(List.of(1006L, 1007L, 1008L, 1009L),
+                    replay(journal).stream().map(Entry::timestamp).toList());
+            assertEquals(6, journal.firstSequence());
+        }
+    }
+
+    @Test
+    void replay_ShouldStopAtTornRecordAndAppendsShouldOverwriteIt() throws IOException {
+        try (HistoryJournal journal = open(4096, 4)) {
+            appendMoves(journal, 0, 3);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Flip one byte of the third record, after the header, as a crash in the middle of writing it would
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 3L * HistoryJournal.RECORD_SIZE + 40);
+        }
+
+        try (HistoryJournal journal = open(4096, 4)) {
+            assertEquals(List.of(1000L, 1001L), replay(journal).stream().map(Entry::timestamp).toList());
+            journal.append(Kind.MOVE, 5000L, 0, 0, 0, 0, "stop", 0);
+        }
+
+        try (HistoryJournal journal = open(4096, 4)) {
+            assertEquals(List.of(1000L, 1001L, 5000L), replay(journal).stream().map(Entry::timestamp).toList());
+        }
+    }
+
+    @Test
+    void epoch_AfterReopen_ShouldBeKeptAndMovementsShouldBeNumberedOn() {
+        long epoch;
+        // Two records per segment after the header
+        try (HistoryJournal journal = open(3L * HistoryJournal.RECORD_SIZE, 2)) {
+            epoch = journal.epoch();
+            assertEquals(0, journal.firstSequence());
+            appendMoves(journal, 0, 2);
+            journal.append(Kind.POSE, 2000L, 0, 0, 0, 0, null, 0);
+            appendMoves(journal, 2, 5);
+        }
+
+        try (HistoryJournal journal = open(3L * HistoryJournal.RECORD_SIZE, 2)) {
+            // The first segment is gone and poses are not numbered, so the third movement leads
+            assertEquals(epoch, journal.epoch());
+            assertEquals(2, journal.firstSequence());
+            assertEquals(List.of(1002L, 1003L, 1004L), replay(journal).stream()
+                    .filter(entry -> entry.kind() == Kind.MOVE)
+                    .map(Entry::timestamp)
+                    .toList());
+        }
+    }
+
+    @Test
+    void append_ShouldTruncateLongDirections() {
+        try (HistoryJournal journal = open(4096, 4)) {
+            journal.append(Kind.MOVE, 1000L, 0, 0, 0, 0, "forward-and-slightly-left", 10);
+
+            assertEquals("forward-and-sl", replay(journal).getFirst().direction());
+        }
+    }
+}
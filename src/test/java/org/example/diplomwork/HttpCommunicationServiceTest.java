@@ -2,6 +2,7 @@ package org.example.diplomwork;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.diplomwork.config.HttpTransportProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -266,4 +268,42 @@ class HttpCommunicationServiceTest {
         assertNotNull(service);
         assertTrue(service.isConnected());
     }
+
+    @Test
+    void constructor_ShouldUsePooledRequestFactory() throws Exception {
+        HttpCommunicationService service = new HttpCommunicationService(new HttpTransportProperties());
+
+        RestTemplate restTemplate = getPrivateField(service, "restTemplate");
+
+        assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, restTemplate.getRequestFactory());
+        assertTrue(restTemplate.getInterceptors().isEmpty());
+        service.cleanup();
+    }
+
+    @Test
+    void constructor_WithKeepAliveDisabled_ShouldAddConnectionCloseInterceptor() throws Exception {
+        HttpTransportProperties properties = new HttpTransportProperties();
+        properties.setKeepAlive(false);
+
+        HttpCommunicationService service = new HttpCommunicationService(properties);
+
+        RestTemplate restTemplate = getPrivateField(service, "restTemplate");
+
+        assertEquals(1, restTemplate.getInterceptors().size());
+        service.cleanup();
+    }
+
+    @Test
+    void cleanup_ShouldNotThrowException() {
+        HttpCommunicationService service = new HttpCommunicationService();
+
+        assertDoesNotThrow(service::cleanup);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getPrivateField(Object target, String fieldName) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return (T) field.get(target);
+    }
 }
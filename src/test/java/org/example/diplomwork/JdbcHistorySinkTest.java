@@ -0,0 +1,131 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.HistorySinkProperties;
+import org.example.diplomwork.dto.metrics.HistorySinkMetricsDto;
+import org.example.diplomwork.util.history.JdbcHistorySink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcHistorySinkTest {
+
+    private HistorySinkProperties properties;
+    // Keeps the in-memory database alive between the sink's connections
+    private Connection keepAlive;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        properties = new HistorySinkProperties();
+        properties.setUrl("jdbc:h2:mem:sink-" + UUID.randomUUID());
+        properties.setFlushInterval(Duration.ofHours(1));
+        keepAlive = DriverManager.getConnection(properties.getUrl(), properties.getUsername(), properties.getPassword());
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        keepAlive.close();
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static void awaitWritten(JdbcHistorySink sink, long rows) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (sink.metrics().written() < rows && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void close_ShouldWriteQueuedMovementsAndCommands() throws SQLException {
+        JdbcHistorySink sink = JdbcHistorySink.start(properties);
+        sink.movement(1000L, 1.5, -2.0, 90, 0.25, "forward", 120);
+        sink.movement(1001L, 1.5, -1.0, 90, 1.25, "left", 60);
+        sink.command(1001L, "move", "HTTP", true, 12_500_000L);
+
+        sink.close();
+
+        assertEquals(2, count("movement_history"));
+        assertEquals(1, count("command_audit"));
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT direction, speed, x, y, distance_travelled FROM movement_history ORDER BY timestamp_ms")) {
+            result.next();
+            assertEquals("forward", result.getString(1));
+            assertEquals(120, result.getInt(2));
+            assertEquals(1.5, result.getDouble(3));
+            assertEquals(-2.0, result.getDouble(4));
+            assertEquals(0.25, result.getDouble(5));
+        }
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery("SELECT command, protocol, success, latency_ms FROM command_audit")) {
+            result.next();
+            assertEquals("move", result.getString(1));
+            assertEquals("HTTP", result.getString(2));
+            assertTrue(result.getBoolean(3));
+            assertEquals(12.5, result.getDouble(4));
+        }
+    }
+
+    @Test
+    void movement_WhenBatchIsFull_ShouldWriteWithoutWaitingForInterval() throws Exception {
+        properties.setBatchSize(10);
+        try (JdbcHistorySink sink = JdbcHistorySink.start(properties)) {
+            for (int i = 0; i < 25; i++) {
+                sink.movement(1000L + i, i, i, 0, i, "forward", 100);
+            }
+
+            awaitWritten(sink, 20);
+
+            HistorySinkMetricsDto metrics = sink.metrics();
+            assertTrue(metrics.written() >= 20);
+            assertTrue(metrics.batches() >= 2);
+            assertEquals(metrics.written(), count("movement_history"));
+        }
+    }
+
+    @Test
+    void movement_WhenQueueIsFull_ShouldDropAndCount() {
+        properties.setQueueCapacity(5);
+        properties.setBatchSize(100);
+        try (JdbcHistorySink sink = JdbcHistorySink.start(properties)) {
+            for (int i = 0; i < 8; i++) {
+                sink.movement(1000L + i, 0, 0, 0, 0, "forward", 100);
+            }
+
+            HistorySinkMetricsDto metrics = sink.metrics();
+            assertEquals(5, metrics.enqueued());
+            assertEquals(3, metrics.dropped());
+            assertEquals(5, metrics.depth());
+            assertEquals(5, metrics.highWater());
+        }
+    }
+
+    @Test
+    void close_WhenDatabaseIsUnreachable_ShouldCountRowsAsFailedWithoutThrowing() {
+        properties.setUrl("jdbc:unreachable:reporting");
+        JdbcHistorySink sink = JdbcHistorySink.start(properties);
+        sink.command(1000L, "stop", "MQTT", false, 1_000_000L);
+
+        assertDoesNotThrow(sink::close);
+
+        HistorySinkMetricsDto metrics = sink.metrics();
+        assertEquals(0, metrics.written());
+        assertEquals(1, metrics.failed());
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.json.JsonIdScanner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonIdScannerTest {
+
+    @Test
+    void extractId_WithStringId_ShouldReturnId() throws Exception {
+        assertEquals(12, JsonIdScanner.extractId("{\"status\":\"ok\",\"id\":\"12\"}"));
+    }
+
+    @Test
+    void extractId_WithNumericId_ShouldReturnId() throws Exception {
+        assertEquals(12, JsonIdScanner.extractId("{\"id\":12,\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void extractId_ShouldIgnoreNestedIds() throws Exception {
+        String json = "{\"capabilities\":{\"id\":5},\"endpoints\":[{\"id\":3}],\"id\":\"7\"}";
+
+        assertEquals(7, JsonIdScanner.extractId(json));
+    }
+
+    @Test
+    void extractId_WithoutId_ShouldReturnNoId() throws Exception {
+        assertEquals(JsonIdScanner.NO_ID, JsonIdScanner.extractId("{\"status\":\"ok\"}"));
+        assertEquals(JsonIdScanner.NO_ID, JsonIdScanner.extractId("{\"id\":null}"));
+    }
+
+    @Test
+    void extractId_WithNonNumericId_ShouldReturnInvalidId() throws Exception {
+        assertEquals(JsonIdScanner.INVALID_ID, JsonIdScanner.extractId("{\"id\":\"abc\"}"));
+    }
+}
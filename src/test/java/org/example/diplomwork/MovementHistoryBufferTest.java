@@ -0,0 +1,167 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.HistoryProperties.OverflowPolicy;
+import org.example.diplomwork.entities.MovementHistory;
+import org.example.diplomwork.util.history.HistoryCursor;
+import org.example.diplomwork.util.history.MovementHistoryBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementHistoryBufferTest {
+
+    private static void appendMoves(MovementHistoryBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer.append(1000L + i, i, -i, i % 360, i * 0.5, i % 2 == 0 ? "forward" : "left", i);
+        }
+    }
+
+    @Test
+    void snapshot_ShouldReturnEntriesOldestFirstWithAllColumns() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(10, OverflowPolicy.OVERWRITE_OLDEST);
+        appendMoves(buffer, 0, 3);
+
+        List<MovementHistory> history = buffer.snapshot();
+
+        assertEquals(3, history.size());
+        MovementHistory second = history.get(1);
+        assertEquals("left", second.getDirection());
+        assertEquals(1, second.getSpeed());
+        assertEquals(1001L, second.getTimestamp());
+        assertEquals(1.0, second.getPosition().getX());
+        assertEquals(-1.0, second.getPosition().getY());
+        assertEquals(1.0, second.getAngle());
+        assertEquals(0.5, second.getDistanceTravelled());
+    }
+
+    @Test
+    void append_WhenFullWithOverwriteOldest_ShouldKeepLatestEntries() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(4, OverflowPolicy.OVERWRITE_OLDEST);
+        appendMoves(buffer, 0, 10);
+
+        List<MovementHistory> history = buffer.snapshot();
+
+        assertEquals(4, history.size());
+        assertEquals(1006L, history.get(0).getTimestamp());
+        assertEquals(1009L, history.get(3).getTimestamp());
+        assertEquals(6, buffer.metrics().overwritten());
+        assertEquals(10, buffer.metrics().appended());
+    }
+
+    @Test
+    void append_WhenFullWithRejectNewest_ShouldKeepEarliestEntries() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(4, OverflowPolicy.REJECT_NEWEST);
+        appendMoves(buffer, 0, 4);
+
+        assertFalse(buffer.append(2000L, 0, 0, 0, 0, "forward", 100));
+
+        List<MovementHistory> history = buffer.snapshot();
+        assertEquals(1000L, history.get(0).getTimestamp());
+        assertEquals(1003L, history.get(3).getTimestamp());
+        assertEquals(1, buffer.metrics().rejected());
+    }
+
+    @Test
+    void append_ShouldStoreFullUnsignedSpeedRange() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(2, OverflowPolicy.OVERWRITE_OLDEST);
+
+        buffer.append(1L, 0, 0, 0, 0, "forward", 255);
+        buffer.append(2L, 0, 0, 0, 0, "backward", 0);
+
+        assertEquals(255, buffer.snapshot().get(0).getSpeed());
+        assertEquals(0, buffer.snapshot().get(1).getSpeed());
+        assertEquals(2, buffer.metrics().directions());
+    }
+
+    @Test
+    void constructor_WithZeroCapacity_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MovementHistoryBuffer(0, OverflowPolicy.OVERWRITE_OLDEST));
+    }
+
+    @Test
+    void page_ShouldReturnOnlyEntriesInTimeRange() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(100, OverflowPolicy.OVERWRITE_OLDEST);
+        appendMoves(buffer, 0, 50);
+
+        MovementHistoryBuffer.Page page = buffer.page(1010L, 1019L, HistoryCursor.START, 100);
+
+        assertEquals(10, page.entries().size());
+        assertEquals(1010L, page.entries().get(0).getTimestamp());
+        assertEquals(1019L, page.entries().get(9).getTimestamp());
+        assertEquals(19, page.lastSequence());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void page_WithCursor_ShouldContinueWhereThePreviousPageEnded() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(100, OverflowPolicy.OVERWRITE_OLDEST);
+        appendMoves(buffer, 0, 25);
+
+        MovementHistoryBuffer.Page first = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, HistoryCursor.START, 10);
+        MovementHistoryBuffer.Page second = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, first.lastSequence(), 10);
+        MovementHistoryBuffer.Page third = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, second.lastSequence(), 10);
+
+        assertTrue(first.hasMore());
+        assertEquals(1010L, second.entries().get(0).getTimestamp());
+        assertEquals(5, third.entries().size());
+        assertFalse(third.hasMore());
+
+        MovementHistoryBuffer.Page idle = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, third.lastSequence(), 10);
+        assertTrue(idle.entries().isEmpty());
+        assertEquals(third.lastSequence(), idle.lastSequence());
+
+        appendMoves(buffer, 25, 27);
+        MovementHistoryBuffer.Page since = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, idle.lastSequence(), 10);
+        assertEquals(2, since.entries().size());
+        assertEquals(1025L, since.entries().get(0).getTimestamp());
+    }
+
+    @Test
+    void page_WithOverwrittenCursor_ShouldStartAtOldestEntryHeld() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(10, OverflowPolicy.OVERWRITE_OLDEST);
+        appendMoves(buffer, 0, 30);
+
+        MovementHistoryBuffer.Page page = buffer.page(Long.MIN_VALUE, Long.MAX_VALUE, 5, 100);
+
+        assertEquals(10, page.entries().size());
+        assertEquals(1020L, page.entries().get(0).getTimestamp());
+        assertEquals(29, page.lastSequence());
+    }
+
+    @Test
+    void page_InContinuedHistory_ShouldAcceptCursorFromBeforeTheRestart() {
+        MovementHistoryBuffer restarted = new MovementHistoryBuffer(100, OverflowPolicy.OVERWRITE_OLDEST, 42L, 20);
+        appendMoves(restarted, 20, 30);
+
+        long sequence = HistoryCursor.decode(HistoryCursor.encode(42L, 24), restarted.epoch());
+        MovementHistoryBuffer.Page page = restarted.page(Long.MIN_VALUE, Long.MAX_VALUE, sequence, 100);
+
+        assertEquals(5, page.entries().size());
+        assertEquals(1025L, page.entries().get(0).getTimestamp());
+        assertEquals(29, page.lastSequence());
+        assertEquals(29, restarted.lastSequence());
+    }
+
+    @Test
+    void append_WithClockGoingBack_ShouldKeepTimestampsOrdered() {
+        MovementHistoryBuffer buffer = new MovementHistoryBuffer(10, OverflowPolicy.OVERWRITE_OLDEST);
+        buffer.append(2000L, 0, 0, 0, 0, "forward", 100);
+        buffer.append(1500L, 0, 0, 0, 0, "forward", 100);
+
+        assertEquals(2000L, buffer.snapshot().get(1).getTimestamp());
+        assertEquals(2, buffer.page(2000L, 2000L, HistoryCursor.START, 10).entries().size());
+    }
+
+    @Test
+    void historyCursor_ShouldRoundTripAndIgnoreOtherEpochs() {
+        String cursor = HistoryCursor.encode(42L, 17L);
+
+        assertEquals(17L, HistoryCursor.decode(cursor, 42L));
+        assertEquals(HistoryCursor.START, HistoryCursor.decode(cursor, 43L));
+        assertEquals(HistoryCursor.START, HistoryCursor.decode(null, 42L));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("not a cursor!", 42L));
+    }
+}
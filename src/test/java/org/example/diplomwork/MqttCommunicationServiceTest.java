@@ -2,15 +2,18 @@ package org.example.diplomwork;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.eclipse.paho.client.mqttv3.*;
+import org.example.diplomwork.config.MqttTransportProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.entities.CommunicationProtocol;
 import org.example.diplomwork.service.impl.MqttCommunicationService;
+import org.example.diplomwork.util.correlation.PendingRequestRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedConstruction;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -20,8 +23,7 @@ import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,7 +47,6 @@ class MqttCommunicationServiceTest {
 
         setPrivateField(mqttCommunicationService, "objectMapper", mockObjectMapper);
         setPrivateField(mqttCommunicationService, "mqttClient", mockMqttClient);
-        setPrivateField(mqttCommunicationService, "connected", true);
 
         moveRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.MQTT);
     }
@@ -166,7 +167,6 @@ class MqttCommunicationServiceTest {
 
     @Test
     void connect_WhenNotConnected_ShouldEstablishConnection() throws Exception {
-        setPrivateField(mqttCommunicationService, "connected", false);
         setPrivateField(mqttCommunicationService, "mqttClient", null);
 
         try (MockedConstruction<MqttClient> mockedConstruction = mockConstruction(MqttClient.class,
@@ -182,10 +182,27 @@ class MqttCommunicationServiceTest {
         }
     }
 
+    @Test
+    void connect_AfterConnectionLost_ShouldCloseThePreviousClient() throws Exception {
+        when(mockMqttClient.isConnected()).thenReturn(false);
+
+        try (MockedConstruction<MqttClient> mockedConstruction = mockConstruction(MqttClient.class,
+                (mock, context) -> {
+                    when(mock.isConnected()).thenReturn(true);
+                })) {
+
+            mqttCommunicationService.connect();
+
+            verify(mockMqttClient, never()).disconnect();
+            verify(mockMqttClient).close();
+            assertEquals(1, mockedConstruction.constructed().size());
+            assertTrue(mqttCommunicationService.isConnected());
+        }
+    }
+
     @Test
     void connect_WhenAlreadyConnected_ShouldNotReconnect() throws Exception {
         when(mockMqttClient.isConnected()).thenReturn(true);
-        setPrivateField(mqttCommunicationService, "connected", true);
 
         mqttCommunicationService.connect();
 
@@ -224,14 +241,12 @@ class MqttCommunicationServiceTest {
     @Test
     void isConnected_WhenConnected_ShouldReturnTrue() throws Exception {
         when(mockMqttClient.isConnected()).thenReturn(true);
-        setPrivateField(mqttCommunicationService, "connected", true);
 
         assertTrue(mqttCommunicationService.isConnected());
     }
 
     @Test
     void isConnected_WhenNotConnected_ShouldReturnFalse() throws Exception {
-        setPrivateField(mqttCommunicationService, "connected", false);
 
         assertFalse(mqttCommunicationService.isConnected());
     }
@@ -239,7 +254,6 @@ class MqttCommunicationServiceTest {
     @Test
     void isConnected_WhenMqttClientIsNull_ShouldReturnFalse() throws Exception {
         setPrivateField(mqttCommunicationService, "mqttClient", null);
-        setPrivateField(mqttCommunicationService, "connected", true);
 
         assertFalse(mqttCommunicationService.isConnected());
     }
@@ -279,27 +293,73 @@ class MqttCommunicationServiceTest {
         assertEquals("Stopped", result.getMessage());
     }
 
-    private void setupMqttResponseViaMqttCallback(String responseJson, String messageId) throws Exception {
-        ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests =
-                getPrivateField(mqttCommunicationService, "pendingRequests");
-        AtomicLong messageIdCounter = getPrivateField(mqttCommunicationService, "messageIdCounter");
-        messageIdCounter.set(Long.parseLong(messageId) - 1);
+    @Test
+    void sendAsync_ShouldCompleteWhenResponseArrives() throws Exception {
+        String responseJson = "{\"status\":\"ok\",\"id\":\"1\"}";
+
+        when(mockMqttClient.isConnected()).thenReturn(true);
+        when(mockObjectMapper.writeValueAsString(any(Map.class))).thenReturn("{\"command\":\"stop\",\"id\":\"1\"}");
+
+        Map<String, Object> command = new HashMap<>();
+        command.put("command", "stop");
+        CompletableFuture<String> future = mqttCommunicationService.sendAsync(command);
+
+        assertFalse(future.isDone());
+        simulateHandleIncomingMessage(responseJson);
+
+        assertEquals(responseJson, future.get(1, TimeUnit.SECONDS));
+        verify(mockMqttClient).publish(eq("esp32/command"), any(MqttMessage.class));
+    }
+
+    @Test
+    void getStatusAsync_WithException_ShouldCompleteWithErrorResponse() throws Exception {
+        when(mockMqttClient.isConnected()).thenReturn(true);
+        when(mockObjectMapper.writeValueAsString(any(Map.class)))
+                .thenThrow(new RuntimeException("Connection error"));
+
+        ESP32StatusResponseDto result = mqttCommunicationService.getStatusAsync().get(1, TimeUnit.SECONDS);
+
+        assertEquals("error", result.getStatus());
+    }
+
+    @Test
+    void handleIncomingMessage_WithoutId_ShouldCompleteOldestPendingRequest() throws Exception {
+        String responseJson = "{\"status\":\"ok\"}";
+        PendingRequestRegistry<String> pendingRequests = getPrivateField(mqttCommunicationService, "pendingRequests");
+
+        CompletableFuture<String> first = pendingRequests.register(pendingRequests.nextId());
+        CompletableFuture<String> second = pendingRequests.register(pendingRequests.nextId());
+
+        simulateHandleIncomingMessage(responseJson);
+
+        assertEquals(responseJson, first.getNow(null));
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    void handleIncomingMessage_WithTimedOutId_ShouldCountLateResponse() throws Exception {
+        String responseJson = "{\"status\":\"ok\",\"id\":\"1\"}";
+        PendingRequestRegistry<String> pendingRequests = getPrivateField(mqttCommunicationService, "pendingRequests");
+
+        long id = pendingRequests.nextId();
+        pendingRequests.register(id);
+        pendingRequests.fail(id, new RuntimeException("Publish failed"));
+
+        simulateHandleIncomingMessage(responseJson);
+
+        assertEquals(1, mqttCommunicationService.getCorrelationMetrics().late());
+    }
+
+    @Test
+    void disconnect_WithPendingRequests_ShouldFailThem() throws Exception {
+        when(mockMqttClient.isConnected()).thenReturn(true);
+        PendingRequestRegistry<String> pendingRequests = getPrivateField(mqttCommunicationService, "pendingRequests");
 
-        doAnswer(invocation -> {
-            CompletableFuture<String> future = new CompletableFuture<>();
-            pendingRequests.put(messageId, future);
+        CompletableFuture<String> future = pendingRequests.register(pendingRequests.nextId());
 
-            new Thread(() -> {
-                try {
-                    Thread.sleep(10);
-                    simulateHandleIncomingMessage(responseJson);
-                } catch (Exception e) {
-                    future.completeExceptionally(e);
-                }
-            }).start();
+        mqttCommunicationService.disconnect();
 
-            return null;
-        }).when(mockMqttClient).publish(eq("esp32/command"), any(MqttMessage.class));
+        assertTrue(future.isCompletedExceptionally());
     }
 
     private void simulateHandleIncomingMessage(String message) throws Exception {
@@ -307,4 +367,88 @@ class MqttCommunicationServiceTest {
         handleMethod.setAccessible(true);
         handleMethod.invoke(mqttCommunicationService, message);
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendAsync_InPipelinedMode_ShouldRespectInFlightWindow() throws Exception {
+        MqttTransportProperties properties = new MqttTransportProperties();
+        properties.setMode(MqttTransportProperties.Mode.PIPELINED);
+        properties.setMaxInFlight(1);
+
+        MqttCommunicationService pipelinedService = new MqttCommunicationService(properties);
+        MqttAsyncClient mockAsyncClient = mock(MqttAsyncClient.class);
+        setPrivateField(pipelinedService, "mqttAsyncClient", mockAsyncClient);
+        when(mockAsyncClient.isConnected()).thenReturn(true);
+
+        pipelinedService.sendAsync(new HashMap<>(Map.of("command", "move")));
+        pipelinedService.sendAsync(new HashMap<>(Map.of("command", "stop")));
+
+        ArgumentCaptor<IMqttActionListener> listener = ArgumentCaptor.forClass(IMqttActionListener.class);
+        verify(mockAsyncClient, times(1)).publish(eq("esp32/command"), any(MqttMessage.class), isNull(), listener.capture());
+        assertEquals(1, pipelinedService.getMqttMetrics().inFlight());
+        assertEquals(1, pipelinedService.getMqttMetrics().queued());
+
+        listener.getValue().onSuccess(mock(IMqttToken.class));
+
+        verify(mockAsyncClient, times(2)).publish(eq("esp32/command"), any(MqttMessage.class), isNull(), any(IMqttActionListener.class));
+        assertEquals(0, pipelinedService.getMqttMetrics().queued());
+    }
+
+    @Test
+    void sendAsync_InPipelinedModeWithPublishFailure_ShouldFailRequest() throws Exception {
+        MqttTransportProperties properties = new MqttTransportProperties();
+        properties.setMode(MqttTransportProperties.Mode.PIPELINED);
+
+        MqttCommunicationService pipelinedService = new MqttCommunicationService(properties);
+        MqttAsyncClient mockAsyncClient = mock(MqttAsyncClient.class);
+        setPrivateField(pipelinedService, "mqttAsyncClient", mockAsyncClient);
+        when(mockAsyncClient.isConnected()).thenReturn(true);
+
+        CompletableFuture<String> future = pipelinedService.sendAsync(new HashMap<>(Map.of("command", "status")));
+
+        ArgumentCaptor<IMqttActionListener> listener = ArgumentCaptor.forClass(IMqttActionListener.class);
+        verify(mockAsyncClient).publish(eq("esp32/command"), any(MqttMessage.class), isNull(), listener.capture());
+        listener.getValue().onFailure(mock(IMqttToken.class), new MqttException(MqttException.REASON_CODE_CLIENT_EXCEPTION));
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, pipelinedService.getMqttMetrics().inFlight());
+    }
+
+    @Test
+    void sendAsync_ShouldPublishWithCommandQosPolicy() throws Exception {
+        when(mockMqttClient.isConnected()).thenReturn(true);
+        when(mockObjectMapper.writeValueAsString(any())).thenReturn("{}");
+
+        mqttCommunicationService.sendAsync(new HashMap<>(Map.of("command", "move")));
+        mqttCommunicationService.sendAsync(new HashMap<>(Map.of("command", "stop")));
+
+        ArgumentCaptor<MqttMessage> messages = ArgumentCaptor.forClass(MqttMessage.class);
+        verify(mockMqttClient, times(2)).publish(eq("esp32/command"), messages.capture());
+        assertEquals(0, messages.getAllValues().get(0).getQos());
+        assertEquals(1, messages.getAllValues().get(1).getQos());
+        assertFalse(messages.getAllValues().get(1).isRetained());
+    }
+
+    @Test
+    void constructor_WithStopBelowQos1_ShouldThrow() {
+        MqttTransportProperties properties = new MqttTransportProperties();
+        properties.getCommands().put("stop", new MqttTransportProperties.CommandPolicy(0, false));
+
+        assertThrows(IllegalArgumentException.class, () -> new MqttCommunicationService(properties));
+    }
+
+    @Test
+    void getMqttMetrics_ShouldRecordLatencyPerQos() throws Exception {
+        when(mockMqttClient.isConnected()).thenReturn(true);
+        when(mockObjectMapper.writeValueAsString(any())).thenReturn("{}");
+
+        CompletableFuture<String> future = mqttCommunicationService.sendAsync(new HashMap<>(Map.of("command", "move")));
+        PendingRequestRegistry<String> registry = getPrivateField(mqttCommunicationService, "pendingRequests");
+        registry.complete(1, "{\"status\":\"ok\"}");
+        future.join();
+
+        var latency = mqttCommunicationService.getMqttMetrics().latencyByQos();
+        assertEquals(3, latency.size());
+        assertEquals(1, latency.get(0).count());
+        assertEquals(0, latency.get(1).count());
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.entities.PlatformState;
+import org.example.diplomwork.util.odometry.Odometry;
+import org.example.diplomwork.util.odometry.OdometryIntegrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OdometryIntegratorTest {
+    private static final double WHEEL_RADIUS = 0.03;
+    // Lets a tick that read the motion before halt() finish
+    private static final long SETTLE_MILLIS = 30;
+
+    private AtomicReference<PlatformState> state;
+    private List<PlatformState> published;
+    private OdometryIntegrator integrator;
+
+    @BeforeEach
+    void setUp() {
+        state = new AtomicReference<>(PlatformState.origin(System.currentTimeMillis()));
+        published = new CopyOnWriteArrayList<>();
+        integrator = new OdometryIntegrator(state, () -> WHEEL_RADIUS,
+                Duration.ofMillis(5), Duration.ofMillis(20), (pose, direction, speed) -> published.add(pose));
+    }
+
+    @AfterEach
+    void tearDown() {
+        integrator.close();
+    }
+
+    @Test
+    void command_Forward_ShouldAdvanceByElapsedTime() throws Exception {
+        long startNanos = System.nanoTime();
+        integrator.command("forward", 255);
+        Thread.sleep(300);
+        integrator.halt();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        Thread.sleep(SETTLE_MILLIS);
+
+        PlatformState pose = state.get();
+        double expected = Odometry.wheelTravel(255, elapsedSeconds, WHEEL_RADIUS);
+        assertEquals(expected, pose.x(), expected * 0.25);
+        assertEquals(0.0, pose.y(), 1e-9);
+        assertEquals(pose.totalDistance(), pose.x(), 1e-9);
+        assertFalse(published.isEmpty());
+    }
+
+    @Test
+    void command_Right_ShouldTurnInPlace() throws Exception {
+        integrator.command("right", 200);
+        Thread.sleep(100);
+        integrator.halt();
+        Thread.sleep(SETTLE_MILLIS);
+
+        PlatformState pose = state.get();
+        assertTrue(pose.angle() > 0);
+        assertEquals(0.0, pose.x(), 1e-9);
+        assertEquals(0.0, pose.y(), 1e-9);
+    }
+
+    @Test
+    void halt_ShouldFreezePose() throws Exception {
+        integrator.command("backward", 150);
+        Thread.sleep(50);
+        integrator.halt();
+        Thread.sleep(SETTLE_MILLIS);
+        PlatformState stopped = state.get();
+
+        Thread.sleep(50);
+
+        assertSame(stopped, state.get());
+        assertFalse(integrator.isMoving());
+    }
+
+    @Test
+    void command_WithZeroSpeed_ShouldHaltAndNotPublish() throws Exception {
+        integrator.command("forward", 200);
+        Thread.sleep(50);
+        integrator.command("forward", 0);
+        Thread.sleep(SETTLE_MILLIS);
+        PlatformState stopped = state.get();
+        published.clear();
+
+        Thread.sleep(100);
+
+        assertFalse(integrator.isMoving());
+        assertSame(stopped, state.get());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void command_ThatDoesNotMoveThePose_ShouldNotPublish() throws Exception {
+        integrator.command("hover", 200);
+
+        Thread.sleep(100);
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void idle_ShouldNotTouchPoseOrPublish() throws Exception {
+        PlatformState initial = state.get();
+
+        Thread.sleep(50);
+
+        assertSame(initial, state.get());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void constructor_WithZeroTick_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new OdometryIntegrator(state, () -> WHEEL_RADIUS,
+                Duration.ZERO, Duration.ofMillis(100), (pose, direction, speed) -> published.add(pose)));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.history.PathLevels;
+import org.example.diplomwork.util.history.PathLevels.Polyline;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathLevelsTest {
+
+    private static double distanceToPath(Polyline path, double x, double y) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            double ax = path.xs()[i];
+            double ay = path.ys()[i];
+            double dx = path.xs()[i + 1] - ax;
+            double dy = path.ys()[i + 1] - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / lengthSquared));
+            best = Math.min(best, Math.hypot(x - (ax + t * dx), y - (ay + t * dy)));
+        }
+        return path.size() == 1 ? Math.hypot(x - path.xs()[0], y - path.ys()[0]) : best;
+    }
+
+    @Test
+    void path_ForStraightLine_ShouldKeepOnlyBothEnds() {
+        PathLevels levels = new PathLevels(0.01, 4, 1000);
+        for (int i = 0; i < 500; i++) {
+            levels.append(1000L + i, i * 0.1, i * 0.05);
+        }
+
+        Polyline path = levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0, 1000);
+
+        assertEquals(2, path.size());
+        assertEquals(1000L, path.timestamps()[0]);
+        assertEquals(1499L, path.timestamps()[1]);
+        assertEquals(49.9, path.xs()[1], 1e-9);
+    }
+
+    @Test
+    void path_ShouldKeepEveryPositionWithinTheLevelTolerance() {
+        PathLevels levels = new PathLevels(0.01, 8, 100_000);
+        Random random = new Random(42);
+        int count = 20_000;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        for (int i = 0; i < count; i++) {
+            // Mostly straight runs with turns and occasional reversals
+            heading += random.nextDouble() < 0.05 ? random.nextGaussian() * 1.5 : random.nextGaussian() * 0.02;
+            double step = random.nextDouble() < 0.01 ? -0.5 : 0.05;
+            x += Math.cos(heading) * step;
+            y += Math.sin(heading) * step;
+            xs[i] = x;
+            ys[i] = y;
+            levels.append(i, x, y);
+        }
+
+        for (int level = 0; level < levels.levelCount(); level++) {
+            double tolerance = levels.tolerance(level);
+            Polyline path = levels.path(Long.MIN_VALUE, Long.MAX_VALUE, tolerance, Integer.MAX_VALUE);
+
+            assertEquals(tolerance, path.tolerance());
+            assertTrue(path.size() < count, "level " + level + " should drop positions");
+            for (int i = 0; i < count; i++) {
+                assertTrue(distanceToPath(path, xs[i], ys[i]) <= tolerance + 1e-9,
+                        "position " + i + " is off the level " + level + " path");
+            }
+        }
+    }
+
+    @Test
+    void path_ShouldUseCoarsestLevelWithinToleranceAndCoarsenForPointBudget() {
+        PathLevels levels = new PathLevels(0.01, 6, 100_000);
+        for (int i = 0; i < 2000; i++) {
+            // Zigzag with 3 cm amplitude, only the 1 and 2 cm levels have to follow it
+            levels.append(i, i * 0.1, i % 2 == 0 ? 0 : 0.03);
+        }
+
+        assertEquals(0.02, levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0.03, 100_000).tolerance());
+        assertEquals(0.01, levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0, 100_000).tolerance());
+
+        Polyline budgeted = levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0, 100);
+        assertTrue(budgeted.size() <= 100);
+        assertTrue(budgeted.tolerance() >= 0.04);
+    }
+
+    @Test
+    void path_WhenCoarsestLevelExceedsBudget_ShouldThinEvenlyKeepingBothEnds() {
+        PathLevels levels = new PathLevels(0.01, 1, 100_000);
+        for (int i = 0; i < 1000; i++) {
+            levels.append(i, i * 0.1, i % 2 == 0 ? 0 : 1);
+        }
+
+        Polyline path = levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10);
+
+        assertEquals(10, path.size());
+        assertEquals(0L, path.timestamps()[0]);
+        assertEquals(999L, path.timestamps()[9]);
+    }
+
+    @Test
+    void path_ShouldOnlyReturnPointsWithinTimestampRange() {
+        PathLevels levels = new PathLevels(0.01, 1, 100_000);
+        for (int i = 0; i < 100; i++) {
+            levels.append(1000L + i, i, i % 2 == 0 ? 0 : 1);
+        }
+
+        Polyline path = levels.path(1010L, 1019L, 0, 1000);
+
+        assertEquals(10, path.size());
+        assertEquals(1010L, path.timestamps()[0]);
+        assertEquals(1019L, path.timestamps()[9]);
+    }
+
+    @Test
+    void append_BeyondMaxVertices_ShouldDropOldestVertices() {
+        PathLevels levels = new PathLevels(0.01, 1, 50);
+        for (int i = 0; i < 200; i++) {
+            levels.append(i, i, i % 2 == 0 ? 0 : 1);
+        }
+
+        Polyline path = levels.path(Long.MIN_VALUE, Long.MAX_VALUE, 0, 1000);
+
+        // 50 kept vertices plus the live tail
+        assertEquals(51, path.size());
+        assertEquals(199L, path.timestamps()[50]);
+        assertEquals(149L, path.timestamps()[0]);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.correlation.PendingRequestRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingRequestRegistryTest {
+
+    private PendingRequestRegistry<String> registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PendingRequestRegistry<>("test", 4, Duration.ofMillis(50));
+    }
+
+    @Test
+    void complete_WithPendingId_ShouldCompleteFuture() {
+        long id = registry.nextId();
+        CompletableFuture<String> future = registry.register(id);
+
+        assertTrue(registry.complete(id, "response"));
+
+        assertEquals("response", future.getNow(null));
+        assertEquals(1, registry.metrics().completed());
+        assertEquals(0, registry.metrics().pending());
+    }
+
+    @Test
+    void register_WithoutResponse_ShouldTimeOut() {
+        long id = registry.nextId();
+        CompletableFuture<String> future = registry.register(id);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(1, registry.metrics().timedOut());
+        assertFalse(registry.isPending(id));
+    }
+
+    @Test
+    void complete_AfterTimeout_ShouldCountLateResponse() {
+        long id = registry.nextId();
+        CompletableFuture<String> future = registry.register(id);
+
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+
+        assertFalse(registry.complete(id, "late response"));
+        assertEquals(1, registry.metrics().late());
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void complete_WithUnknownId_ShouldCountOrphanedResponse() {
+        assertFalse(registry.complete(42, "response"));
+
+        assertEquals(1, registry.metrics().orphaned());
+        assertEquals(0, registry.metrics().late());
+    }
+
+    @Test
+    void complete_Twice_ShouldCompleteOnlyOnce() {
+        long id = registry.nextId();
+        CompletableFuture<String> future = registry.register(id);
+
+        assertTrue(registry.complete(id, "first"));
+        assertFalse(registry.complete(id, "second"));
+
+        assertEquals("first", future.getNow(null));
+    }
+
+    @Test
+    void register_WhenSlotIsTaken_ShouldReject() {
+        CompletableFuture<String> first = registry.register(registry.nextId());
+        for (int i = 0; i < 3; i++) {
+            registry.register(registry.nextId());
+        }
+
+        // ID 5 maps to the slot still held by ID 1
+        CompletableFuture<String> rejected = registry.register(registry.nextId());
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertFalse(first.isDone());
+        assertEquals(1, registry.metrics().rejected());
+    }
+
+    @Test
+    void failAll_ShouldCompleteEveryPendingFutureExceptionally() {
+        CompletableFuture<String> first = registry.register(registry.nextId());
+        CompletableFuture<String> second = registry.register(registry.nextId());
+
+        registry.failAll(new RuntimeException("Disconnected"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(2, registry.metrics().failed());
+        assertEquals(0, registry.metrics().pending());
+    }
+}
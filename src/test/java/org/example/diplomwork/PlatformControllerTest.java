@@ -0,0 +1,94 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.EndpointTimeoutProperties;
+import org.example.diplomwork.config.HttpTransportProperties;
+import org.example.diplomwork.controllers.PlatformController;
+import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.move.MoveRequestDto;
+import org.example.diplomwork.dto.platform.PlatformResponseDto;
+import org.example.diplomwork.entities.CommunicationProtocol;
+import org.example.diplomwork.service.impl.PlatformService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlatformControllerTest {
+
+    @Mock
+    private PlatformService platformService;
+
+    private EndpointTimeoutProperties timeouts;
+    private PlatformController controller;
+
+    @BeforeEach
+    void setUp() {
+        timeouts = new EndpointTimeoutProperties();
+        timeouts.setMove(Duration.ofMillis(50));
+        timeouts.setStatus(Duration.ofSeconds(5));
+        controller = new PlatformController(platformService, timeouts);
+    }
+
+    @Test
+    void movePlatform_WhenPlatformDoesNotAnswer_ShouldTimeOutWithoutCancellingTheCommand() {
+        MoveRequestDto moveRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.HTTP);
+        CompletableFuture<PlatformResponseDto> command = new CompletableFuture<>();
+        when(platformService.movePlatformAsync(moveRequest)).thenReturn(command);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () ->
+                controller.movePlatform(moveRequest).get(1, TimeUnit.SECONDS));
+
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertFalse(command.isDone());
+    }
+
+    @Test
+    void getESP32Status_ShouldUseItsOwnTimeout() throws Exception {
+        CompletableFuture<ESP32StatusResponseDto> command = new CompletableFuture<>();
+        when(platformService.getESP32StatusAsync()).thenReturn(command);
+
+        CompletableFuture<ESP32StatusResponseDto> response = controller.getESP32Status();
+        // Past the move timeout, still within the status one
+        Thread.sleep(150);
+        ESP32StatusResponseDto status = new ESP32StatusResponseDto();
+        command.complete(status);
+
+        assertSame(status, response.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void handleTimeout_ShouldAnswerGatewayTimeoutWithProblemDetail() {
+        ResponseEntity<ProblemDetail> response = controller.handleTimeout(new TimeoutException());
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT.value(), response.getBody().getStatus());
+        assertEquals("Platform did not answer in time", response.getBody().getDetail());
+    }
+
+    @Test
+    void defaultTimeouts_ShouldOutlastTheCallAheadPlusTheTransportTimeout() {
+        EndpointTimeoutProperties defaults = new EndpointTimeoutProperties();
+        Duration transport = new HttpTransportProperties().getReadTimeout();
+        Duration worstCase = transport.multipliedBy(2);
+
+        assertTrue(defaults.getMove().compareTo(worstCase) > 0);
+        assertTrue(defaults.getStop().compareTo(worstCase) > 0);
+        assertTrue(defaults.getStatus().compareTo(worstCase) > 0);
+        assertTrue(defaults.getInfo().compareTo(worstCase) > 0);
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.CommandSequencerProperties;
+import org.example.diplomwork.config.HistoryJournalProperties;
+import org.example.diplomwork.config.HistoryPathProperties;
+import org.example.diplomwork.config.HistoryProperties;
+import org.example.diplomwork.config.HistorySpatialProperties;
+import org.example.diplomwork.config.OdometryProperties;
+import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
+import org.example.diplomwork.dto.move.MoveRequestDto;
+import org.example.diplomwork.dto.position.PositionResponseDto;
+import org.example.diplomwork.entities.CommunicationProtocol;
+import org.example.diplomwork.service.impl.HttpCommunicationService;
+import org.example.diplomwork.service.impl.MqttCommunicationService;
+import org.example.diplomwork.service.impl.PlatformService;
+import org.example.diplomwork.service.impl.TransportConnectionManager;
+import org.example.diplomwork.service.impl.WebSocketCommunicationService;
+import org.example.diplomwork.util.history.HistorySink;
+import org.example.diplomwork.util.websocket.WebSocketBroadcastService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlatformServiceConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int MOVES_PER_WRITER = 500;
+
+    @Mock
+    private HttpCommunicationService httpService;
+
+    @Mock
+    private WebSocketCommunicationService webSocketService;
+
+    @Mock
+    private MqttCommunicationService mqttService;
+
+    @Mock
+    private WebSocketBroadcastService wsBroadcastService;
+
+    private PlatformService platformService;
+
+    @BeforeEach
+    void setUp() {
+        ESP32ResponseDto successResponse = new ESP32ResponseDto();
+        successResponse.setStatus("ok");
+        when(httpService.sendMoveCommand(any(MoveRequestDto.class))).thenReturn(successResponse);
+
+        platformService = new PlatformService(
+                new TransportConnectionManager(httpService, webSocketService, mqttService), wsBroadcastService,
+                new CommandSequencerProperties(), new OdometryProperties(), new HistoryProperties(),
+                new HistoryJournalProperties(), HistorySink.DISCARD, new HistoryPathProperties(),
+                new HistorySpatialProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        platformService.cleanup();
+    }
+
+    @Test
+    void concurrentMovesAndReads_ShouldKeepStateConsistent() throws Exception {
+        // Heading stays at 0, so every forward move adds the same amount to x and to the
+        // travelled distance; a torn or lost update makes the two diverge
+        MoveRequestDto forward = new MoveRequestDto("forward", 200, null, CommunicationProtocol.HTTP);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<Integer>> readers = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < WRITERS; i++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int move = 0; move < MOVES_PER_WRITER; move++) {
+                        platformService.movePlatform(forward);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    int reads = 0;
+                    while (writing.get()) {
+                        PositionResponseDto position = platformService.getCurrentPosition();
+                        assertEquals(position.getDistanceTravelled(), position.getX(), 1e-9);
+                        assertEquals(0.0, position.getY(), 1e-9);
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PositionResponseDto finalPosition = platformService.getCurrentPosition();
+        assertEquals(WRITERS * MOVES_PER_WRITER, platformService.getMovementHistory().size());
+        assertEquals(finalPosition.getDistanceTravelled(), finalPosition.getX(), 1e-9);
+        assertTrue(finalPosition.getDistanceTravelled() > 0);
+        verify(httpService, times(WRITERS * MOVES_PER_WRITER)).sendMoveCommand(forward);
+    }
+}
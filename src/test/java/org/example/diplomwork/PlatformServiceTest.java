@@ -1,27 +1,44 @@
 package org.example.diplomwork;
 
+import org.example.diplomwork.config.CommandSequencerProperties;
+import org.example.diplomwork.config.HistoryJournalProperties;
+import org.example.diplomwork.config.HistoryPathProperties;
+import org.example.diplomwork.config.HistoryProperties;
+import org.example.diplomwork.config.HistorySpatialProperties;
+import org.example.diplomwork.config.OdometryProperties;
 import org.example.diplomwork.dto.esp32.ESP32InfoResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32ResponseDto;
 import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
+import org.example.diplomwork.dto.history.HistoryPageDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.dto.platform.PlatformResponseDto;
 import org.example.diplomwork.dto.platform.PlatformUpdateDto;
+import org.example.diplomwork.dto.platform.StopRaceResponseDto;
 import org.example.diplomwork.dto.position.PositionResponseDto;
 import org.example.diplomwork.entities.CommunicationProtocol;
 import org.example.diplomwork.entities.MovementHistory;
 import org.example.diplomwork.service.impl.HttpCommunicationService;
 import org.example.diplomwork.service.impl.MqttCommunicationService;
 import org.example.diplomwork.service.impl.PlatformService;
+import org.example.diplomwork.service.impl.TransportConnectionManager;
 import org.example.diplomwork.service.impl.WebSocketCommunicationService;
+import org.example.diplomwork.util.history.HistorySink;
 import org.example.diplomwork.util.websocket.WebSocketBroadcastService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,7 +59,6 @@ class PlatformServiceTest {
     @Mock
     private WebSocketBroadcastService wsBroadcastService;
 
-    @InjectMocks
     private PlatformService platformService;
 
     private MoveRequestDto moveRequest;
@@ -51,6 +67,9 @@ class PlatformServiceTest {
 
     @BeforeEach
     void setUp() {
+        platformService = newPlatformService(
+                new TransportConnectionManager(httpService, webSocketService, mqttService), new OdometryProperties());
+
         moveRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.HTTP);
 
         successResponse = new ESP32ResponseDto();
@@ -62,6 +81,24 @@ class PlatformServiceTest {
         errorResponse.setMessage("Movement failed");
     }
 
+    @AfterEach
+    void tearDown() {
+        platformService.cleanup();
+    }
+
+    private PlatformService newPlatformService(TransportConnectionManager connectionManager,
+                                               OdometryProperties odometryProperties) {
+        return new PlatformService(connectionManager, wsBroadcastService, new CommandSequencerProperties(),
+                odometryProperties, new HistoryProperties(), new HistoryJournalProperties(), HistorySink.DISCARD,
+                new HistoryPathProperties(), new HistorySpatialProperties());
+    }
+
+    private PlatformService newPlatformService(HistoryJournalProperties journalProperties) {
+        return new PlatformService(new TransportConnectionManager(httpService, webSocketService, mqttService),
+                wsBroadcastService, new CommandSequencerProperties(), new OdometryProperties(), new HistoryProperties(),
+                journalProperties, HistorySink.DISCARD, new HistoryPathProperties(), new HistorySpatialProperties());
+    }
+
     @Test
     void movePlatform_WithValidRequest_ShouldReturnSuccessResponse() {
         when(httpService.sendMoveCommand(moveRequest)).thenReturn(successResponse);
@@ -137,6 +174,24 @@ class PlatformServiceTest {
         verify(wsBroadcastService).broadcastError(anyString());
     }
 
+    @Test
+    void getESP32StatusAsync_WhileMoveIsInFlight_ShouldNotWaitForIt() throws Exception {
+        CompletableFuture<ESP32ResponseDto> inFlight = new CompletableFuture<>();
+        ESP32StatusResponseDto statusResponse = new ESP32StatusResponseDto();
+        statusResponse.setStatus("ok");
+        when(httpService.sendMoveCommandAsync(moveRequest)).thenReturn(inFlight);
+        when(httpService.getStatusAsync()).thenReturn(CompletableFuture.completedFuture(statusResponse));
+
+        CompletableFuture<PlatformResponseDto> move = platformService.movePlatformAsync(moveRequest);
+        verify(httpService, timeout(1000)).sendMoveCommandAsync(moveRequest);
+
+        assertSame(statusResponse, platformService.getESP32StatusAsync().get(1, TimeUnit.SECONDS));
+        assertFalse(move.isDone());
+
+        inFlight.complete(successResponse);
+        move.get(1, TimeUnit.SECONDS);
+    }
+
     @Test
     void getESP32Info_WithValidResponse_ShouldReturnInfo() {
         ESP32InfoResponseDto infoResponse = new ESP32InfoResponseDto();
@@ -233,13 +288,12 @@ class PlatformServiceTest {
     @Test
     void movePlatform_ShouldSwitchProtocolFromHttpToWebSocket() {
         MoveRequestDto wsRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.WEBSOCKET);
-        when(httpService.isConnected()).thenReturn(true);
         when(webSocketService.isConnected()).thenReturn(false);
         when(webSocketService.sendMoveCommand(wsRequest)).thenReturn(successResponse);
 
         platformService.movePlatform(wsRequest);
 
-        verify(httpService).disconnect();
+        verify(httpService, never()).disconnect();
         verify(webSocketService).connect();
         verify(webSocketService).sendMoveCommand(wsRequest);
         verify(wsBroadcastService, times(2)).broadcastStatusUpdate(anyString());
@@ -248,18 +302,54 @@ class PlatformServiceTest {
     @Test
     void movePlatform_ShouldSwitchProtocolFromHttpToMqtt() {
         MoveRequestDto mqttRequest = new MoveRequestDto("backward", 80, null, CommunicationProtocol.MQTT);
-        when(httpService.isConnected()).thenReturn(true);
         when(mqttService.isConnected()).thenReturn(false);
         when(mqttService.sendMoveCommand(mqttRequest)).thenReturn(successResponse);
 
         platformService.movePlatform(mqttRequest);
 
-        verify(httpService).disconnect();
+        verify(httpService, never()).disconnect();
         verify(mqttService).connect();
         verify(mqttService).sendMoveCommand(mqttRequest);
         verify(wsBroadcastService, times(2)).broadcastStatusUpdate(anyString());
     }
 
+    @Test
+    void movePlatform_SwitchingBackToOpenLink_ShouldNotReconnect() {
+        MoveRequestDto wsRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.WEBSOCKET);
+        when(webSocketService.isConnected()).thenReturn(true);
+        when(webSocketService.sendMoveCommand(wsRequest)).thenReturn(successResponse);
+        when(httpService.sendMoveCommand(moveRequest)).thenReturn(successResponse);
+
+        platformService.movePlatform(wsRequest);
+        platformService.movePlatform(moveRequest);
+        platformService.movePlatform(wsRequest);
+
+        verify(webSocketService, never()).connect();
+        verify(webSocketService, never()).disconnect();
+        verify(webSocketService, times(2)).sendMoveCommand(wsRequest);
+    }
+
+    @Test
+    void movePlatform_WithAutoProtocol_ShouldRouteToFastestLink() {
+        MoveRequestDto autoRequest = new MoveRequestDto("forward", 100, null, CommunicationProtocol.AUTO);
+        when(httpService.isConnected()).thenReturn(true);
+        when(webSocketService.isConnected()).thenReturn(true);
+        when(mqttService.isConnected()).thenReturn(false);
+        when(webSocketService.sendMoveCommand(autoRequest)).thenReturn(successResponse);
+
+        TransportConnectionManager connectionManager = new TransportConnectionManager(httpService, webSocketService, mqttService);
+        connectionManager.recordOutcome(CommunicationProtocol.HTTP, 50_000_000, true);
+        connectionManager.recordOutcome(CommunicationProtocol.WEBSOCKET, 5_000_000, true);
+        platformService.cleanup();
+        platformService = newPlatformService(connectionManager, new OdometryProperties());
+
+        PlatformResponseDto result = platformService.movePlatform(autoRequest);
+
+        assertEquals("success", result.getStatus());
+        verify(webSocketService).sendMoveCommand(autoRequest);
+        verify(httpService, never()).sendMoveCommand(any());
+    }
+
     @Test
     void movePlatform_WithDifferentDirections_ShouldUpdatePositionCorrectly() {
         testMovementDirection("forward");
@@ -305,4 +395,211 @@ class PlatformServiceTest {
         assertNotNull(result);
         assertNotNull(result.getAngle());
     }
-}
\ No newline at end of file
+
+    @Test
+    void movePlatform_InFixedRateMode_ShouldRecordIntegratedPositions() throws Exception {
+        OdometryProperties odometry = new OdometryProperties();
+        odometry.setMode(OdometryProperties.Mode.FIXED_RATE);
+        odometry.setTick(Duration.ofMillis(5));
+        odometry.setPublishInterval(Duration.ofMillis(20));
+        PlatformService fixedRate = newPlatformService(
+                new TransportConnectionManager(httpService, webSocketService, mqttService), odometry);
+        when(httpService.sendMoveCommand(moveRequest)).thenReturn(successResponse);
+        when(httpService.sendStopCommand()).thenReturn(successResponse);
+
+        try {
+            fixedRate.movePlatform(moveRequest);
+            Thread.sleep(200);
+            fixedRate.stopPlatform();
+        } finally {
+            fixedRate.cleanup();
+        }
+
+        // The acknowledgement only sets the heading, the distance comes from the engine's samples
+        List<MovementHistory> history = fixedRate.getMovementHistory();
+        assertTrue(history.size() > 1);
+        assertTrue(history.get(history.size() - 1).getDistanceTravelled() > 0);
+    }
+
+    @Test
+    void replayJournal_ShouldRestoreHistoryAndPosition(@TempDir Path directory) {
+        HistoryJournalProperties journalProperties = new HistoryJournalProperties();
+        journalProperties.setEnabled(true);
+        journalProperties.setDirectory(directory);
+        when(httpService.sendMoveCommand(moveRequest)).thenReturn(successResponse);
+
+        PlatformService first = newPlatformService(journalProperties);
+        first.replayJournal();
+        first.movePlatform(moveRequest);
+        first.movePlatform(moveRequest);
+        PositionResponseDto before = first.getCurrentPosition();
+        first.cleanup();
+
+        PlatformService restarted = newPlatformService(journalProperties);
+        try {
+            restarted.replayJournal();
+
+            assertEquals(2, restarted.getMovementHistory().size());
+            assertEquals(before.getX(), restarted.getCurrentPosition().getX(), 1e-9);
+            assertEquals(before.getDistanceTravelled(), restarted.getCurrentPosition().getDistanceTravelled(), 1e-9);
+        } finally {
+            restarted.cleanup();
+        }
+    }
+
+    @Test
+    void replayJournal_ShouldKeepHistoryCursorsIssuedBeforeTheRestart(@TempDir Path directory) {
+        HistoryJournalProperties journalProperties = new HistoryJournalProperties();
+        journalProperties.setEnabled(true);
+        journalProperties.setDirectory(directory);
+        when(httpService.sendMoveCommand(moveRequest)).thenReturn(successResponse);
+
+        PlatformService first = newPlatformService(journalProperties);
+        first.replayJournal();
+        first.movePlatform(moveRequest);
+        first.movePlatform(moveRequest);
+        String cursor = first.getMovementHistoryPage(null, null, null, 1).nextCursor();
+        first.cleanup();
+
+        PlatformService restarted = newPlatformService(journalProperties);
+        try {
+            restarted.replayJournal();
+
+            HistoryPageDto page = restarted.getMovementHistoryPage(null, null, cursor, 10);
+            assertEquals(1, page.entries().size());
+            assertFalse(page.hasMore());
+        } finally {
+            restarted.cleanup();
+        }
+    }
+
+    @Test
+    void movePlatformAsync_WithValidRequest_ShouldCompleteWithSuccessResponse() throws Exception {
+        when(httpService.sendMoveCommandAsync(moveRequest)).thenReturn(CompletableFuture.completedFuture(successResponse));
+
+        PlatformResponseDto result = platformService.movePlatformAsync(moveRequest).get(1, TimeUnit.SECONDS);
+
+        assertEquals("success", result.getStatus());
+        assertEquals("forward", result.getDirection());
+        assertEquals(1, platformService.getMovementHistory().size());
+        verify(wsBroadcastService).broadcastPlatformUpdate(any(PlatformUpdateDto.class));
+    }
+
+    @Test
+    void movePlatformAsync_WithErrorResponse_ShouldCompleteExceptionally() {
+        when(httpService.sendMoveCommandAsync(moveRequest)).thenReturn(CompletableFuture.completedFuture(errorResponse));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+            platformService.movePlatformAsync(moveRequest).get(1, TimeUnit.SECONDS);
+        });
+
+        assertTrue(exception.getCause().getMessage().contains("Failed to communicate with platform"));
+        verify(wsBroadcastService, times(2)).broadcastError(anyString());
+    }
+
+    @Test
+    void stopPlatformAsync_WithSuccessResponse_ShouldCompleteWithPosition() throws Exception {
+        when(httpService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(successResponse));
+
+        PlatformResponseDto result = platformService.stopPlatformAsync().get(1, TimeUnit.SECONDS);
+
+        assertNotNull(result.getPosition());
+        verify(wsBroadcastService).broadcastPlatformUpdate(any(PlatformUpdateDto.class));
+    }
+
+    @Test
+    void stopPlatformRace_ShouldReturnFirstOkTransport() throws Exception {
+        CompletableFuture<ESP32ResponseDto> slowHttp = new CompletableFuture<>();
+        when(webSocketService.isConnected()).thenReturn(true);
+        when(mqttService.isConnected()).thenReturn(true);
+        when(httpService.sendStopCommandAsync()).thenReturn(slowHttp);
+        when(webSocketService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(errorResponse));
+        when(mqttService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(successResponse));
+
+        StopRaceResponseDto result = platformService.stopPlatformRace().get(1, TimeUnit.SECONDS);
+
+        assertEquals("MQTT", result.getWinner());
+        assertEquals(List.of("HTTP", "WEBSOCKET", "MQTT"), result.getTransports());
+        assertNotNull(result.getPlatform().getPosition());
+        assertTrue(slowHttp.isCancelled());
+    }
+
+    @Test
+    void stopPlatformRace_WhenNoTransportAcknowledges_ShouldCompleteExceptionally() {
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(false);
+        when(httpService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(errorResponse));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+            platformService.stopPlatformRace().get(1, TimeUnit.SECONDS);
+        });
+
+        assertTrue(exception.getCause().getMessage().contains("Failed to stop platform"));
+        verify(webSocketService, never()).sendStopCommandAsync();
+        verify(wsBroadcastService).broadcastError(anyString());
+    }
+
+    @Test
+    void stopPlatformRace_ShouldDropQueuedMoves() throws Exception {
+        MoveRequestDto queuedRequest = new MoveRequestDto("backward", 150, null, CommunicationProtocol.HTTP);
+        CompletableFuture<ESP32ResponseDto> inFlight = new CompletableFuture<>();
+        when(httpService.sendMoveCommandAsync(moveRequest)).thenReturn(inFlight);
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(false);
+        when(httpService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(successResponse));
+
+        CompletableFuture<PlatformResponseDto> running = platformService.movePlatformAsync(moveRequest);
+        verify(httpService, timeout(1000)).sendMoveCommandAsync(moveRequest);
+        CompletableFuture<PlatformResponseDto> queued = platformService.movePlatformAsync(queuedRequest);
+
+        platformService.stopPlatformRace().get(1, TimeUnit.SECONDS);
+        inFlight.complete(successResponse);
+
+        running.get(1, TimeUnit.SECONDS);
+        assertThrows(CancellationException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        verify(httpService, never()).sendMoveCommandAsync(queuedRequest);
+    }
+
+    @Test
+    void stopPlatformRace_WhenInFlightMoveIsAcknowledgedAfterIt_ShouldNotRestartOdometry() throws Exception {
+        OdometryProperties odometry = new OdometryProperties();
+        odometry.setMode(OdometryProperties.Mode.FIXED_RATE);
+        odometry.setTick(Duration.ofMillis(5));
+        odometry.setPublishInterval(Duration.ofMillis(20));
+        PlatformService fixedRate = newPlatformService(
+                new TransportConnectionManager(httpService, webSocketService, mqttService), odometry);
+        CompletableFuture<ESP32ResponseDto> inFlight = new CompletableFuture<>();
+        when(httpService.sendMoveCommandAsync(moveRequest)).thenReturn(inFlight);
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(false);
+        when(httpService.sendStopCommandAsync()).thenReturn(CompletableFuture.completedFuture(successResponse));
+
+        try {
+            CompletableFuture<PlatformResponseDto> move = fixedRate.movePlatformAsync(moveRequest);
+            verify(httpService, timeout(1000)).sendMoveCommandAsync(moveRequest);
+            fixedRate.stopPlatformRace().get(1, TimeUnit.SECONDS);
+
+            inFlight.complete(successResponse);
+
+            assertThrows(CancellationException.class, () -> move.get(1, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(0.0, fixedRate.getCurrentPosition().getDistanceTravelled());
+            assertTrue(fixedRate.getMovementHistory().isEmpty());
+        } finally {
+            fixedRate.cleanup();
+        }
+    }
+
+    @Test
+    void getESP32InfoAsync_WithErrorResponse_ShouldCompleteExceptionally() {
+        ESP32InfoResponseDto errorInfo = new ESP32InfoResponseDto();
+        errorInfo.setStatus("error");
+        when(httpService.getInfoAsync()).thenReturn(CompletableFuture.completedFuture(errorInfo));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+            platformService.getESP32InfoAsync().get(1, TimeUnit.SECONDS);
+        });
+
+        assertTrue(exception.getCause().getMessage().contains("ESP32 info error"));
+    }
+}
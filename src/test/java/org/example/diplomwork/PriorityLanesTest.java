@@ -0,0 +1,136 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.TransportLaneProperties;
+import org.example.diplomwork.dto.metrics.LaneMetricsDto;
+import org.example.diplomwork.util.dispatch.PriorityLanes;
+import org.example.diplomwork.util.dispatch.PriorityLanes.Lane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityLanesTest {
+    private PriorityLanes lanes;
+    private List<String> started;
+    private List<CompletableFuture<String>> calls;
+
+    @BeforeEach
+    void setUp() {
+        TransportLaneProperties properties = new TransportLaneProperties();
+        properties.setStopBudget(1);
+        properties.setMoveBudget(1);
+        properties.setPollBudget(1);
+        lanes = new PriorityLanes("test", properties);
+        started = new CopyOnWriteArrayList<>();
+        calls = new CopyOnWriteArrayList<>();
+    }
+
+    private CompletableFuture<String> submit(Lane lane, String name) {
+        return lanes.submit(lane, () -> {
+            started.add(name);
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        });
+    }
+
+    @Test
+    void laneOf_ShouldMapCommandsToLanes() {
+        assertEquals(Lane.STOP, PriorityLanes.laneOf("stop"));
+        assertEquals(Lane.MOVE, PriorityLanes.laneOf("move"));
+        assertEquals(Lane.POLL, PriorityLanes.laneOf("status"));
+        assertEquals(Lane.POLL, PriorityLanes.laneOf("info"));
+    }
+
+    @Test
+    void submit_ShouldHoldCallsBeyondLaneBudget() {
+        submit(Lane.MOVE, "move-1");
+        CompletableFuture<String> second = submit(Lane.MOVE, "move-2");
+
+        assertEquals(List.of("move-1"), started);
+
+        calls.get(0).complete("ok");
+
+        assertEquals(List.of("move-1", "move-2"), started);
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    void submit_StopShouldStartWhileOtherLanesAreSaturated() {
+        submit(Lane.MOVE, "move-1");
+        submit(Lane.MOVE, "move-2");
+        submit(Lane.POLL, "status-1");
+        submit(Lane.POLL, "status-2");
+
+        CompletableFuture<String> stop = submit(Lane.STOP, "stop");
+
+        assertEquals(List.of("move-1", "status-1", "stop"), started);
+        calls.get(2).complete("stopped");
+        assertEquals("stopped", stop.join());
+    }
+
+    @Test
+    void submit_WithFailingCall_ShouldFailResultAndReleaseBudget() {
+        CompletableFuture<String> failing = lanes.submit(Lane.POLL, () -> {
+            throw new IllegalStateException("Not connected");
+        });
+        CompletableFuture<String> next = lanes.submit(Lane.POLL, () -> CompletableFuture.completedFuture("ok"));
+
+        assertTrue(failing.isCompletedExceptionally());
+        assertEquals("ok", next.join());
+    }
+
+    @Test
+    void metrics_ShouldReportBudgetQueueAndLatencyPerLane() {
+        submit(Lane.MOVE, "move-1");
+        submit(Lane.MOVE, "move-2");
+        CompletableFuture<String> stop = lanes.submit(Lane.STOP, () -> CompletableFuture.completedFuture("ok"));
+        stop.join();
+
+        List<LaneMetricsDto> metrics = lanes.metrics();
+
+        assertEquals(3, metrics.size());
+        LaneMetricsDto stopLane = metrics.get(0);
+        LaneMetricsDto moveLane = metrics.get(1);
+        assertEquals("test", stopLane.transport());
+        assertEquals("STOP", stopLane.lane());
+        assertEquals(1, stopLane.latency().count());
+        assertEquals(0, stopLane.inFlight());
+        assertEquals(1, moveLane.inFlight());
+        assertEquals(1, moveLane.queued());
+    }
+
+    @Test
+    void constructor_WithZeroBudget_ShouldThrow() {
+        TransportLaneProperties properties = new TransportLaneProperties();
+        properties.setPollBudget(0);
+
+        assertThrows(IllegalArgumentException.class, () -> new PriorityLanes("test", properties));
+    }
+
+    @Test
+    void completion_WithCompletionExecutor_ShouldStartNextCallThere() {
+        TransportLaneProperties properties = new TransportLaneProperties();
+        properties.setMoveBudget(1);
+        Queue<Runnable> handedOff = new ConcurrentLinkedQueue<>();
+        lanes = new PriorityLanes("test", properties, handedOff::add);
+        submit(Lane.MOVE, "move-1");
+        submit(Lane.MOVE, "move-2");
+
+        // Completing on, say, the MQTT callback thread must not send the next call from it
+        calls.get(0).complete("ok");
+
+        assertEquals(List.of("move-1"), started);
+        assertEquals(1, handedOff.size());
+
+        handedOff.poll().run();
+
+        assertEquals(List.of("move-1", "move-2"), started);
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.util.history.SpatialGrid;
+import org.example.diplomwork.util.history.SpatialGrid.Neighbour;
+import org.example.diplomwork.util.history.SpatialGrid.Visits;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    private static double[][] randomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        for (int i = 0; i < count; i++) {
+            heading += random.nextGaussian() * 0.3;
+            x += Math.cos(heading) * 0.05;
+            y += Math.sin(heading) * 0.05;
+            xs[i] = x;
+            ys[i] = y;
+        }
+        return new double[][]{xs, ys};
+    }
+
+    @Test
+    void rectangle_ShouldMatchLinearScan() {
+        double[][] walk = randomWalk(20_000, 7);
+        SpatialGrid grid = new SpatialGrid(0.5, 100_000);
+        for (int i = 0; i < walk[0].length; i++) {
+            grid.append(i, walk[0][i], walk[1][i]);
+        }
+
+        Random random = new Random(11);
+        for (int query = 0; query < 200; query++) {
+            double minX = walk[0][random.nextInt(walk[0].length)] - random.nextDouble() * 2;
+            double minY = walk[1][random.nextInt(walk[1].length)] - random.nextDouble() * 2;
+            double maxX = minX + random.nextDouble() * 4;
+            double maxY = minY + random.nextDouble() * 4;
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < walk[0].length; i++) {
+                if (walk[0][i] >= minX && walk[0][i] <= maxX && walk[1][i] >= minY && walk[1][i] <= maxY) {
+                    expected.add((long) i);
+                }
+            }
+
+            Visits visits = grid.rectangle(minX, minY, maxX, maxY, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+            assertEquals(expected.size(), visits.total());
+            assertEquals(expected, Arrays.stream(visits.timestamps()).boxed().toList());
+
+            Visits earliest = grid.rectangle(minX, minY, maxX, maxY, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+            assertEquals(expected.subList(0, Math.min(10, expected.size())),
+                    Arrays.stream(earliest.timestamps()).boxed().toList());
+        }
+    }
+
+    @Test
+    void circle_ShouldMatchLinearScan() {
+        double[][] walk = randomWalk(20_000, 9);
+        SpatialGrid grid = new SpatialGrid(0.3, 100_000);
+        for (int i = 0; i < walk[0].length; i++) {
+            grid.append(i, walk[0][i], walk[1][i]);
+        }
+
+        Random random = new Random(13);
+        for (int query = 0; query < 200; query++) {
+            int near = random.nextInt(walk[0].length);
+            double x = walk[0][near] + random.nextGaussian();
+            double y = walk[1][near] + random.nextGaussian();
+            double radius = random.nextDouble() * 3;
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < walk[0].length; i++) {
+                double dx = walk[0][i] - x;
+                double dy = walk[1][i] - y;
+                if (dx * dx + dy * dy <= radius * radius) {
+                    expected.add((long) i);
+                }
+            }
+
+            Visits visits = grid.circle(x, y, radius, 5000, 15000, Integer.MAX_VALUE);
+
+            List<Long> inRange = expected.stream().filter(t -> t >= 5000 && t <= 15000).toList();
+            assertEquals(inRange.size(), visits.total());
+            assertEquals(inRange, Arrays.stream(visits.timestamps()).boxed().toList());
+        }
+    }
+
+    @Test
+    void circle_ShouldGroupConsecutivePositionsIntoIntervals() {
+        SpatialGrid grid = new SpatialGrid(0.5, 1000);
+        // Passes through the unit circle twice: t 1..3 and t 7..8
+        double[] xs = {-2, -0.5, 0, 0.5, 2, 3, 2, 0.9, -0.9, -2};
+        for (int i = 0; i < xs.length; i++) {
+            grid.append(i, xs[i], 0);
+        }
+
+        Visits visits = grid.circle(0, 0, 1, Long.MIN_VALUE, Long.MAX_VALUE, 100);
+
+        assertEquals(5, visits.total());
+        assertEquals(2, visits.intervals().size());
+        assertEquals(new SpatialGrid.Interval(1, 3, 3), visits.intervals().get(0));
+        assertEquals(new SpatialGrid.Interval(7, 8, 2), visits.intervals().get(1));
+    }
+
+    @Test
+    void rectangle_ShouldHonourTimeRangeAndLimit() {
+        SpatialGrid grid = new SpatialGrid(1, 1000);
+        for (int i = 0; i < 100; i++) {
+            grid.append(1000L + i, 0.5, 0.5);
+        }
+
+        Visits visits = grid.rectangle(0, 0, 1, 1, 1010, 1049, 5);
+
+        assertEquals(40, visits.total());
+        assertArrayEquals(new long[]{1010, 1011, 1012, 1013, 1014}, visits.timestamps());
+    }
+
+    @Test
+    void nearest_ShouldMatchLinearScan() {
+        double[][] walk = randomWalk(20_000, 3);
+        SpatialGrid grid = new SpatialGrid(0.25, 100_000);
+        for (int i = 0; i < walk[0].length; i++) {
+            grid.append(i, walk[0][i], walk[1][i]);
+        }
+
+        Random random = new Random(5);
+        for (int query = 0; query < 200; query++) {
+            // Some queries land far outside the walk
+            double x = (random.nextDouble() - 0.5) * (query % 10 == 0 ? 1000 : 20);
+            double y = (random.nextDouble() - 0.5) * (query % 10 == 0 ? 1000 : 20);
+            double[] distances = new double[walk[0].length];
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = Math.hypot(walk[0][i] - x, walk[1][i] - y);
+            }
+            Arrays.sort(distances);
+
+            List<Neighbour> nearest = grid.nearest(x, y, 5, Long.MIN_VALUE, Long.MAX_VALUE);
+
+            assertEquals(5, nearest.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(distances[i], nearest.get(i).distance(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void append_BeyondCapacity_ShouldForgetOldestPositions() {
+        SpatialGrid grid = new SpatialGrid(1, 100);
+        for (int i = 0; i < 100; i++) {
+            grid.append(i, 0.5, 0.5);
+        }
+        for (int i = 100; i < 250; i++) {
+            // Spread over many cells, so emptied cells leave the map
+            grid.append(i, i * 3.0, -i * 2.0);
+        }
+
+        assertEquals(100, grid.size());
+        assertEquals(0, grid.rectangle(0, 0, 1, 1, Long.MIN_VALUE, Long.MAX_VALUE, 1000).total());
+        for (int i = 150; i < 250; i++) {
+            Visits visits = grid.rectangle(i * 3.0, -i * 2.0, i * 3.0, -i * 2.0, Long.MIN_VALUE, Long.MAX_VALUE, 10);
+            assertArrayEquals(new long[]{i}, visits.timestamps());
+        }
+        List<Neighbour> nearest = grid.nearest(0, 0, 1, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(150, nearest.get(0).timestamp());
+    }
+
+    @Test
+    void nearest_OnEmptyGrid_ShouldReturnNothing() {
+        SpatialGrid grid = new SpatialGrid(1, 10);
+
+        assertTrue(grid.nearest(0, 0, 3, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+}
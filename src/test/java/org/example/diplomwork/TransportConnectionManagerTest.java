@@ -0,0 +1,150 @@
+package org.example.diplomwork;
+
+import org.example.diplomwork.config.TransportConnectionProperties;
+import org.example.diplomwork.config.TransportRoutingProperties;
+import org.example.diplomwork.dto.metrics.LinkStatusDto;
+import org.example.diplomwork.entities.CommunicationProtocol;
+import org.example.diplomwork.service.impl.HttpCommunicationService;
+import org.example.diplomwork.service.impl.MqttCommunicationService;
+import org.example.diplomwork.service.impl.TransportConnectionManager;
+import org.example.diplomwork.service.impl.WebSocketCommunicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransportConnectionManagerTest {
+
+    @Mock
+    private HttpCommunicationService httpService;
+
+    @Mock
+    private WebSocketCommunicationService webSocketService;
+
+    @Mock
+    private MqttCommunicationService mqttService;
+
+    private TransportConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() {
+        TransportConnectionProperties properties = new TransportConnectionProperties();
+        properties.setHealthCheckInterval(Duration.ofHours(1));
+        TransportRoutingProperties routingProperties = new TransportRoutingProperties();
+        routingProperties.setFailureThreshold(2);
+        routingProperties.setOpenDuration(Duration.ofHours(1));
+        connectionManager = new TransportConnectionManager(
+                httpService, webSocketService, mqttService, properties, routingProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.cleanup();
+    }
+
+    @Test
+    void select_WithOpenLink_ShouldNotConnect() {
+        when(webSocketService.isConnected()).thenReturn(true);
+
+        assertSame(webSocketService, connectionManager.select(CommunicationProtocol.WEBSOCKET));
+
+        verify(webSocketService, never()).connect();
+    }
+
+    @Test
+    void select_WithClosedLink_ShouldConnect() {
+        when(mqttService.isConnected()).thenReturn(false);
+
+        assertSame(mqttService, connectionManager.select(CommunicationProtocol.MQTT));
+
+        verify(mqttService).connect();
+    }
+
+    @Test
+    void select_WhenConnectFails_ShouldThrow() {
+        when(mqttService.isConnected()).thenReturn(false);
+        doThrow(new RuntimeException("Broker unreachable")).when(mqttService).connect();
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> connectionManager.select(CommunicationProtocol.MQTT));
+
+        assertTrue(exception.getMessage().contains("MQTT"));
+    }
+
+    @Test
+    void checkLinks_ShouldReconnectDroppedLinksInBackground() {
+        when(httpService.isConnected()).thenReturn(true);
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(true);
+
+        connectionManager.checkLinks();
+
+        verify(webSocketService, timeout(1000)).connect();
+        verify(httpService, never()).connect();
+        verify(mqttService, never()).connect();
+    }
+
+    @Test
+    void checkLinks_AfterFailure_ShouldBackOff() {
+        when(httpService.isConnected()).thenReturn(true);
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(true);
+        doThrow(new RuntimeException("Handshake failed")).when(webSocketService).connect();
+
+        connectionManager.checkLinks();
+        verify(webSocketService, timeout(1000)).connect();
+
+        connectionManager.checkLinks();
+
+        verify(webSocketService, after(200).times(1)).connect();
+        List<LinkStatusDto> status = connectionManager.getLinkStatus();
+        assertEquals(1, status.get(CommunicationProtocol.WEBSOCKET.ordinal()).consecutiveFailures());
+    }
+
+    @Test
+    void route_ShouldPreferLowestLatencyLink() {
+        when(httpService.isConnected()).thenReturn(true);
+        when(webSocketService.isConnected()).thenReturn(true);
+        when(mqttService.isConnected()).thenReturn(true);
+
+        connectionManager.recordOutcome(CommunicationProtocol.HTTP, 40_000_000, true);
+        connectionManager.recordOutcome(CommunicationProtocol.WEBSOCKET, 5_000_000, true);
+        connectionManager.recordOutcome(CommunicationProtocol.MQTT, 15_000_000, true);
+
+        assertEquals(CommunicationProtocol.WEBSOCKET, connectionManager.route());
+    }
+
+    @Test
+    void route_ShouldSkipLinkWithOpenCircuit() {
+        when(httpService.isConnected()).thenReturn(true);
+        when(webSocketService.isConnected()).thenReturn(true);
+        when(mqttService.isConnected()).thenReturn(true);
+
+        connectionManager.recordOutcome(CommunicationProtocol.HTTP, 40_000_000, true);
+        connectionManager.recordOutcome(CommunicationProtocol.MQTT, 15_000_000, true);
+        connectionManager.recordOutcome(CommunicationProtocol.WEBSOCKET, 5_000_000, false);
+        connectionManager.recordOutcome(CommunicationProtocol.WEBSOCKET, 5_000_000, false);
+
+        assertEquals(CommunicationProtocol.MQTT, connectionManager.route());
+        assertEquals("OPEN", connectionManager.getLinkStatus()
+                .get(CommunicationProtocol.WEBSOCKET.ordinal()).circuit());
+    }
+
+    @Test
+    void route_WithNoUsableLink_ShouldFallBackToHttp() {
+        when(httpService.isConnected()).thenReturn(false);
+        when(webSocketService.isConnected()).thenReturn(false);
+        when(mqttService.isConnected()).thenReturn(false);
+
+        assertEquals(CommunicationProtocol.HTTP, connectionManager.route());
+    }
+}
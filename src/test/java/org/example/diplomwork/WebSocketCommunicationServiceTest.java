@@ -7,6 +7,8 @@ import org.example.diplomwork.dto.esp32.ESP32StatusResponseDto;
 import org.example.diplomwork.dto.move.MoveRequestDto;
 import org.example.diplomwork.entities.CommunicationProtocol;
 import org.example.diplomwork.service.impl.WebSocketCommunicationService;
+import org.example.diplomwork.util.codec.BinaryFrameCodec;
+import org.example.diplomwork.util.correlation.PendingRequestRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,13 +16,19 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -253,14 +261,9 @@ class WebSocketCommunicationServiceTest {
     void handleResponse_WithValidResponse_ShouldCompleteFuture() throws Exception {
         String responseJson = "{\"status\":\"ok\",\"id\":\"1\"}";
 
-        ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests =
-                getPrivateField(webSocketService, "pendingRequests");
+        PendingRequestRegistry<Object> pendingRequests = getPrivateField(webSocketService, "pendingRequests");
 
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put("1", future);
-
-        when(mockMapper.readValue(eq(responseJson), eq(Map.class)))
-                .thenReturn(Map.of("status", "ok", "id", "1"));
+        CompletableFuture<Object> future = pendingRequests.register(pendingRequests.nextId());
 
         Method handleResponseMethod = WebSocketCommunicationService.class.getDeclaredMethod("handleResponse", String.class);
         handleResponseMethod.setAccessible(true);
@@ -268,42 +271,160 @@ class WebSocketCommunicationServiceTest {
 
         assertTrue(future.isDone());
         assertEquals(responseJson, future.get());
-        assertFalse(pendingRequests.containsKey("1"));
+        assertFalse(pendingRequests.isPending(1));
     }
 
     @Test
     void handleResponse_WithoutId_ShouldNotCompleteFuture() throws Exception {
         String responseJson = "{\"status\":\"ok\"}";
 
-        ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests =
-                getPrivateField(webSocketService, "pendingRequests");
-
-        CompletableFuture<String> future = new CompletableFuture<>();
-        pendingRequests.put("1", future);
+        PendingRequestRegistry<Object> pendingRequests = getPrivateField(webSocketService, "pendingRequests");
 
-        when(mockMapper.readValue(eq(responseJson), eq(Map.class)))
-                .thenReturn(Map.of("status", "ok"));
+        CompletableFuture<Object> future = pendingRequests.register(pendingRequests.nextId());
 
         Method handleResponseMethod = WebSocketCommunicationService.class.getDeclaredMethod("handleResponse", String.class);
         handleResponseMethod.setAccessible(true);
         handleResponseMethod.invoke(webSocketService, responseJson);
 
         assertFalse(future.isDone());
-        assertTrue(pendingRequests.containsKey("1"));
+        assertTrue(pendingRequests.isPending(1));
+        assertEquals(1, webSocketService.getCorrelationMetrics().orphaned());
+    }
+
+    @Test
+    void disconnect_WithPendingRequests_ShouldFailThem() throws Exception {
+        when(mockSession.isOpen()).thenReturn(true);
+        PendingRequestRegistry<Object> pendingRequests = getPrivateField(webSocketService, "pendingRequests");
+
+        CompletableFuture<Object> future = pendingRequests.register(pendingRequests.nextId());
+
+        webSocketService.disconnect();
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, webSocketService.getCorrelationMetrics().pending());
+    }
+
+    @Test
+    void sendStopCommandAsync_ShouldCompleteWhenResponseArrives() throws Exception {
+        String responseJson = "{\"status\":\"ok\",\"id\":\"1\"}";
+        ESP32ResponseDto expectedResponse = new ESP32ResponseDto();
+        expectedResponse.setStatus("ok");
+
+        when(mockSession.isOpen()).thenReturn(true);
+        when(mockMapper.writeValueAsString(any(Map.class))).thenReturn("{\"command\":\"stop\",\"id\":\"1\"}");
+        when(mockMapper.readValue(responseJson, ESP32ResponseDto.class)).thenReturn(expectedResponse);
+
+        CompletableFuture<ESP32ResponseDto> future = webSocketService.sendStopCommandAsync();
+
+        assertFalse(future.isDone());
+
+        Method handleResponseMethod = WebSocketCommunicationService.class.getDeclaredMethod("handleResponse", String.class);
+        handleResponseMethod.setAccessible(true);
+        handleResponseMethod.invoke(webSocketService, responseJson);
+
+        assertEquals("ok", future.get(1, TimeUnit.SECONDS).getStatus());
+        verify(mockSession).sendMessage(any(TextMessage.class));
     }
 
-    private void setupWebSocketResponse(String messageId, String responseJson) throws Exception {
-        ConcurrentHashMap<String, CompletableFuture<String>> pendingRequests =
-                getPrivateField(webSocketService, "pendingRequests");
-        AtomicLong idCounter = getPrivateField(webSocketService, "idCounter");
+    @Test
+    void sendStopCommandAsync_WhenSessionClosed_ShouldFailWithoutReconnecting() throws Exception {
+        when(mockSession.isOpen()).thenReturn(false);
+
+        ESP32ResponseDto result = webSocketService.sendStopCommandAsync().get(1, TimeUnit.SECONDS);
 
-        idCounter.set(Long.parseLong(messageId) - 1);
+        assertEquals("error", result.getStatus());
+        assertTrue(result.getMessage().contains("not connected"));
+        verify(mockSession, never()).sendMessage(any());
+        verifyNoInteractions(mockClient);
+    }
 
+    @Test
+    void sendMoveCommandAsync_WithException_ShouldCompleteWithErrorResponse() throws Exception {
+        when(mockSession.isOpen()).thenReturn(true);
+        when(mockMapper.writeValueAsString(any(Map.class))).thenThrow(new RuntimeException("JSON error"));
+
+        ESP32ResponseDto result = webSocketService.sendMoveCommandAsync(moveRequest).get(1, TimeUnit.SECONDS);
+
+        assertEquals("error", result.getStatus());
+        assertTrue(result.getMessage().contains("WebSocket error"));
+    }
+
+    @Test
+    void sendStopCommandAsync_InBinaryMode_ShouldSendBinaryFrameAndDecodeResponse() throws Exception {
+        setPrivateField(webSocketService, "binaryMode", true);
+        when(mockSession.isOpen()).thenReturn(true);
+
+        CompletableFuture<ESP32ResponseDto> future = webSocketService.sendStopCommandAsync();
+
+        verify(mockSession).sendMessage(any(BinaryMessage.class));
+        verify(mockMapper, never()).writeValueAsString(any());
+
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.RESPONSE_HEADER_SIZE + 16).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put((byte) (BinaryFrameCodec.OP_STOP | 0x80)).put((byte) 0).putInt(1).put(new byte[16]).flip();
+
+        Method handleBinaryResponseMethod = WebSocketCommunicationService.class.getDeclaredMethod("handleBinaryResponse", ByteBuffer.class);
+        handleBinaryResponseMethod.setAccessible(true);
+        handleBinaryResponseMethod.invoke(webSocketService, frame);
+
+        ESP32ResponseDto result = future.get(1, TimeUnit.SECONDS);
+        assertEquals("ok", result.getStatus());
+        assertEquals("stop", result.getDirection());
+    }
+
+    @Test
+    void sendStatusAsync_InBinaryModeWithTruncatedResponse_ShouldFailImmediately() throws Exception {
+        setPrivateField(webSocketService, "binaryMode", true);
+        when(mockSession.isOpen()).thenReturn(true);
+
+        CompletableFuture<ESP32StatusResponseDto> future = webSocketService.getStatusAsync();
+
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.RESPONSE_HEADER_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put((byte) (BinaryFrameCodec.OP_STATUS | 0x80)).put((byte) 0).putInt(1).put(new byte[4]).flip();
+
+        Method handleBinaryResponseMethod = WebSocketCommunicationService.class.getDeclaredMethod("handleBinaryResponse", ByteBuffer.class);
+        handleBinaryResponseMethod.setAccessible(true);
+        handleBinaryResponseMethod.invoke(webSocketService, frame);
+
+        assertTrue(future.isDone());
+        assertEquals("error", future.get().getStatus());
+        assertEquals(1, webSocketService.getCorrelationMetrics().failed());
+        assertEquals(0, webSocketService.getCorrelationMetrics().orphaned());
+    }
+
+    @Test
+    void sendBinaryCommand_WhileAnotherSendIsInProgress_ShouldKeepQueuedFramesIntact() throws Exception {
+        WebSocketSession rawSession = mock(WebSocketSession.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> sentIds = new CopyOnWriteArrayList<>();
         doAnswer(invocation -> {
-            CompletableFuture<String> future = new CompletableFuture<>();
-            pendingRequests.put(messageId, future);
-            future.complete(responseJson);
+            ByteBuffer payload = ((BinaryMessage) invocation.getArgument(0)).getPayload();
+            sentIds.add(payload.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(payload.position() + 2));
+            sending.countDown();
+            release.await(1, TimeUnit.SECONDS);
             return null;
-        }).when(mockSession).sendMessage(any(TextMessage.class));
+        }).when(rawSession).sendMessage(any(BinaryMessage.class));
+        setPrivateField(webSocketService, "session", new ConcurrentWebSocketSessionDecorator(rawSession, 5000, 64 * 1024));
+
+        Method sendBinaryCommandMethod = WebSocketCommunicationService.class.getDeclaredMethod("sendBinaryCommand", Map.class, long.class);
+        sendBinaryCommandMethod.setAccessible(true);
+
+        Thread first = new Thread(() -> {
+            try {
+                sendBinaryCommandMethod.invoke(webSocketService, new HashMap<>(Map.of("command", "stop")), 1L);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        first.start();
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+
+        // The first thread holds the flush lock, so these two are only queued by the decorator
+        sendBinaryCommandMethod.invoke(webSocketService, new HashMap<>(Map.of("command", "stop")), 2L);
+        sendBinaryCommandMethod.invoke(webSocketService, new HashMap<>(Map.of("command", "stop")), 3L);
+        release.countDown();
+        first.join(1000);
+
+        assertEquals(List.of(1, 2, 3), sentIds);
     }
-}
\ No newline at end of file
+}